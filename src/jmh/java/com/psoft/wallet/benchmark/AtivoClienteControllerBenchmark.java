@@ -0,0 +1,60 @@
+package com.psoft.wallet.benchmark;
+
+import org.openjdk.jmh.annotations.*;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.web.context.request.ServletWebRequest;
+import com.psoft.wallet.controller.AtivoClienteController;
+import com.psoft.wallet.model.Cliente;
+import com.psoft.wallet.model.TipoPlano;
+import com.psoft.wallet.service.AtivoService;
+import com.psoft.wallet.service.ClienteService;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+public class AtivoClienteControllerBenchmark {
+
+    @Param({"NORMAL", "PREMIUM"})
+    public TipoPlano plano;
+
+    @Param({"1000"})
+    public int quantidadeAtivos;
+
+    private ConfigurableApplicationContext contexto;
+    private AtivoClienteController controller;
+
+    @Setup(Level.Trial)
+    public void iniciar() {
+        contexto = ContextoBenchmark.iniciar();
+        ContextoBenchmark.criarAtivos(contexto.getBean(AtivoService.class), quantidadeAtivos);
+
+        Cliente cliente = new Cliente();
+        cliente.setNomeCompleto("Cliente benchmark");
+        cliente.setEnderecoPrincipal("Rua das Flores, 123");
+        cliente.setPlano(plano);
+        cliente.setCodigoAcesso("123456");
+        contexto.getBean(ClienteService.class).criarCliente(cliente);
+
+        controller = contexto.getBean(AtivoClienteController.class);
+    }
+
+    @TearDown(Level.Trial)
+    public void encerrar() {
+        contexto.close();
+    }
+
+    @Benchmark
+    public MockHttpServletResponse listarAtivosDisponiveisParaPlano() throws IOException {
+        // Requisição sem If-None-Match: sempre escreve a lista do plano
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        ServletWebRequest request = new ServletWebRequest(new MockHttpServletRequest("GET", "/cliente/ativos/disponiveis"),
+            response);
+        controller.listarAtivosDisponiveisParaPlano("123456", request, response);
+        return response;
+    }
+}
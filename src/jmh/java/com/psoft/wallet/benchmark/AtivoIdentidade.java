@@ -0,0 +1,37 @@
+package com.psoft.wallet.benchmark;
+
+import jakarta.persistence.*;
+import com.psoft.wallet.model.TipoAtivo;
+
+// Cópia de Ativo com o id gerado por IDENTITY, como era antes das sequências.
+// Serve só de referência para o InsercaoEmMassaBenchmark
+@Entity
+@Table(name = "ativo_identidade")
+public class AtivoIdentidade {
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(unique = true)
+    private String nome;
+
+    @Enumerated(EnumType.STRING)
+    private TipoAtivo tipo;
+
+    private String descricao;
+    private boolean disponivel;
+    private long valorAtual;
+
+    @Version
+    private Long versao;
+
+    protected AtivoIdentidade() {
+    }
+
+    AtivoIdentidade(String nome, TipoAtivo tipo, long valorAtual) {
+        this.nome = nome;
+        this.tipo = tipo;
+        this.disponivel = true;
+        this.valorAtual = valorAtual;
+    }
+}
@@ -0,0 +1,62 @@
+package com.psoft.wallet.benchmark;
+
+import org.openjdk.jmh.annotations.*;
+import org.springframework.context.ConfigurableApplicationContext;
+import com.psoft.wallet.dto.AtivoResumo;
+import com.psoft.wallet.model.Ativo;
+import com.psoft.wallet.model.Preco;
+import com.psoft.wallet.model.TipoAtivo;
+import com.psoft.wallet.service.AtivoService;
+
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+public class AtivoServiceBenchmark {
+    private static final long VALOR_ALTO = Preco.de("110.00");
+    private static final long VALOR_BAIXO = Preco.de("100.00");
+
+    @Param({"true", "false"})
+    public boolean escritaAssincrona;
+
+    @Param({"1000"})
+    public int quantidadeAtivos;
+
+    private ConfigurableApplicationContext contexto;
+    private AtivoService service;
+    private Long idAtivo;
+    private boolean alternar;
+    private long sequencia;
+
+    @Setup(Level.Trial)
+    public void iniciar() {
+        contexto = ContextoBenchmark.iniciar("wallet.precos.escrita-assincrona=" + escritaAssincrona);
+        service = contexto.getBean(AtivoService.class);
+        ContextoBenchmark.criarAtivos(service, quantidadeAtivos);
+        idAtivo = service.listarTodosAtivos().get(0).id();
+    }
+
+    @TearDown(Level.Trial)
+    public void encerrar() {
+        contexto.close();
+    }
+
+    @Benchmark
+    public AtivoResumo atualizarValor() {
+        // Alterna entre dois valores com 10% de diferença: toda cotação é aceita
+        alternar = !alternar;
+        return service.atualizarValor(idAtivo, alternar ? VALOR_ALTO : VALOR_BAIXO);
+    }
+
+    @Benchmark
+    public Ativo criarAtivo() {
+        // Inclui a verificação de nome duplicado feita antes de salvar
+        Ativo ativo = new Ativo();
+        ativo.setNome("Novo ativo " + sequencia++);
+        ativo.setTipo(TipoAtivo.ACAO);
+        ativo.setDisponivel(true);
+        ativo.setValorAtual(Preco.de("50.00"));
+        return service.criarAtivo(ativo);
+    }
+}
@@ -0,0 +1,81 @@
+package com.psoft.wallet.benchmark;
+
+import org.openjdk.jmh.annotations.*;
+import org.springframework.context.ConfigurableApplicationContext;
+import com.psoft.wallet.dto.AtivoResumo;
+import com.psoft.wallet.model.Preco;
+import com.psoft.wallet.service.AtivoService;
+import com.psoft.wallet.service.VariacaoInvalidaException;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+// Escalabilidade das atualizações de cotação com várias threads. Para ver a curva por número
+// de núcleos, rode com -PjmhThreads=1, 2, 4, ... (o padrão usa todos os processadores)
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Threads(Threads.MAX)
+public class AtualizacaoConcorrenteBenchmark {
+
+    @Param({"true", "false"})
+    public boolean escritaAssincrona;
+
+    @Param({"1024"})
+    public int quantidadeAtivos;
+
+    private ConfigurableApplicationContext contexto;
+    private AtivoService service;
+    private List<Long> ids;
+    private final AtomicInteger proximo = new AtomicInteger();
+
+    @State(Scope.Thread)
+    public static class Cotacoes {
+        Long id;
+        boolean alta;
+
+        @Setup(Level.Trial)
+        public void escolherAtivo(AtualizacaoConcorrenteBenchmark benchmark) {
+            // Cada thread fica com um ativo próprio
+            id = benchmark.ids.get(benchmark.proximo.getAndIncrement() % benchmark.ids.size());
+        }
+
+        private static final long VALOR_ALTO = Preco.de("110.00");
+        private static final long VALOR_BAIXO = Preco.de("100.00");
+
+        long proximoValor() {
+            alta = !alta;
+            return alta ? VALOR_ALTO : VALOR_BAIXO;
+        }
+    }
+
+    @Setup(Level.Trial)
+    public void iniciar() {
+        contexto = ContextoBenchmark.iniciar("wallet.precos.escrita-assincrona=" + escritaAssincrona);
+        service = contexto.getBean(AtivoService.class);
+        ContextoBenchmark.criarAtivos(service, quantidadeAtivos);
+        ids = service.listarTodosAtivos().stream().map(AtivoResumo::id).toList();
+    }
+
+    @TearDown(Level.Trial)
+    public void encerrar() {
+        contexto.close();
+    }
+
+    @Benchmark
+    public AtivoResumo ativosDistintos(Cotacoes cotacoes) {
+        // Sem disputa: deve escalar com o número de threads
+        return service.atualizarValor(cotacoes.id, cotacoes.proximoValor());
+    }
+
+    @Benchmark
+    public AtivoResumo mesmoAtivo(Cotacoes cotacoes) {
+        // Todas as threads no mesmo ativo: as atualizações são serializadas pela trava do ativo
+        try {
+            return service.atualizarValor(ids.get(0), cotacoes.proximoValor());
+        } catch (VariacaoInvalidaException ex) {
+            return null;
+        }
+    }
+}
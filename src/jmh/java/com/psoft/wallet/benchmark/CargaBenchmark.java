@@ -0,0 +1,48 @@
+package com.psoft.wallet.benchmark;
+
+import org.openjdk.jmh.annotations.*;
+import org.springframework.context.ConfigurableApplicationContext;
+import com.psoft.wallet.carga.EspecificacaoCarga;
+import com.psoft.wallet.carga.GeradorDados;
+import com.psoft.wallet.carga.ResultadoCarga;
+
+import java.util.concurrent.TimeUnit;
+
+// Tempo para chegar a um estado grande e conhecido: a carga sintética substitui todos os
+// clientes e ativos, inclusive a recarga do catálogo. Outros benchmarks podem partir do mesmo
+// estado subindo o contexto com wallet.carga.habilitada=true
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 1)
+@Measurement(iterations = 3)
+public class CargaBenchmark {
+
+    @Param({"100000", "1000000"})
+    public int quantidadeClientes;
+
+    @Param({"100000"})
+    public int quantidadeAtivos;
+
+    @Param({"1", "4"})
+    public int threads;
+
+    private ConfigurableApplicationContext contexto;
+    private GeradorDados gerador;
+
+    @Setup(Level.Trial)
+    public void iniciar() {
+        contexto = ContextoBenchmark.iniciar("wallet.carga.threads=" + threads);
+        gerador = contexto.getBean(GeradorDados.class);
+    }
+
+    @TearDown(Level.Trial)
+    public void encerrar() {
+        contexto.close();
+    }
+
+    @Benchmark
+    public ResultadoCarga carregar() {
+        return gerador.carregar(new EspecificacaoCarga(42, quantidadeClientes, 0.2, quantidadeAtivos, 0.9));
+    }
+}
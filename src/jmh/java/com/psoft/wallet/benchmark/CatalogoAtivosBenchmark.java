@@ -0,0 +1,103 @@
+package com.psoft.wallet.benchmark;
+
+import org.openjdk.jmh.annotations.*;
+import org.springframework.context.ConfigurableApplicationContext;
+import com.psoft.wallet.dto.AtivoResumo;
+import com.psoft.wallet.model.Ativo;
+import com.psoft.wallet.model.Preco;
+import com.psoft.wallet.model.TipoPlano;
+import com.psoft.wallet.service.AtivoService;
+import com.psoft.wallet.service.CatalogoAtivos;
+import com.psoft.wallet.service.VisaoPlano;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+// Cotações aplicadas direto no catálogo, sem o banco, com 1 a 8 threads. Cada thread cota um
+// ativo próprio, então a vazão total deve crescer com o número de threads: nenhuma cotação
+// passa pelo lock de escrita nem remonta as visões dos planos
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+public class CatalogoAtivosBenchmark {
+    private static final long VALOR_ALTO = Preco.de("110.00");
+    private static final long VALOR_BAIXO = Preco.de("100.00");
+
+    @Param({"1024"})
+    public int quantidadeAtivos;
+
+    private ConfigurableApplicationContext contexto;
+    private CatalogoAtivos catalogo;
+    private List<Long> ids;
+    private final AtomicInteger proximo = new AtomicInteger();
+
+    @State(Scope.Thread)
+    public static class Cotacoes {
+        Long id;
+        boolean alta;
+
+        @Setup(Level.Trial)
+        public void escolherAtivo(CatalogoAtivosBenchmark benchmark) {
+            id = benchmark.ids.get(benchmark.proximo.getAndIncrement() % benchmark.ids.size());
+        }
+
+        long proximoValor() {
+            alta = !alta;
+            return alta ? VALOR_ALTO : VALOR_BAIXO;
+        }
+    }
+
+    @Setup(Level.Trial)
+    public void iniciar() {
+        contexto = ContextoBenchmark.iniciar();
+        AtivoService service = contexto.getBean(AtivoService.class);
+        ContextoBenchmark.criarAtivos(service, quantidadeAtivos);
+        catalogo = contexto.getBean(CatalogoAtivos.class);
+        ids = service.listarTodosAtivos().stream().map(AtivoResumo::id).toList();
+    }
+
+    @TearDown(Level.Trial)
+    public void encerrar() {
+        contexto.close();
+    }
+
+    @Benchmark
+    @Threads(1)
+    public Ativo cotar1Thread(Cotacoes cotacoes) {
+        return catalogo.atualizarValor(cotacoes.id, cotacoes.proximoValor());
+    }
+
+    @Benchmark
+    @Threads(2)
+    public Ativo cotar2Threads(Cotacoes cotacoes) {
+        return catalogo.atualizarValor(cotacoes.id, cotacoes.proximoValor());
+    }
+
+    @Benchmark
+    @Threads(4)
+    public Ativo cotar4Threads(Cotacoes cotacoes) {
+        return catalogo.atualizarValor(cotacoes.id, cotacoes.proximoValor());
+    }
+
+    @Benchmark
+    @Threads(8)
+    public Ativo cotar8Threads(Cotacoes cotacoes) {
+        return catalogo.atualizarValor(cotacoes.id, cotacoes.proximoValor());
+    }
+
+    @Benchmark
+    @Group("cotacoesELeituras")
+    @GroupThreads(4)
+    public Ativo cotarDuranteLeituras(Cotacoes cotacoes) {
+        return catalogo.atualizarValor(cotacoes.id, cotacoes.proximoValor());
+    }
+
+    @Benchmark
+    @Group("cotacoesELeituras")
+    @GroupThreads(4)
+    public VisaoPlano lerVisaoDuranteCotacoes() {
+        // A visão é remontada no máximo uma vez por leitura, e não a cada cotação
+        return catalogo.visaoDoPlano(TipoPlano.PREMIUM);
+    }
+}
@@ -0,0 +1,75 @@
+package com.psoft.wallet.benchmark;
+
+import org.openjdk.jmh.annotations.*;
+import org.springframework.context.ConfigurableApplicationContext;
+import com.psoft.wallet.dto.ClienteResumo;
+import com.psoft.wallet.model.Cliente;
+import com.psoft.wallet.model.TipoPlano;
+import com.psoft.wallet.service.ClienteService;
+import com.psoft.wallet.service.Sessao;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+public class ClienteServiceBenchmark {
+
+    @Param({"10000"})
+    public int quantidadeClientes;
+
+    private ConfigurableApplicationContext contexto;
+    private ClienteService service;
+    private String[] autorizacoes;
+    private int proximo;
+
+    @Setup(Level.Trial)
+    public void iniciar() {
+        contexto = ContextoBenchmark.iniciar();
+        service = contexto.getBean(ClienteService.class);
+        for (int i = 0; i < quantidadeClientes; i++) {
+            Cliente cliente = new Cliente();
+            cliente.setNomeCompleto("Cliente " + i);
+            cliente.setEnderecoPrincipal("Endereço " + i);
+            cliente.setPlano(i % 2 == 0 ? TipoPlano.NORMAL : TipoPlano.PREMIUM);
+            cliente.setCodigoAcesso(codigo(i));
+            service.criarCliente(cliente);
+        }
+        autorizacoes = new String[quantidadeClientes];
+        for (int i = 0; i < quantidadeClientes; i++) {
+            autorizacoes[i] = "Bearer " + service.iniciarSessao(codigo(i)).token();
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void encerrar() {
+        contexto.close();
+    }
+
+    @Benchmark
+    public List<ClienteResumo> listarAtivosPorPlano() {
+        // Percorre todos os códigos: mede a validação com o cache de acessos aquecido
+        proximo = (proximo + 1) % quantidadeClientes;
+        return service.listarAtivosPorPlano(codigo(proximo));
+    }
+
+    @Benchmark
+    public List<ClienteResumo> listarAtivosPorPlanoSemCache() {
+        // Mesma validação indo sempre ao banco, pelo índice do código de acesso
+        service.limparCacheAcessos();
+        proximo = (proximo + 1) % quantidadeClientes;
+        return service.listarAtivosPorPlano(codigo(proximo));
+    }
+
+    @Benchmark
+    public Sessao autenticarComToken() {
+        // Mesma autorização pelo token de sessão: só a verificação do HMAC, sem cache nem banco
+        proximo = (proximo + 1) % quantidadeClientes;
+        return service.autenticar(autorizacoes[proximo], null);
+    }
+
+    private static String codigo(int i) {
+        return String.format("%06d", i);
+    }
+}
@@ -0,0 +1,63 @@
+package com.psoft.wallet.benchmark;
+
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import com.psoft.wallet.PsoftWalletApplication;
+import com.psoft.wallet.model.Ativo;
+import com.psoft.wallet.model.Preco;
+import com.psoft.wallet.model.TipoAtivo;
+import com.psoft.wallet.service.AtivoService;
+
+import java.util.HashMap;
+import java.util.Map;
+
+// Sobe a aplicação com o H2 em memória para os benchmarks
+final class ContextoBenchmark {
+
+    private ContextoBenchmark() {
+    }
+
+    static ConfigurableApplicationContext iniciar(String... propriedades) {
+        return construir(WebApplicationType.NONE, propriedades);
+    }
+
+    // Com o Tomcat em uma porta livre, para os testes de carga por HTTP
+    static ConfigurableApplicationContext iniciarServidor(String... propriedades) {
+        return construir(WebApplicationType.SERVLET, propriedades);
+    }
+
+    static int porta(ConfigurableApplicationContext contexto) {
+        return contexto.getEnvironment().getRequiredProperty("local.server.port", Integer.class);
+    }
+
+    private static ConfigurableApplicationContext construir(WebApplicationType tipo, String... propriedades) {
+        Map<String, Object> padrao = new HashMap<>();
+        padrao.put("server.port", "0");
+        padrao.put("spring.datasource.url", "jdbc:h2:mem:benchmark;DB_CLOSE_DELAY=-1");
+        padrao.put("spring.jpa.hibernate.ddl-auto", "create-drop");
+        padrao.put("spring.jpa.show-sql", "false");
+        padrao.put("spring.h2.console.enabled", "false");
+        padrao.put("logging.level.root", "WARN");
+
+        return new SpringApplicationBuilder(PsoftWalletApplication.class)
+            .web(tipo)
+            .properties(padrao)
+            .properties(propriedades)
+            .run();
+    }
+
+    // Ativos disponíveis distribuídos igualmente entre os tipos
+    static void criarAtivos(AtivoService service, int quantidade) {
+        TipoAtivo[] tipos = TipoAtivo.values();
+        for (int i = 0; i < quantidade; i++) {
+            Ativo ativo = new Ativo();
+            ativo.setNome("Ativo " + i);
+            ativo.setTipo(tipos[i % tipos.length]);
+            ativo.setDescricao("Ativo gerado para benchmark");
+            ativo.setDisponivel(true);
+            ativo.setValorAtual(Preco.de("100.00"));
+            service.criarAtivo(ativo);
+        }
+    }
+}
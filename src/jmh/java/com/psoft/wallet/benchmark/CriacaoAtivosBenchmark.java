@@ -0,0 +1,65 @@
+package com.psoft.wallet.benchmark;
+
+import org.openjdk.jmh.annotations.*;
+import org.springframework.context.ConfigurableApplicationContext;
+import com.psoft.wallet.model.Ativo;
+import com.psoft.wallet.model.Preco;
+import com.psoft.wallet.model.TipoAtivo;
+import com.psoft.wallet.service.AtivoService;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+// Criação de ativos em massa, por várias threads. A verificação de nome duplicado é feita
+// em memória, então o custo por ativo não deve crescer com o tamanho da tabela
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Threads(4)
+public class CriacaoAtivosBenchmark {
+    private static final int ATIVOS_POR_LOTE = 100;
+
+    @Param({"0", "10000"})
+    public int ativosExistentes;
+
+    private ConfigurableApplicationContext contexto;
+    private AtivoService service;
+    private final AtomicInteger proximaThread = new AtomicInteger();
+
+    @State(Scope.Thread)
+    public static class Nomes {
+        String prefixo;
+        long sequencia;
+
+        @Setup(Level.Trial)
+        public void iniciar(CriacaoAtivosBenchmark benchmark) {
+            // Nomes diferentes por thread: nenhuma criação é recusada
+            prefixo = "Lote " + benchmark.proximaThread.getAndIncrement() + " ativo ";
+        }
+    }
+
+    @Setup(Level.Trial)
+    public void iniciar() {
+        contexto = ContextoBenchmark.iniciar();
+        service = contexto.getBean(AtivoService.class);
+        ContextoBenchmark.criarAtivos(service, ativosExistentes);
+    }
+
+    @TearDown(Level.Trial)
+    public void encerrar() {
+        contexto.close();
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(ATIVOS_POR_LOTE)
+    public void criarAtivos(Nomes nomes) {
+        for (int i = 0; i < ATIVOS_POR_LOTE; i++) {
+            Ativo ativo = new Ativo();
+            ativo.setNome(nomes.prefixo + nomes.sequencia++);
+            ativo.setTipo(TipoAtivo.ACAO);
+            ativo.setDisponivel(true);
+            ativo.setValorAtual(Preco.de("50.00"));
+            service.criarAtivo(ativo);
+        }
+    }
+}
@@ -0,0 +1,111 @@
+package com.psoft.wallet.benchmark;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.context.ConfigurableApplicationContext;
+import com.psoft.wallet.dto.AtivoResumo;
+import com.psoft.wallet.service.AtivoService;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+// Vazão do feed de cotações por TCP: tempo para a aplicação ler, conflar, validar e gravar
+// quantidadeCotacoes cotações enviadas de uma vez. Cotações por segundo = quantidade / tempo
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+public class IngestaoCotacoesBenchmark {
+
+    @Param({"1000000"})
+    public int quantidadeCotacoes;
+
+    @Param({"1024"})
+    public int quantidadeAtivos;
+
+    @Param({"true", "false"})
+    public boolean escritaAssincrona;
+
+    private ConfigurableApplicationContext contexto;
+    private MeterRegistry meterRegistry;
+    private int porta;
+    private byte[] feed;
+
+    @Setup(Level.Trial)
+    public void iniciar() throws IOException {
+        porta = portaLivre();
+        contexto = ContextoBenchmark.iniciar(
+            "wallet.precos.escrita-assincrona=" + escritaAssincrona,
+            "wallet.ingestao.habilitada=true",
+            "wallet.ingestao.fonte=socket",
+            "wallet.ingestao.porta=" + porta);
+        AtivoService service = contexto.getBean(AtivoService.class);
+        meterRegistry = contexto.getBean(MeterRegistry.class);
+        ContextoBenchmark.criarAtivos(service, quantidadeAtivos);
+        List<Long> ids = service.listarTodosAtivos().stream().map(AtivoResumo::id).toList();
+
+        // Percorre os ativos em rodízio, alternando entre dois valores com 10% de diferença
+        ByteArrayOutputStream linhas = new ByteArrayOutputStream(quantidadeCotacoes * 16);
+        for (int i = 0; i < quantidadeCotacoes; i++) {
+            Long id = ids.get(i % ids.size());
+            String valor = (i / ids.size()) % 2 == 0 ? "110.00" : "100.00";
+            linhas.writeBytes((id + ";" + valor + "\n").getBytes(StandardCharsets.US_ASCII));
+        }
+        feed = linhas.toByteArray();
+    }
+
+    @TearDown(Level.Trial)
+    public void encerrar() {
+        contexto.close();
+    }
+
+    @Benchmark
+    public double enviarFeed() throws IOException {
+        double antes = processadas();
+        try (Socket conexao = conectar(); OutputStream saida = conexao.getOutputStream()) {
+            saida.write(feed);
+        }
+        // Aceitas, recusadas, confladas e inválidas: toda cotação cai em um dos contadores
+        double esperadas = antes + quantidadeCotacoes;
+        while (processadas() < esperadas) {
+            LockSupport.parkNanos(100_000);
+        }
+        return processadas();
+    }
+
+    private double processadas() {
+        return meterRegistry.get("wallet.ingestao.cotacoes").counters().stream()
+            .mapToDouble(Counter::count)
+            .sum();
+    }
+
+    private Socket conectar() throws IOException {
+        // O servidor do feed sobe numa thread própria: tenta até ele aceitar conexões
+        for (int tentativa = 0; ; tentativa++) {
+            try {
+                return new Socket(InetAddress.getLoopbackAddress(), porta);
+            } catch (IOException ex) {
+                if (tentativa == 50) {
+                    throw ex;
+                }
+                LockSupport.parkNanos(TimeUnit.MILLISECONDS.toNanos(100));
+            }
+        }
+    }
+
+    private static int portaLivre() throws IOException {
+        try (ServerSocket socket = new ServerSocket(0, 1, InetAddress.getLoopbackAddress())) {
+            return socket.getLocalPort();
+        }
+    }
+}
@@ -0,0 +1,83 @@
+package com.psoft.wallet.benchmark;
+
+import jakarta.persistence.EntityManager;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.transaction.support.TransactionTemplate;
+import com.psoft.wallet.model.Ativo;
+import com.psoft.wallet.model.Preco;
+import com.psoft.wallet.model.TipoAtivo;
+
+import java.util.concurrent.TimeUnit;
+
+// Inserção de 100 mil ativos em uma transação, com o id gerado por IDENTITY (um INSERT por vez)
+// e pela sequência com alocação em blocos (INSERTs em lotes de hibernate.jdbc.batch_size).
+// Com batchSize = 1, a sequência mostra o ganho de não buscar o id a cada INSERT, sem o lote
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2)
+@Measurement(iterations = 5)
+public class InsercaoEmMassaBenchmark {
+
+    @Param({"IDENTIDADE", "SEQUENCIA"})
+    public String geracaoId;
+
+    @Param({"1", "50"})
+    public int batchSize;
+
+    @Param({"100000"})
+    public int quantidade;
+
+    private ConfigurableApplicationContext contexto;
+    private EntityManager entityManager;
+    private TransactionTemplate transactionTemplate;
+    private long sequencia;
+
+    @Setup(Level.Trial)
+    public void iniciar() {
+        contexto = ContextoBenchmark.iniciar("spring.jpa.properties.hibernate.jdbc.batch_size=" + batchSize);
+        entityManager = contexto.getBean(EntityManager.class);
+        transactionTemplate = contexto.getBean(TransactionTemplate.class);
+    }
+
+    @Setup(Level.Iteration)
+    public void limpar() {
+        transactionTemplate.executeWithoutResult(status -> {
+            entityManager.createQuery("DELETE FROM Ativo").executeUpdate();
+            entityManager.createQuery("DELETE FROM AtivoIdentidade").executeUpdate();
+        });
+    }
+
+    @TearDown(Level.Trial)
+    public void encerrar() {
+        contexto.close();
+    }
+
+    @Benchmark
+    public void inserir() {
+        boolean identidade = "IDENTIDADE".equals(geracaoId);
+        transactionTemplate.executeWithoutResult(status -> {
+            for (int i = 0; i < quantidade; i++) {
+                String nome = "Ativo " + sequencia++;
+                entityManager.persist(identidade
+                    ? new AtivoIdentidade(nome, TipoAtivo.ACAO, Preco.de("50.00"))
+                    : novoAtivo(nome));
+                // Libera a memória do contexto de persistência a cada lote
+                if ((i + 1) % batchSize == 0) {
+                    entityManager.flush();
+                    entityManager.clear();
+                }
+            }
+        });
+    }
+
+    private static Ativo novoAtivo(String nome) {
+        Ativo ativo = new Ativo();
+        ativo.setNome(nome);
+        ativo.setTipo(TipoAtivo.ACAO);
+        ativo.setDisponivel(true);
+        ativo.setValorAtual(Preco.de("50.00"));
+        return ativo;
+    }
+}
@@ -0,0 +1,75 @@
+package com.psoft.wallet.benchmark;
+
+import org.openjdk.jmh.annotations.*;
+import org.springframework.context.ConfigurableApplicationContext;
+import com.psoft.wallet.model.Cliente;
+import com.psoft.wallet.model.TipoPlano;
+import com.psoft.wallet.service.ClienteService;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+// Teste de carga por HTTP comparando o Tomcat com threads de plataforma e com threads virtuais.
+// A concorrência (@Threads) passa do limite padrão de 200 threads do Tomcat de propósito.
+// Sem o cache de segundo nível, para que cada requisição espere pelo banco
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Threads(400)
+public class ModoThreadsBenchmark {
+    private static final String SEM_CACHE_SEGUNDO_NIVEL =
+        "spring.jpa.properties.hibernate.cache.use_second_level_cache=false";
+
+    @Param({"plataforma", "virtual"})
+    public String modo;
+
+    @Param({"1000"})
+    public int quantidadeClientes;
+
+    private ConfigurableApplicationContext contexto;
+    private HttpClient http;
+    private String base;
+    private long primeiroId;
+
+    @Setup(Level.Trial)
+    public void iniciar() {
+        contexto = "virtual".equals(modo)
+            ? ContextoBenchmark.iniciarServidor(SEM_CACHE_SEGUNDO_NIVEL, "spring.profiles.active=virtual")
+            : ContextoBenchmark.iniciarServidor(SEM_CACHE_SEGUNDO_NIVEL);
+
+        ClienteService service = contexto.getBean(ClienteService.class);
+        for (int i = 0; i < quantidadeClientes; i++) {
+            Cliente cliente = new Cliente();
+            cliente.setNomeCompleto("Cliente " + i);
+            cliente.setEnderecoPrincipal("Endereço " + i);
+            cliente.setPlano(TipoPlano.NORMAL);
+            cliente.setCodigoAcesso(String.format("%06d", i));
+            Cliente salvo = service.criarCliente(cliente);
+            if (i == 0) {
+                primeiroId = salvo.getId();
+            }
+        }
+
+        http = HttpClient.newBuilder().version(HttpClient.Version.HTTP_1_1).build();
+        base = "http://localhost:" + ContextoBenchmark.porta(contexto);
+    }
+
+    @TearDown(Level.Trial)
+    public void encerrar() {
+        http.close();
+        contexto.close();
+    }
+
+    @Benchmark
+    public int buscarClientePorId() throws IOException, InterruptedException {
+        // Cada requisição faz uma consulta JPA ao H2: o cache de segundo nível está desligado
+        long id = primeiroId + ThreadLocalRandom.current().nextInt(quantidadeClientes);
+        HttpRequest request = HttpRequest.newBuilder(URI.create(base + "/clientes/" + id)).GET().build();
+        return http.send(request, HttpResponse.BodyHandlers.discarding()).statusCode();
+    }
+}
@@ -0,0 +1,74 @@
+package com.psoft.wallet.benchmark;
+
+import org.openjdk.jmh.annotations.*;
+import com.psoft.wallet.model.Ativo;
+import com.psoft.wallet.model.Preco;
+import com.psoft.wallet.model.TipoAtivo;
+import com.psoft.wallet.service.TabelaPrecos;
+
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+// Leitura e troca do preço de um ativo: na TabelaPrecos (um long por id) e no caminho antigo,
+// buscando o Ativo no mapa do catálogo e trocando por uma cópia com o valor novo.
+// Rode com -prof gc para ver a alocação por operação: a tabela não aloca
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class TabelaPrecosBenchmark {
+
+    @Param({"1000", "100000"})
+    public int quantidadeAtivos;
+
+    private final TabelaPrecos tabela = new TabelaPrecos();
+    private final ConcurrentSkipListMap<Long, Ativo> mapa = new ConcurrentSkipListMap<>();
+
+    @Setup(Level.Trial)
+    public void iniciar() {
+        long valor = Preco.de("100.00");
+        for (long id = 1; id <= quantidadeAtivos; id++) {
+            Ativo ativo = new Ativo();
+            ativo.setId(id);
+            ativo.setNome("Ativo " + id);
+            ativo.setTipo(TipoAtivo.ACAO);
+            ativo.setDisponivel(true);
+            ativo.setValorAtual(valor);
+            mapa.put(id, ativo);
+            tabela.gravar(id, valor);
+        }
+    }
+
+    private long sortearId() {
+        return ThreadLocalRandom.current().nextLong(1, quantidadeAtivos + 1);
+    }
+
+    @Benchmark
+    public long lerDaTabela() {
+        return tabela.ler(sortearId());
+    }
+
+    @Benchmark
+    public long lerDoMapa() {
+        return mapa.get(sortearId()).getValorAtual();
+    }
+
+    @Benchmark
+    public void gravarNaTabela() {
+        long id = sortearId();
+        tabela.gravar(id, tabela.ler(id) + 1);
+    }
+
+    @Benchmark
+    public void gravarNoMapa() {
+        long id = sortearId();
+        Ativo atual = mapa.get(id);
+        Ativo copia = new Ativo();
+        copia.setId(atual.getId());
+        copia.setNome(atual.getNome());
+        copia.setTipo(atual.getTipo());
+        copia.setDisponivel(atual.isDisponivel());
+        copia.setValorAtual(atual.getValorAtual() + 1);
+        mapa.put(id, copia);
+    }
+}
@@ -2,8 +2,10 @@ package com.psoft.wallet;
 
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
+import org.springframework.scheduling.annotation.EnableScheduling;
 
 @SpringBootApplication
+@EnableScheduling
 public class PsoftWalletApplication {
     public static void main(String[] args) {
         SpringApplication.run(PsoftWalletApplication.class, args);
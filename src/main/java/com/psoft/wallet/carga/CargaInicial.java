@@ -0,0 +1,57 @@
+package com.psoft.wallet.carga;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+/**
+ * Carga sintética na subida da aplicação, habilitada com {@code wallet.carga.habilitada=true}
+ * (ex.: {@code ./gradlew bootRun --args='--wallet.carga.habilitada=true --wallet.carga.clientes=1000000'}).
+ * Com {@code wallet.carga.arquivo-codigos}, grava os códigos de acesso gerados, um por linha,
+ * no formato do arquivo de leituras do replay.
+ */
+@Slf4j
+@Component
+@ConditionalOnProperty(name = "wallet.carga.habilitada", havingValue = "true")
+class CargaInicial implements ApplicationRunner {
+    private final GeradorDados gerador;
+    private final EspecificacaoCarga especificacao;
+    private final String arquivoCodigos;
+
+    CargaInicial(GeradorDados gerador,
+                 @Value("${wallet.carga.semente:42}") long semente,
+                 @Value("${wallet.carga.clientes:100000}") int clientes,
+                 @Value("${wallet.carga.fracao-premium:0.2}") double fracaoPremium,
+                 @Value("${wallet.carga.ativos:10000}") int ativos,
+                 @Value("${wallet.carga.fracao-disponiveis:0.9}") double fracaoDisponiveis,
+                 @Value("${wallet.carga.arquivo-codigos:}") String arquivoCodigos) {
+        this.gerador = gerador;
+        this.especificacao = new EspecificacaoCarga(semente, clientes, fracaoPremium, ativos, fracaoDisponiveis);
+        this.arquivoCodigos = arquivoCodigos;
+    }
+
+    @Override
+    public void run(ApplicationArguments args) throws IOException {
+        gerador.carregar(especificacao);
+        if (arquivoCodigos.isBlank()) {
+            return;
+        }
+
+        Path arquivo = Path.of(arquivoCodigos);
+        try (BufferedWriter saida = Files.newBufferedWriter(arquivo)) {
+            for (int i = 0; i < especificacao.clientes(); i++) {
+                saida.write(GeradorDados.codigoAcesso(especificacao.semente(), i));
+                saida.newLine();
+            }
+        }
+        log.info("Códigos de acesso da carga gravados em {}", arquivo.toAbsolutePath());
+    }
+}
@@ -0,0 +1,34 @@
+package com.psoft.wallet.carga;
+
+/**
+ * Tamanho e proporções da massa de dados gerada pelo {@link GeradorDados}. A mesma
+ * especificação (inclusive a semente) gera sempre as mesmas linhas.
+ *
+ * @param semente           base de todos os sorteios
+ * @param clientes          quantidade de clientes; no máximo {@link #MAXIMO_CLIENTES}
+ * @param fracaoPremium     fração dos clientes no plano PREMIUM, de 0 a 1
+ * @param ativos            quantidade de ativos, distribuídos igualmente entre os tipos
+ * @param fracaoDisponiveis fração dos ativos disponíveis, de 0 a 1
+ */
+public record EspecificacaoCarga(long semente,
+                                 int clientes,
+                                 double fracaoPremium,
+                                 int ativos,
+                                 double fracaoDisponiveis) {
+
+    // Cada cliente tem um código de acesso único de 6 dígitos: há só um milhão deles
+    public static final int MAXIMO_CLIENTES = 1_000_000;
+
+    public EspecificacaoCarga {
+        if (clientes < 0 || clientes > MAXIMO_CLIENTES) {
+            throw new IllegalArgumentException("Quantidade de clientes deve estar entre 0 e " + MAXIMO_CLIENTES
+                + " (um código de acesso de 6 dígitos por cliente)");
+        }
+        if (ativos < 0) {
+            throw new IllegalArgumentException("Quantidade de ativos não pode ser negativa");
+        }
+        if (fracaoPremium < 0 || fracaoPremium > 1 || fracaoDisponiveis < 0 || fracaoDisponiveis > 1) {
+            throw new IllegalArgumentException("Frações devem estar entre 0 e 1");
+        }
+    }
+}
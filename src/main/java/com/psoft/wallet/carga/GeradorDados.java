@@ -0,0 +1,265 @@
+package com.psoft.wallet.carga;
+
+import jakarta.persistence.EntityManagerFactory;
+import lombok.extern.slf4j.Slf4j;
+import org.hibernate.SessionFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.BatchPreparedStatementSetter;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+import com.psoft.wallet.model.Preco;
+import com.psoft.wallet.model.TipoAtivo;
+import com.psoft.wallet.model.TipoPlano;
+import com.psoft.wallet.service.CatalogoAtivos;
+import com.psoft.wallet.service.ClienteService;
+
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Substitui clientes e ativos por uma massa de dados sintética, para benchmarks e testes de
+ * carga. As linhas são inseridas por JDBC, em lotes, por várias threads, sem passar pelas
+ * entidades; cada linha depende só da semente e da sua posição, então a mesma
+ * {@link EspecificacaoCarga} gera sempre os mesmos dados, em qualquer ordem de inserção.
+ *
+ * <p>Os ids saem das sequências do Hibernate (ver {@link #reservarIds}), e ao fim da carga o
+ * cache de segundo nível, o catálogo e o cache de acessos são recarregados.
+ */
+@Slf4j
+@Component
+public class GeradorDados {
+    // Mesmo allocationSize das sequências de Ativo e Cliente
+    private static final int ALOCACAO_SEQUENCIA = 50;
+    private static final int TOTAL_CODIGOS = 1_000_000;
+
+    private static final String INSERIR_CLIENTE =
+        "INSERT INTO cliente (id, nome_completo, endereco_principal, plano, codigo_acesso) VALUES (?, ?, ?, ?, ?)";
+    private static final String INSERIR_ATIVO =
+        "INSERT INTO ativo (id, nome, tipo, descricao, disponivel, valor_atual, versao) VALUES (?, ?, ?, ?, ?, ?, 0)";
+
+    private static final String[] NOMES = {"Ana", "Bruno", "Carla", "Daniel", "Eduarda", "Felipe", "Gabriela",
+        "Heitor", "Isabela", "João", "Larissa", "Marcos", "Natália", "Otávio", "Patrícia", "Rafael", "Sofia",
+        "Thiago", "Valentina", "Vinícius"};
+    private static final String[] SOBRENOMES = {"Silva", "Santos", "Oliveira", "Souza", "Rodrigues", "Ferreira",
+        "Alves", "Pereira", "Lima", "Gomes", "Costa", "Ribeiro", "Martins", "Carvalho", "Almeida", "Lopes",
+        "Soares", "Fernandes", "Vieira", "Barbosa"};
+    private static final String[] RUAS = {"Rua das Flores", "Avenida Brasil", "Rua Sete de Setembro",
+        "Avenida Getúlio Vargas", "Rua Floriano Peixoto", "Rua da Areia", "Avenida Paulista", "Rua XV de Novembro"};
+    private static final String[] CIDADES = {"Campina Grande - PB", "João Pessoa - PB", "Recife - PE",
+        "Natal - RN", "Fortaleza - CE", "Salvador - BA", "São Paulo - SP", "Belo Horizonte - MG"};
+    private static final String[] TITULOS = {"Selic", "Prefixado", "IPCA+", "Renda+", "Educa+"};
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final SessionFactory sessionFactory;
+    private final CatalogoAtivos catalogo;
+    private final ClienteService clienteService;
+    private final int tamanhoBloco;
+    private final int threads;
+
+    public GeradorDados(JdbcTemplate jdbcTemplate,
+                        TransactionTemplate transactionTemplate,
+                        EntityManagerFactory entityManagerFactory,
+                        CatalogoAtivos catalogo,
+                        ClienteService clienteService,
+                        @Value("${wallet.carga.tamanho-bloco:5000}") int tamanhoBloco,
+                        @Value("${wallet.carga.threads:4}") int threads) {
+        if (tamanhoBloco <= 0 || threads <= 0) {
+            throw new IllegalArgumentException("Tamanho do bloco e threads da carga devem ser positivos");
+        }
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = transactionTemplate;
+        this.sessionFactory = entityManagerFactory.unwrap(SessionFactory.class);
+        this.catalogo = catalogo;
+        this.clienteService = clienteService;
+        this.tamanhoBloco = tamanhoBloco;
+        this.threads = threads;
+    }
+
+    // Apaga os clientes e ativos existentes e grava os da especificação
+    public ResultadoCarga carregar(EspecificacaoCarga especificacao) {
+        long inicio = System.nanoTime();
+        jdbcTemplate.execute("TRUNCATE TABLE cliente");
+        jdbcTemplate.execute("TRUNCATE TABLE ativo");
+
+        long primeiroCliente = reservarIds("cliente_seq", especificacao.clientes());
+        long primeiroAtivo = reservarIds("ativo_seq", especificacao.ativos());
+        emBlocos(especificacao.clientes(), (de, ate) ->
+            inserir(INSERIR_CLIENTE, de, ate, (comando, i) -> preencherCliente(comando, especificacao, primeiroCliente, i)));
+        emBlocos(especificacao.ativos(), (de, ate) ->
+            inserir(INSERIR_ATIVO, de, ate, (comando, i) -> preencherAtivo(comando, especificacao, primeiroAtivo, i)));
+
+        // As linhas foram gravadas por fora do Hibernate e dos caches da aplicação
+        sessionFactory.getCache().evictAllRegions();
+        catalogo.recarregar();
+        clienteService.limparCacheAcessos();
+
+        ResultadoCarga resultado = new ResultadoCarga(primeiroCliente, especificacao.clientes(),
+            primeiroAtivo, especificacao.ativos(), Duration.ofNanos(System.nanoTime() - inicio));
+        log.info("Carga sintética: {} clientes e {} ativos em {} ms", resultado.clientes(), resultado.ativos(),
+            resultado.duracao().toMillis());
+        return resultado;
+    }
+
+    // Código de acesso do cliente na posição "indice" (a partir de 0): uma permutação dos
+    // números de 000000 a 999999 escolhida pela semente, então não há repetição
+    public static String codigoAcesso(long semente, int indice) {
+        if (indice < 0 || indice >= TOTAL_CODIGOS) {
+            throw new IllegalArgumentException("Posição de cliente inválida: " + indice);
+        }
+        SplittableRandom sorteio = new SplittableRandom(semente);
+        long multiplicador = sorteio.nextInt(1, TOTAL_CODIGOS);
+        // Primo com 10^6 (nem par nem múltiplo de 5): i -> a*i + b (mod 10^6) é uma bijeção
+        while (multiplicador % 2 == 0 || multiplicador % 5 == 0) {
+            multiplicador++;
+        }
+        long deslocamento = sorteio.nextInt(TOTAL_CODIGOS);
+        int codigo = (int) ((multiplicador * indice + deslocamento) % TOTAL_CODIGOS);
+
+        char[] digitos = new char[6];
+        for (int i = digitos.length - 1; i >= 0; i--) {
+            digitos[i] = (char) ('0' + codigo % 10);
+            codigo /= 10;
+        }
+        return new String(digitos);
+    }
+
+    // Reserva "quantidade" ids contíguos na sequência e devolve o primeiro. O Hibernate já pode
+    // ter recebido blocos até o valor atual; a sequência é reiniciada depois do último id
+    // reservado, de modo que o próximo bloco do Hibernate começa logo após a carga
+    private long reservarIds(String sequencia, int quantidade) {
+        // SQL padrão, aceito pelo H2
+        Long atual = jdbcTemplate.queryForObject("SELECT NEXT VALUE FOR " + sequencia, Long.class);
+        long primeiro = atual + 1;
+        jdbcTemplate.execute("ALTER SEQUENCE " + sequencia + " RESTART WITH "
+            + (primeiro + quantidade + ALOCACAO_SEQUENCIA - 1));
+        return primeiro;
+    }
+
+    @FunctionalInterface
+    private interface Bloco {
+        void inserir(int de, int ate);
+    }
+
+    @FunctionalInterface
+    private interface Linha {
+        void preencher(PreparedStatement comando, int indice) throws SQLException;
+    }
+
+    // Blocos de tamanhoBloco linhas, um por transação, distribuídos entre as threads
+    private void emBlocos(int quantidade, Bloco bloco) {
+        List<Future<?>> futuros = new ArrayList<>();
+        try (ExecutorService executor = Executors.newFixedThreadPool(threads)) {
+            for (int de = 0; de < quantidade; de += tamanhoBloco) {
+                int inicio = de;
+                int fim = Math.min(quantidade, de + tamanhoBloco);
+                futuros.add(executor.submit(() ->
+                    transactionTemplate.executeWithoutResult(status -> bloco.inserir(inicio, fim))));
+            }
+            for (Future<?> futuro : futuros) {
+                futuro.get();
+            }
+        } catch (ExecutionException ex) {
+            if (ex.getCause() instanceof RuntimeException causa) {
+                throw causa;
+            }
+            throw new IllegalStateException("Falha na carga sintética", ex.getCause());
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Carga sintética interrompida", ex);
+        }
+    }
+
+    private void inserir(String sql, int de, int ate, Linha linha) {
+        jdbcTemplate.batchUpdate(sql, new BatchPreparedStatementSetter() {
+            @Override
+            public void setValues(PreparedStatement comando, int i) throws SQLException {
+                linha.preencher(comando, de + i);
+            }
+
+            @Override
+            public int getBatchSize() {
+                return ate - de;
+            }
+        });
+    }
+
+    private static void preencherCliente(PreparedStatement comando, EspecificacaoCarga especificacao,
+                                         long primeiroId, int indice) throws SQLException {
+        SplittableRandom sorteio = sorteioDaLinha(especificacao.semente(), indice);
+        String nome = escolher(sorteio, NOMES) + " " + escolher(sorteio, SOBRENOMES) + " " + escolher(sorteio, SOBRENOMES);
+        String endereco = escolher(sorteio, RUAS) + ", " + (1 + sorteio.nextInt(3000)) + " - " + escolher(sorteio, CIDADES);
+        TipoPlano plano = sorteio.nextDouble() < especificacao.fracaoPremium() ? TipoPlano.PREMIUM : TipoPlano.NORMAL;
+
+        comando.setLong(1, primeiroId + indice);
+        comando.setString(2, nome);
+        comando.setString(3, endereco);
+        comando.setString(4, plano.name());
+        comando.setString(5, codigoAcesso(especificacao.semente(), indice));
+    }
+
+    private static void preencherAtivo(PreparedStatement comando, EspecificacaoCarga especificacao,
+                                       long primeiroId, int indice) throws SQLException {
+        // Outra sequência de sorteios que a dos clientes, para a mesma posição
+        SplittableRandom sorteio = sorteioDaLinha(~especificacao.semente(), indice);
+        TipoAtivo tipo = TipoAtivo.values()[indice % TipoAtivo.values().length];
+        // O código da posição torna o nome único
+        String codigo = codigoNegociacao(indice);
+        String nome;
+        String descricao;
+        long valor;
+        switch (tipo) {
+            case TESOURO_DIRETO -> {
+                nome = "Tesouro " + escolher(sorteio, TITULOS) + " " + (2027 + sorteio.nextInt(30)) + " " + codigo;
+                descricao = "Título público federal";
+                valor = sorteio.nextLong(Preco.de("100"), Preco.de("15000"));
+            }
+            case ACAO -> {
+                nome = codigo + (3 + sorteio.nextInt(2));
+                descricao = "Ação negociada na bolsa";
+                valor = sorteio.nextLong(Preco.de("1"), Preco.de("300"));
+            }
+            case CRIPTOMOEDA -> {
+                nome = "Cripto " + codigo;
+                descricao = "Criptomoeda";
+                valor = sorteio.nextLong(1, Preco.de("400000"));
+            }
+            default -> throw new IllegalStateException("Tipo de ativo sem gerador: " + tipo);
+        }
+
+        comando.setLong(1, primeiroId + indice);
+        comando.setString(2, nome);
+        comando.setString(3, tipo.name());
+        comando.setString(4, descricao);
+        comando.setBoolean(5, sorteio.nextDouble() < especificacao.fracaoDisponiveis());
+        comando.setLong(6, valor);
+    }
+
+    private static SplittableRandom sorteioDaLinha(long semente, int indice) {
+        return new SplittableRandom(semente * 0x9E3779B97F4A7C15L + indice);
+    }
+
+    private static String escolher(SplittableRandom sorteio, String[] opcoes) {
+        return opcoes[sorteio.nextInt(opcoes.length)];
+    }
+
+    // Letras em base 26, com no mínimo quatro (AAAA, AAAB, ...): uma por posição
+    private static String codigoNegociacao(int indice) {
+        StringBuilder letras = new StringBuilder();
+        int resto = indice;
+        do {
+            letras.append((char) ('A' + resto % 26));
+            resto /= 26;
+        } while (resto > 0 || letras.length() < 4);
+        return letras.reverse().toString();
+    }
+}
@@ -0,0 +1,9 @@
+package com.psoft.wallet.carga;
+
+import java.time.Duration;
+
+// Ids gerados são contíguos: de primeiroId até primeiroId + quantidade - 1
+public record ResultadoCarga(long primeiroIdCliente, int clientes,
+                             long primeiroIdAtivo, int ativos,
+                             Duration duracao) {
+}
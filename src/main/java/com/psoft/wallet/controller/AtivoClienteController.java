@@ -1,48 +1,54 @@
 package com.psoft.wallet.controller;
 
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
 import org.springframework.web.bind.annotation.*;
-import com.psoft.wallet.model.Ativo;
-import com.psoft.wallet.model.TipoAtivo;
+import org.springframework.web.context.request.WebRequest;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
 import com.psoft.wallet.service.AtivoService;
 import com.psoft.wallet.service.ClienteService;
-import com.psoft.wallet.model.Cliente;
+import com.psoft.wallet.service.Sessao;
+import com.psoft.wallet.service.TransmissaoAtivos;
+import com.psoft.wallet.service.VisaoPlano;
 
-import java.util.List;
-import java.util.stream.Collectors;
+import java.io.IOException;
 
 @RestController
 @RequestMapping("/cliente/ativos")
 public class AtivoClienteController {
     private final AtivoService ativoService;
     private final ClienteService clienteService;
+    private final TransmissaoAtivos transmissao;
+    private final RespostasCatalogo respostas;
 
-    public AtivoClienteController(AtivoService ativoService, ClienteService clienteService) {
+    public AtivoClienteController(AtivoService ativoService, ClienteService clienteService,
+                                  TransmissaoAtivos transmissao, RespostasCatalogo respostas) {
         this.ativoService = ativoService;
         this.clienteService = clienteService;
+        this.transmissao = transmissao;
+        this.respostas = respostas;
     }
 
     @GetMapping("/disponiveis")
-    public List<Ativo> listarAtivosDisponiveisParaPlano(@RequestParam String codigoAcesso) {
-        // Validar código de acesso e obter cliente
-        List<Cliente> clientes = clienteService.listarAtivosPorPlano(codigoAcesso);
-        if (clientes.isEmpty()) {
-            throw new RuntimeException("Cliente não encontrado");
-        }
+    public void listarAtivosDisponiveisParaPlano(@RequestHeader(value = HttpHeaders.AUTHORIZATION, required = false) String autorizacao,
+                                                 @RequestParam(required = false) String codigoAcesso, WebRequest request,
+                                                 HttpServletResponse response) throws IOException {
+        // Plano do token de sessão, sem ir ao banco; sem token, validar código de acesso
+        Sessao cliente = clienteService.autenticar(autorizacao, codigoAcesso);
         
-        Cliente cliente = clientes.get(0);
-        
-        // Obter todos os ativos disponíveis
-        List<Ativo> todosAtivos = ativoService.listarAtivosDisponiveis();
-        
-        // Filtrar por plano
-        if (cliente.getPlano() == com.psoft.wallet.model.TipoPlano.NORMAL) {
-            // Clientes Normal veem apenas Tesouro Direto
-            return todosAtivos.stream()
-                .filter(ativo -> ativo.getTipo() == TipoAtivo.TESOURO_DIRETO)
-                .collect(Collectors.toList());
-        } else {
-            // Clientes Premium veem todos os tipos
-            return todosAtivos;
-        }
+        // Visão já filtrada por plano, mantida pelo catálogo
+        VisaoPlano visao = ativoService.listarAtivosDisponiveisParaPlano(cliente.plano());
+
+        // Responder 304 se o cliente já tem esta versão da visão; senão, os bytes já serializados dela
+        respostas.responder(request, response, "plano-" + visao.plano().name(), visao.etag(), visao::ativos);
+    }
+
+    @GetMapping(value = "/eventos", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public SseEmitter acompanharAtivos(@RequestHeader(value = HttpHeaders.AUTHORIZATION, required = false) String autorizacao,
+                                       @RequestParam(required = false) String codigoAcesso) {
+        // Mudanças de cotação e disponibilidade dos ativos permitidos pelo plano do cliente
+        Sessao cliente = clienteService.autenticar(autorizacao, codigoAcesso);
+        return transmissao.inscrever(cliente.plano());
     }
-} 
\ No newline at end of file
+}
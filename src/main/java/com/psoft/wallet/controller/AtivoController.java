@@ -1,18 +1,45 @@
 package com.psoft.wallet.controller;
 
+import com.fasterxml.jackson.databind.MappingIterator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.http.HttpHeaders;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+import com.psoft.wallet.dto.AtivoResumo;
+import com.psoft.wallet.dto.AtualizacaoValor;
+import com.psoft.wallet.dto.Cotacao;
+import com.psoft.wallet.dto.Pagina;
+import com.psoft.wallet.dto.ProgressoImportacao;
+import com.psoft.wallet.dto.ResultadoAtualizacaoValor;
 import com.psoft.wallet.model.Ativo;
+import com.psoft.wallet.model.Preco;
 import com.psoft.wallet.service.AtivoService;
+import com.psoft.wallet.service.VersaoCatalogo;
 
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.math.BigDecimal;
+import java.time.Instant;
 import java.util.List;
+import java.util.function.Supplier;
 
 @RestController
 @RequestMapping("/ativos")
 public class AtivoController {
     private final AtivoService service;
+    private final ObjectMapper objectMapper;
+    private final LeitorImportacao leitorImportacao;
+    private final RespostasCatalogo respostas;
 
-    public AtivoController(AtivoService service) {
+    public AtivoController(AtivoService service, ObjectMapper objectMapper, LeitorImportacao leitorImportacao,
+                           RespostasCatalogo respostas) {
         this.service = service;
+        this.objectMapper = objectMapper;
+        this.leitorImportacao = leitorImportacao;
+        this.respostas = respostas;
     }
 
     @PostMapping
@@ -20,9 +47,41 @@ public class AtivoController {
         return service.criarAtivo(ativo);
     }
 
+    @PostMapping(value = "/importacao", consumes = {LeitorImportacao.NDJSON, LeitorImportacao.CSV},
+                 produces = LeitorImportacao.NDJSON)
+    public StreamingResponseBody importarAtivos(@RequestHeader(HttpHeaders.CONTENT_TYPE) String tipoConteudo,
+                                                InputStream entrada) {
+        // Responde com uma linha por registro recusado e uma linha de progresso a cada bloco gravado
+        return saida -> {
+            try (MappingIterator<Ativo> registros = leitorImportacao.ler(entrada, tipoConteudo, Ativo.class)) {
+                service.importarAtivos(registros, evento -> {
+                    try {
+                        saida.write(objectMapper.writeValueAsBytes(evento));
+                        saida.write('\n');
+                        if (evento instanceof ProgressoImportacao) {
+                            saida.flush();
+                        }
+                    } catch (IOException ex) {
+                        throw new UncheckedIOException(ex);
+                    }
+                });
+            }
+        };
+    }
+
+    @GetMapping("/{id}")
+    public Ativo buscarAtivo(@PathVariable Long id) {
+        return service.buscarAtivo(id);
+    }
+
     @PatchMapping("/{id}/valor")
-    public Ativo atualizarValor(@PathVariable Long id, @RequestParam float novoValor) {
-        return service.atualizarValor(id, novoValor);
+    public AtivoResumo atualizarValor(@PathVariable Long id, @RequestParam BigDecimal novoValor) {
+        return service.atualizarValor(id, Preco.de(novoValor));
+    }
+
+    @PatchMapping("/valores")
+    public List<ResultadoAtualizacaoValor> atualizarValores(@RequestBody List<AtualizacaoValor> atualizacoes) {
+        return service.atualizarValores(atualizacoes);
     }
 
     @DeleteMapping("/{id}")
@@ -31,22 +90,71 @@ public class AtivoController {
     }
 
     @PatchMapping("/{id}/status")
-    public Ativo ativarDesativarAtivo(@PathVariable Long id, @RequestParam boolean ativo) {
+    public AtivoResumo ativarDesativarAtivo(@PathVariable Long id, @RequestParam boolean ativo) {
         return service.ativarDesativarAtivo(id, ativo);
     }
 
     @GetMapping
-    public List<Ativo> listarTodosAtivos() {
-        return service.listarTodosAtivos();
+    public void listarTodosAtivos(WebRequest request, HttpServletResponse response) throws IOException {
+        responderLista("todos", request, response, service::listarTodosAtivos);
     }
 
     @GetMapping("/disponiveis")
-    public List<Ativo> listarAtivosDisponiveis() {
-        return service.listarAtivosDisponiveis();
+    public void listarAtivosDisponiveis(WebRequest request, HttpServletResponse response) throws IOException {
+        responderLista("disponiveis", request, response, service::listarAtivosDisponiveis);
     }
 
     @GetMapping("/indisponiveis")
-    public List<Ativo> listarAtivosIndisponiveis() {
-        return service.listarAtivosIndisponiveis();
+    public void listarAtivosIndisponiveis(WebRequest request, HttpServletResponse response) throws IOException {
+        responderLista("indisponiveis", request, response, service::listarAtivosIndisponiveis);
+    }
+
+    @GetMapping(params = "limite")
+    public Pagina<AtivoResumo> listarTodosAtivosPaginado(@RequestParam(defaultValue = "0") long apos,
+                                                   @RequestParam int limite) {
+        return service.listarTodosAtivos(apos, limite);
+    }
+
+    @GetMapping(value = "/disponiveis", params = "limite")
+    public Pagina<AtivoResumo> listarAtivosDisponiveisPaginado(@RequestParam(defaultValue = "0") long apos,
+                                                         @RequestParam int limite) {
+        return service.listarAtivosDisponiveis(apos, limite);
+    }
+
+    @GetMapping(value = "/indisponiveis", params = "limite")
+    public Pagina<AtivoResumo> listarAtivosIndisponiveisPaginado(@RequestParam(defaultValue = "0") long apos,
+                                                           @RequestParam int limite) {
+        return service.listarAtivosIndisponiveis(apos, limite);
+    }
+
+    @GetMapping("/{id}/historico")
+    public List<Cotacao> listarHistorico(@PathVariable Long id,
+                                         @RequestParam(required = false) Instant de,
+                                         @RequestParam(required = false) Instant ate) {
+        return service.listarHistorico(id, de, ate);
+    }
+
+    @GetMapping(value = "/{id}/historico", produces = "application/x-ndjson")
+    public StreamingResponseBody transmitirHistorico(@PathVariable Long id,
+                                                     @RequestParam(required = false) Instant de,
+                                                     @RequestParam(required = false) Instant ate) {
+        // Valida antes de começar a resposta, para que um ativo inexistente ainda resulte em 404
+        service.validarConsultaHistorico(id, de, ate);
+        return saida -> service.percorrerHistorico(id, de, ate, cotacao -> {
+            try {
+                saida.write(objectMapper.writeValueAsBytes(cotacao));
+                saida.write('\n');
+            } catch (IOException ex) {
+                throw new UncheckedIOException(ex);
+            }
+        });
+    }
+
+    // Responde 304 se o cliente já tem a versão atual do catálogo, sem montar nem serializar a lista;
+    // senão, reaproveita a serialização desta versão, se já houver
+    private void responderLista(String chave, WebRequest request, HttpServletResponse response,
+                                Supplier<List<AtivoResumo>> lista) throws IOException {
+        VersaoCatalogo versao = service.versaoCatalogo();
+        respostas.responder(request, response, chave, versao.etag(), lista);
     }
-}
\ No newline at end of file
+}
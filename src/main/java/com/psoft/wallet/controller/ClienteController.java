@@ -1,53 +1,116 @@
 package com.psoft.wallet.controller;
 
+import com.fasterxml.jackson.databind.MappingIterator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.http.HttpHeaders;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+import com.psoft.wallet.dto.ClienteResumo;
+import com.psoft.wallet.dto.Pagina;
+import com.psoft.wallet.dto.ProgressoImportacao;
+import com.psoft.wallet.dto.SessaoCliente;
 import com.psoft.wallet.model.Cliente;
 import com.psoft.wallet.service.ClienteService;
 
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
 import java.util.List;
 
 @RestController
 @RequestMapping("/clientes")
 public class ClienteController {
     private final ClienteService service;
+    private final ObjectMapper objectMapper;
+    private final LeitorImportacao leitorImportacao;
 
-    public ClienteController(ClienteService service) {
+    public ClienteController(ClienteService service, ObjectMapper objectMapper, LeitorImportacao leitorImportacao) {
         this.service = service;
+        this.objectMapper = objectMapper;
+        this.leitorImportacao = leitorImportacao;
     }
 
     @PostMapping
-    public Cliente criarCliente(@RequestBody Cliente cliente) {
-        Cliente clienteSalvo = service.criarCliente(cliente);
+    public ClienteResumo criarCliente(@RequestBody Cliente cliente) {
         // Não retornar código de acesso
-        clienteSalvo.setCodigoAcesso(null);
-        return clienteSalvo;
+        return ClienteResumo.de(service.criarCliente(cliente));
     }
 
     @GetMapping
-    public List<Cliente> listarTodosClientes() {
+    public List<ClienteResumo> listarTodosClientes() {
         return service.listarTodosClientes();
     }
 
+    @GetMapping(params = "limite")
+    public Pagina<ClienteResumo> listarClientesPaginado(@RequestParam(defaultValue = "0") long apos,
+                                                        @RequestParam int limite) {
+        return service.listarClientes(apos, limite);
+    }
+
+    @GetMapping(produces = "application/x-ndjson")
+    public StreamingResponseBody transmitirClientes() {
+        // Uma linha JSON por cliente, escrita à medida que as linhas chegam do banco
+        return saida -> service.transmitirClientes(cliente -> {
+            try {
+                saida.write(objectMapper.writeValueAsBytes(cliente));
+                saida.write('\n');
+            } catch (IOException ex) {
+                throw new UncheckedIOException(ex);
+            }
+        });
+    }
+
+    @PostMapping(value = "/importacao", consumes = {LeitorImportacao.NDJSON, LeitorImportacao.CSV},
+                 produces = LeitorImportacao.NDJSON)
+    public StreamingResponseBody importarClientes(@RequestHeader(HttpHeaders.CONTENT_TYPE) String tipoConteudo,
+                                                  InputStream entrada) {
+        // Responde com uma linha por registro recusado e uma linha de progresso a cada bloco gravado
+        return saida -> {
+            try (MappingIterator<Cliente> registros = leitorImportacao.ler(entrada, tipoConteudo, Cliente.class)) {
+                service.importarClientes(registros, evento -> {
+                    try {
+                        saida.write(objectMapper.writeValueAsBytes(evento));
+                        saida.write('\n');
+                        if (evento instanceof ProgressoImportacao) {
+                            saida.flush();
+                        }
+                    } catch (IOException ex) {
+                        throw new UncheckedIOException(ex);
+                    }
+                });
+            }
+        };
+    }
+
     @GetMapping("/{id}")
-    public Cliente buscarClientePorId(@PathVariable Long id) {
+    public ClienteResumo buscarClientePorId(@PathVariable Long id) {
         return service.buscarClientePorId(id);
     }
 
+    // Autorização pelo token de sessão (Authorization: Bearer) ou, sem ele, pelo código de acesso
     @PutMapping("/{id}")
-    public Cliente editarCliente(@PathVariable Long id, 
-                                @RequestBody Cliente cliente,
-                                @RequestParam String codigoAcesso) {
-        return service.editarCliente(id, cliente, codigoAcesso);
+    public ClienteResumo editarCliente(@PathVariable Long id, 
+                                       @RequestBody Cliente cliente,
+                                       @RequestHeader(value = HttpHeaders.AUTHORIZATION, required = false) String autorizacao,
+                                       @RequestParam(required = false) String codigoAcesso) {
+        return service.editarCliente(id, cliente, autorizacao, codigoAcesso);
     }
 
     @DeleteMapping("/{id}")
     public void removerCliente(@PathVariable Long id, 
-                              @RequestParam String codigoAcesso) {
-        service.removerCliente(id, codigoAcesso);
+                              @RequestHeader(value = HttpHeaders.AUTHORIZATION, required = false) String autorizacao,
+                              @RequestParam(required = false) String codigoAcesso) {
+        service.removerCliente(id, autorizacao, codigoAcesso);
+    }
+
+    @PostMapping("/login")
+    public SessaoCliente iniciarSessao(@RequestParam String codigoAcesso) {
+        // Código verificado uma vez; aceito também no corpo, como formulário
+        return service.iniciarSessao(codigoAcesso);
     }
 
     @GetMapping("/validar-acesso")
-    public List<Cliente> validarAcesso(@RequestParam String codigoAcesso) {
+    public List<ClienteResumo> validarAcesso(@RequestParam String codigoAcesso) {
         return service.listarAtivosPorPlano(codigoAcesso);
     }
 } 
\ No newline at end of file
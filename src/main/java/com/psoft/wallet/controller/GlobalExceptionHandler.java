@@ -1,5 +1,6 @@
 package com.psoft.wallet.controller;
 
+import io.micrometer.core.instrument.MeterRegistry;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.ControllerAdvice;
@@ -8,6 +9,7 @@ import com.psoft.wallet.service.VariacaoInvalidaException;
 import com.psoft.wallet.service.AtivoNaoEncontradoException;
 import com.psoft.wallet.service.AtivoNomeDuplicadoException;
 import com.psoft.wallet.service.ClienteNaoEncontradoException;
+import com.psoft.wallet.service.CodigoAcessoDuplicadoException;
 import com.psoft.wallet.service.CodigoAcessoIncorretoException;
 import com.psoft.wallet.service.OperacaoNaoAutorizadaException;
 
@@ -16,9 +18,15 @@ import java.util.Map;
 
 @ControllerAdvice
 public class GlobalExceptionHandler {
+    private final MeterRegistry meterRegistry;
+
+    public GlobalExceptionHandler(MeterRegistry meterRegistry) {
+        this.meterRegistry = meterRegistry;
+    }
 
     @ExceptionHandler(VariacaoInvalidaException.class)
     public ResponseEntity<Map<String, Object>> handleVariacaoInvalidaException(VariacaoInvalidaException ex) {
+        contar(ex);
         Map<String, Object> errorResponse = new HashMap<>();
         errorResponse.put("status", 400);
         errorResponse.put("error", "Bad Request");
@@ -29,6 +37,7 @@ public class GlobalExceptionHandler {
 
     @ExceptionHandler(AtivoNaoEncontradoException.class)
     public ResponseEntity<Map<String, Object>> handleAtivoNaoEncontradoException(AtivoNaoEncontradoException ex) {
+        contar(ex);
         Map<String, Object> errorResponse = new HashMap<>();
         errorResponse.put("status", 404);
         errorResponse.put("error", "Not Found");
@@ -39,6 +48,7 @@ public class GlobalExceptionHandler {
 
     @ExceptionHandler(AtivoNomeDuplicadoException.class)
     public ResponseEntity<Map<String, Object>> handleAtivoNomeDuplicadoException(AtivoNomeDuplicadoException ex) {
+        contar(ex);
         Map<String, Object> errorResponse = new HashMap<>();
         errorResponse.put("status", 409);
         errorResponse.put("error", "Conflict");
@@ -49,6 +59,7 @@ public class GlobalExceptionHandler {
 
     @ExceptionHandler(ClienteNaoEncontradoException.class)
     public ResponseEntity<Map<String, Object>> handleClienteNaoEncontradoException(ClienteNaoEncontradoException ex) {
+        contar(ex);
         Map<String, Object> errorResponse = new HashMap<>();
         errorResponse.put("status", 404);
         errorResponse.put("error", "Not Found");
@@ -59,6 +70,7 @@ public class GlobalExceptionHandler {
 
     @ExceptionHandler(CodigoAcessoIncorretoException.class)
     public ResponseEntity<Map<String, Object>> handleCodigoAcessoIncorretoException(CodigoAcessoIncorretoException ex) {
+        contar(ex);
         Map<String, Object> errorResponse = new HashMap<>();
         errorResponse.put("status", 401);
         errorResponse.put("error", "Unauthorized");
@@ -67,8 +79,20 @@ public class GlobalExceptionHandler {
         return ResponseEntity.status(HttpStatus.UNAUTHORIZED).body(errorResponse);
     }
 
+    @ExceptionHandler(CodigoAcessoDuplicadoException.class)
+    public ResponseEntity<Map<String, Object>> handleCodigoAcessoDuplicadoException(CodigoAcessoDuplicadoException ex) {
+        contar(ex);
+        Map<String, Object> errorResponse = new HashMap<>();
+        errorResponse.put("status", 409);
+        errorResponse.put("error", "Conflict");
+        errorResponse.put("message", ex.getMessage());
+        
+        return ResponseEntity.status(HttpStatus.CONFLICT).body(errorResponse);
+    }
+
     @ExceptionHandler(OperacaoNaoAutorizadaException.class)
     public ResponseEntity<Map<String, Object>> handleOperacaoNaoAutorizadaException(OperacaoNaoAutorizadaException ex) {
+        contar(ex);
         Map<String, Object> errorResponse = new HashMap<>();
         errorResponse.put("status", 403);
         errorResponse.put("error", "Forbidden");
@@ -79,6 +103,7 @@ public class GlobalExceptionHandler {
 
     @ExceptionHandler(IllegalArgumentException.class)
     public ResponseEntity<Map<String, Object>> handleIllegalArgumentException(IllegalArgumentException ex) {
+        contar(ex);
         Map<String, Object> errorResponse = new HashMap<>();
         errorResponse.put("status", 400);
         errorResponse.put("error", "Bad Request");
@@ -86,4 +111,9 @@ public class GlobalExceptionHandler {
         
         return ResponseEntity.badRequest().body(errorResponse);
     }
+
+    // Um contador por tipo de exceção tratada (ex.: variações abaixo de 1%, códigos de acesso incorretos)
+    private void contar(Exception ex) {
+        meterRegistry.counter("wallet.erros", "excecao", ex.getClass().getSimpleName()).increment();
+    }
 } 
\ No newline at end of file
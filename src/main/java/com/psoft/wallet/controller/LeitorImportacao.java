@@ -0,0 +1,38 @@
+package com.psoft.wallet.controller;
+
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.MappingIterator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.dataformat.csv.CsvMapper;
+import com.fasterxml.jackson.dataformat.csv.CsvSchema;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.InputStream;
+
+// Lê o corpo de uma importação registro a registro, em NDJSON ou em CSV com cabeçalho
+@Component
+class LeitorImportacao {
+    static final String NDJSON = "application/x-ndjson";
+    static final String CSV = "text/csv";
+
+    private final ObjectMapper objectMapper;
+    private final CsvMapper csvMapper = CsvMapper.builder()
+        .disable(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES)
+        .build();
+
+    LeitorImportacao(ObjectMapper objectMapper) {
+        this.objectMapper = objectMapper;
+    }
+
+    <T> MappingIterator<T> ler(InputStream entrada, String tipoConteudo, Class<T> tipo) throws IOException {
+        if (MediaType.parseMediaType(tipoConteudo).isCompatibleWith(MediaType.parseMediaType(CSV))) {
+            // As colunas são associadas aos campos pelo nome, na primeira linha
+            return csvMapper.readerFor(tipo)
+                .with(CsvSchema.emptySchema().withHeader())
+                .readValues(entrada);
+        }
+        return objectMapper.readerFor(tipo).readValues(entrada);
+    }
+}
@@ -0,0 +1,113 @@
+package com.psoft.wallet.controller;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Component;
+import org.springframework.web.context.request.WebRequest;
+import com.psoft.wallet.dto.AtivoResumo;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.function.Supplier;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Respostas das listas do catálogo, serializadas uma vez por versão. Cada lista tem uma chave
+ * e guarda apenas a serialização da versão mais recente pedida; uma escrita no catálogo muda a
+ * versão e a próxima requisição serializa de novo. Em um acerto, os bytes são copiados direto
+ * para a resposta, já comprimidos em gzip quando o cliente aceita.
+ */
+@Component
+class RespostasCatalogo {
+    private static final String GZIP = "gzip";
+
+    private final ObjectMapper objectMapper;
+    private final boolean gzipHabilitado;
+    private final ConcurrentMap<String, Serializada> serializadas = new ConcurrentHashMap<>();
+
+    RespostasCatalogo(ObjectMapper objectMapper,
+                      @Value("${wallet.catalogo.respostas-gzip:true}") boolean gzipHabilitado) {
+        this.objectMapper = objectMapper;
+        this.gzipHabilitado = gzipHabilitado;
+    }
+
+    /**
+     * Responde 304 se o cliente já tem esta versão; senão escreve a lista em JSON. Só a ETag
+     * decide: o Last-Modified não é enviado, porque tem precisão de um segundo e duas versões
+     * no mesmo segundo teriam a mesma data.
+     *
+     * @param ativos chamado só quando a versão ainda não foi serializada
+     */
+    void responder(WebRequest request, HttpServletResponse response, String chave,
+                   String etag, Supplier<List<AtivoResumo>> ativos) throws IOException {
+        boolean gzip = gzipHabilitado && aceitaGzip(request);
+        response.addHeader(HttpHeaders.VARY, HttpHeaders.ACCEPT_ENCODING);
+        // Cada codificação é uma representação distinta e precisa de uma ETag forte própria
+        if (request.checkNotModified(gzip ? etag + "-" + GZIP : etag)) {
+            return;
+        }
+
+        Serializada serializada = serializadas.get(chave);
+        if (serializada == null || !serializada.etag.equals(etag)) {
+            serializada = new Serializada(etag, objectMapper.writeValueAsBytes(ativos.get()));
+            serializadas.put(chave, serializada);
+        }
+
+        byte[] corpo = gzip ? serializada.gzip() : serializada.json;
+        response.setContentType(MediaType.APPLICATION_JSON_VALUE);
+        if (gzip) {
+            response.setHeader(HttpHeaders.CONTENT_ENCODING, GZIP);
+        }
+        response.setContentLength(corpo.length);
+        response.getOutputStream().write(corpo);
+    }
+
+    // Accept-Encoding com gzip, a menos que venha com q=0
+    private static boolean aceitaGzip(WebRequest request) {
+        String aceitas = request.getHeader(HttpHeaders.ACCEPT_ENCODING);
+        if (aceitas == null) {
+            return false;
+        }
+        for (String codificacao : aceitas.split(",")) {
+            String[] partes = codificacao.split(";");
+            if (partes[0].trim().equalsIgnoreCase(GZIP)) {
+                return partes.length == 1 || !partes[1].trim().matches("q=0(\\.0*)?");
+            }
+        }
+        return false;
+    }
+
+    private static final class Serializada {
+        private final String etag;
+        private final byte[] json;
+        // Comprimido só quando algum cliente pede gzip
+        private volatile byte[] gzip;
+
+        private Serializada(String etag, byte[] json) {
+            this.etag = etag;
+            this.json = json;
+        }
+
+        private byte[] gzip() {
+            byte[] comprimido = gzip;
+            if (comprimido == null) {
+                ByteArrayOutputStream saida = new ByteArrayOutputStream(json.length / 4 + 64);
+                try (GZIPOutputStream compressor = new GZIPOutputStream(saida)) {
+                    compressor.write(json);
+                } catch (IOException ex) {
+                    throw new UncheckedIOException(ex);
+                }
+                comprimido = saida.toByteArray();
+                gzip = comprimido;
+            }
+            return comprimido;
+        }
+    }
+}
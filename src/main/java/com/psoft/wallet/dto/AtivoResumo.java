@@ -0,0 +1,14 @@
+package com.psoft.wallet.dto;
+
+import com.psoft.wallet.model.Ativo;
+import com.psoft.wallet.model.Preco;
+import com.psoft.wallet.model.TipoAtivo;
+
+// Dados de listagem do ativo: sem a descrição, que só é enviada por GET /ativos/{id}
+public record AtivoResumo(Long id, String nome, TipoAtivo tipo, boolean disponivel, @Preco.Json long valorAtual) {
+
+    public static AtivoResumo de(Ativo ativo) {
+        return new AtivoResumo(ativo.getId(), ativo.getNome(), ativo.getTipo(),
+            ativo.isDisponivel(), ativo.getValorAtual());
+    }
+}
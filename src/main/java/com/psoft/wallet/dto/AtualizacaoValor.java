@@ -0,0 +1,6 @@
+package com.psoft.wallet.dto;
+
+import com.psoft.wallet.model.Preco;
+
+public record AtualizacaoValor(Long id, @Preco.Json long novoValor) {
+}
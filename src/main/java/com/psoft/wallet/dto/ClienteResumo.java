@@ -0,0 +1,13 @@
+package com.psoft.wallet.dto;
+
+import com.psoft.wallet.model.Cliente;
+import com.psoft.wallet.model.TipoPlano;
+
+// Dados públicos do cliente: nunca inclui o código de acesso
+public record ClienteResumo(Long id, String nomeCompleto, String enderecoPrincipal, TipoPlano plano) {
+
+    public static ClienteResumo de(Cliente cliente) {
+        return new ClienteResumo(cliente.getId(), cliente.getNomeCompleto(),
+            cliente.getEnderecoPrincipal(), cliente.getPlano());
+    }
+}
@@ -0,0 +1,9 @@
+package com.psoft.wallet.dto;
+
+import com.psoft.wallet.model.Preco;
+
+import java.time.Instant;
+
+// Um ponto do histórico de preços de um ativo
+public record Cotacao(Instant instante, @Preco.Json long valor) {
+}
@@ -0,0 +1,5 @@
+package com.psoft.wallet.dto;
+
+// Registro recusado em uma importação; "registro" conta a partir de 1, sem o cabeçalho do CSV
+public record ErroImportacao(long registro, String mensagem) {
+}
@@ -0,0 +1,20 @@
+package com.psoft.wallet.dto;
+
+import java.util.List;
+import java.util.function.Function;
+
+// Página de uma listagem paginada por id: a próxima página começa após proximoCursor
+public record Pagina<T>(List<T> itens, Long proximoCursor) {
+    public static final int LIMITE_MAXIMO = 1000;
+
+    public static <T> Pagina<T> de(List<T> itens, int limite, Function<T, Long> id) {
+        Long proximoCursor = itens.size() < limite ? null : id.apply(itens.get(itens.size() - 1));
+        return new Pagina<>(itens, proximoCursor);
+    }
+
+    public static void validarLimite(int limite) {
+        if (limite < 1 || limite > LIMITE_MAXIMO) {
+            throw new IllegalArgumentException("Limite deve estar entre 1 e " + LIMITE_MAXIMO);
+        }
+    }
+}
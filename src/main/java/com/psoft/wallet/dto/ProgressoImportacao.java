@@ -0,0 +1,5 @@
+package com.psoft.wallet.dto;
+
+// Enviado a cada bloco gravado e, com "concluida", ao fim da importação
+public record ProgressoImportacao(long processados, long importados, long erros, boolean concluida) {
+}
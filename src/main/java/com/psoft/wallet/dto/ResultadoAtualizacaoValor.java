@@ -0,0 +1,16 @@
+package com.psoft.wallet.dto;
+
+import org.springframework.http.HttpStatus;
+import com.psoft.wallet.model.Preco;
+
+// Resultado individual de uma atualização em lote: falhas não interrompem o lote
+public record ResultadoAtualizacaoValor(Long id, int status, @Preco.Json Long valorAtual, String message) {
+
+    public static ResultadoAtualizacaoValor sucesso(Long id, long valorAtual) {
+        return new ResultadoAtualizacaoValor(id, HttpStatus.OK.value(), valorAtual, null);
+    }
+
+    public static ResultadoAtualizacaoValor falha(Long id, HttpStatus status, String message) {
+        return new ResultadoAtualizacaoValor(id, status.value(), null, message);
+    }
+}
@@ -0,0 +1,7 @@
+package com.psoft.wallet.dto;
+
+import java.time.Instant;
+
+// Resposta do login: o token vai no cabeçalho Authorization (Bearer) das requisições seguintes
+public record SessaoCliente(String token, Instant expiraEm, ClienteResumo cliente) {
+}
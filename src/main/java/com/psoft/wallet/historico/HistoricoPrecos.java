@@ -0,0 +1,154 @@
+package com.psoft.wallet.historico;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.util.FileSystemUtils;
+import org.springframework.util.unit.DataSize;
+import com.psoft.wallet.dto.Cotacao;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Instant;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.function.Consumer;
+
+/**
+ * Histórico de cotações dos ativos, fora do banco: cada ativo tem uma série de segmentos
+ * mapeados em memória, só com acréscimos (ver {@link Segmento}). Consultas por intervalo
+ * leem os segmentos sequencialmente, sem uma linha de tabela por cotação.
+ *
+ * <p>Só as séries com cotações recentes mantêm o último segmento mapeado para escrita, até
+ * {@code wallet.historico.maximo-segmentos-abertos}; as demais são fechadas e remapeadas na
+ * próxima cotação. Assim o número de mapeamentos não cresce com o número de ativos (o Linux
+ * limita os mapeamentos por processo em vm.max_map_count, 65530 por padrão). Os mapeamentos
+ * liberados são desfeitos pelo coletor de lixo, que a JVM aciona quando um novo mapeamento falha.
+ *
+ * <p>Uma cotação que não entra no histórico já foi aceita e não é desfeita: a falha é contada
+ * em {@code wallet.historico.falhas} e deixa o histórico fora do ar no health check até a
+ * próxima gravação bem-sucedida.
+ */
+@Slf4j
+@Component
+public class HistoricoPrecos {
+    private static final DataSize TAMANHO_MINIMO = DataSize.ofKilobytes(1);
+
+    private final Path diretorio;
+    private final int tamanhoSegmento;
+    private final boolean temporario;
+    private final ConcurrentMap<Long, Serie> series = new ConcurrentHashMap<>();
+    // Séries com o último segmento mapeado; as que saem por tamanho são fechadas
+    private final Cache<Long, Serie> abertas;
+    private final Counter falhas;
+    private volatile String ultimaFalha;
+
+    public HistoricoPrecos(@Value("${wallet.historico.diretorio}") Path diretorio,
+                           @Value("${wallet.historico.tamanho-segmento:1MB}") DataSize tamanhoSegmento,
+                           @Value("${wallet.historico.maximo-segmentos-abertos:4096}") int maximoAbertos,
+                           @Value("${wallet.historico.temporario:false}") boolean temporario,
+                           MeterRegistry meterRegistry) {
+        if (tamanhoSegmento.compareTo(TAMANHO_MINIMO) < 0 || tamanhoSegmento.toBytes() > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException("Tamanho de segmento do histórico inválido: " + tamanhoSegmento);
+        }
+        this.diretorio = diretorio;
+        this.tamanhoSegmento = (int) tamanhoSegmento.toBytes();
+        this.temporario = temporario;
+        this.abertas = Caffeine.newBuilder()
+            .maximumSize(maximoAbertos)
+            .<Long, Serie>removalListener((id, serie, causa) -> {
+                if (causa.wasEvicted()) {
+                    serie.fechar();
+                }
+            })
+            .build();
+        this.falhas = meterRegistry.counter("wallet.historico.falhas");
+    }
+
+    public void registrar(Long id, Instant instante, long valor) {
+        try {
+            Serie serie = serie(id);
+            serie.registrar(instante.toEpochMilli(), valor);
+            if (abertas.getIfPresent(id) == null) {
+                abertas.put(id, serie);
+            }
+            ultimaFalha = null;
+        } catch (IOException | UncheckedIOException ex) {
+            // A cotação já foi aceita: uma falha no histórico não desfaz a atualização
+            falhas.increment();
+            ultimaFalha = "Ativo " + id + ": " + ex;
+            log.error("Falha ao registrar cotação do ativo {} no histórico", id, ex);
+        }
+    }
+
+    // Descrição da falha mais recente, ou null se a última gravação deu certo
+    public String ultimaFalha() {
+        return ultimaFalha;
+    }
+
+    // "de" e "ate" são opcionais; sem eles, o histórico inteiro
+    public void percorrer(Long id, Instant de, Instant ate, Consumer<Cotacao> consumidor) {
+        if (!series.containsKey(id) && !Files.isDirectory(diretorio(id))) {
+            return;
+        }
+        try {
+            serie(id).percorrer(de == null ? Long.MIN_VALUE : de.toEpochMilli(),
+                ate == null ? Long.MAX_VALUE : ate.toEpochMilli(), consumidor);
+        } catch (IOException ex) {
+            throw new UncheckedIOException(ex);
+        }
+    }
+
+    public void remover(Long id) {
+        abertas.invalidate(id);
+        Serie serie = series.remove(id);
+        if (serie != null) {
+            serie.fechar();
+        }
+        try {
+            FileSystemUtils.deleteRecursively(diretorio(id));
+        } catch (IOException ex) {
+            log.error("Falha ao remover o histórico do ativo {}", id, ex);
+        }
+    }
+
+    @PreDestroy
+    public void fechar() {
+        abertas.invalidateAll();
+        series.values().forEach(Serie::fechar);
+        series.clear();
+        if (temporario) {
+            try {
+                FileSystemUtils.deleteRecursively(diretorio);
+            } catch (IOException ex) {
+                log.error("Falha ao apagar o diretório temporário do histórico {}", diretorio, ex);
+            }
+        }
+    }
+
+    // Séries com o último segmento mapeado para escrita
+    int segmentosMapeados() {
+        return (int) series.values().stream().filter(Serie::mapeada).count();
+    }
+
+    private Serie serie(Long id) {
+        return series.computeIfAbsent(id, chave -> {
+            try {
+                return Serie.abrir(diretorio(chave), tamanhoSegmento);
+            } catch (IOException ex) {
+                throw new UncheckedIOException(ex);
+            }
+        });
+    }
+
+    private Path diretorio(Long id) {
+        return diretorio.resolve(String.valueOf(id));
+    }
+}
@@ -0,0 +1,21 @@
+package com.psoft.wallet.historico;
+
+import org.springframework.boot.actuate.health.Health;
+import org.springframework.boot.actuate.health.HealthIndicator;
+import org.springframework.stereotype.Component;
+
+// Histórico fora do ar em /actuator/health enquanto a gravação mais recente tiver falhado
+@Component("historico")
+class SaudeHistorico implements HealthIndicator {
+    private final HistoricoPrecos historico;
+
+    SaudeHistorico(HistoricoPrecos historico) {
+        this.historico = historico;
+    }
+
+    @Override
+    public Health health() {
+        String falha = historico.ultimaFalha();
+        return falha == null ? Health.up().build() : Health.down().withDetail("ultimaFalha", falha).build();
+    }
+}
@@ -0,0 +1,304 @@
+package com.psoft.wallet.historico;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Arquivo de tamanho fixo, mapeado em memória, com as cotações de um ativo em ordem de chegada.
+ * Os pontos são comprimidos como no Gorilla: instantes por delta-de-delta e valores (preços
+ * em ponto fixo, ver {@link com.psoft.wallet.model.Preco}) pelo XOR com o valor anterior,
+ * gravando só os bits significativos.
+ *
+ * <p>Cabeçalho: marcador (int), quantidade de pontos (int), bits de dados (long),
+ * primeiro e último instante (long). Os dados começam em {@link #INICIO_DADOS}.
+ */
+final class Segmento {
+    static final int INICIO_DADOS = 32;
+    // "PSH2": a segunda versão do formato, com valores de 64 bits
+    private static final int MARCADOR = 0x50534832;
+    private static final int POS_QUANTIDADE = 4;
+    private static final int POS_BITS = 8;
+    private static final int POS_PRIMEIRO = 16;
+    private static final int POS_ULTIMO = 24;
+    // Pior caso de um ponto: 4 + 64 bits do instante e 2 + 6 + 6 + 64 do valor
+    private static final int MAXIMO_BITS_PONTO = 146;
+
+    private final Path arquivo;
+    private final MappedByteBuffer buffer;
+    private final long capacidadeBits;
+
+    // Estado do codificador, igual ao do leitor depois do último ponto
+    private int quantidade;
+    private long bits;
+    private long ultimoInstante;
+    private long ultimoDelta;
+    private long ultimoValor;
+    private int zerosEsquerda = -1;
+    private int zerosDireita;
+
+    private Segmento(Path arquivo, MappedByteBuffer buffer) {
+        this.arquivo = arquivo;
+        this.buffer = buffer;
+        this.capacidadeBits = (long) (buffer.capacity() - INICIO_DADOS) * 8;
+    }
+
+    static Segmento criar(Path arquivo, int tamanho) throws IOException {
+        try (FileChannel canal = FileChannel.open(arquivo, StandardOpenOption.CREATE_NEW,
+                StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            Segmento segmento = new Segmento(arquivo, canal.map(FileChannel.MapMode.READ_WRITE, 0, tamanho));
+            segmento.buffer.putInt(0, MARCADOR);
+            return segmento;
+        }
+    }
+
+    // Reabre o último segmento de uma série e restaura o estado do codificador
+    static Segmento reabrir(Path arquivo) throws IOException {
+        try (FileChannel canal = FileChannel.open(arquivo, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            Segmento segmento = new Segmento(arquivo, canal.map(FileChannel.MapMode.READ_WRITE, 0, canal.size()));
+            segmento.validar();
+            Leitor leitor = segmento.leitor();
+            while (leitor.proximo()) {
+                // percorre até o fim
+            }
+            segmento.quantidade = leitor.lidos;
+            segmento.bits = leitor.posicao;
+            segmento.ultimoInstante = leitor.instante;
+            segmento.ultimoDelta = leitor.delta;
+            segmento.ultimoValor = leitor.valor;
+            segmento.zerosEsquerda = leitor.zerosEsquerda;
+            segmento.zerosDireita = leitor.zerosDireita;
+            return segmento;
+        }
+    }
+
+    // Segmento já fechado, só para leitura
+    static Leitor ler(Path arquivo) throws IOException {
+        try (FileChannel canal = FileChannel.open(arquivo, StandardOpenOption.READ)) {
+            Segmento segmento = new Segmento(arquivo, canal.map(FileChannel.MapMode.READ_ONLY, 0, canal.size()));
+            segmento.validar();
+            return segmento.leitor();
+        }
+    }
+
+    Path arquivo() {
+        return arquivo;
+    }
+
+    boolean vazio() {
+        return quantidade == 0;
+    }
+
+    long ultimoInstante() {
+        return ultimoInstante;
+    }
+
+    // Devolve false quando o segmento não comporta mais um ponto
+    boolean acrescentar(long instante, long valor) {
+        if (bits + MAXIMO_BITS_PONTO > capacidadeBits) {
+            return false;
+        }
+
+        if (quantidade == 0) {
+            escrever(instante, 64);
+            escrever(valor, 64);
+            buffer.putLong(POS_PRIMEIRO, instante);
+        } else {
+            long delta = instante - ultimoInstante;
+            escreverDeltaDeDelta(delta - ultimoDelta);
+            escreverXor(valor ^ ultimoValor);
+            ultimoDelta = delta;
+        }
+        ultimoInstante = instante;
+        ultimoValor = valor;
+        quantidade++;
+
+        // O cabeçalho só avança depois dos dados: os leitores nunca veem um ponto incompleto
+        buffer.putLong(POS_ULTIMO, instante);
+        buffer.putLong(POS_BITS, bits);
+        buffer.putInt(POS_QUANTIDADE, quantidade);
+        return true;
+    }
+
+    // Leitor dos pontos gravados até agora
+    Leitor leitor() {
+        return new Leitor(buffer, buffer.getInt(POS_QUANTIDADE), buffer.getLong(POS_PRIMEIRO), buffer.getLong(POS_ULTIMO));
+    }
+
+    void descarregar() {
+        buffer.force();
+    }
+
+    private void validar() throws IOException {
+        if (buffer.getInt(0) != MARCADOR) {
+            throw new IOException("Arquivo de histórico inválido: " + arquivo);
+        }
+    }
+
+    private void escreverDeltaDeDelta(long dod) {
+        if (dod == 0) {
+            escrever(0b0, 1);
+        } else if (dod >= -64 && dod <= 63) {
+            escrever(0b10, 2);
+            escrever(dod, 7);
+        } else if (dod >= -256 && dod <= 255) {
+            escrever(0b110, 3);
+            escrever(dod, 9);
+        } else if (dod >= -2048 && dod <= 2047) {
+            escrever(0b1110, 4);
+            escrever(dod, 12);
+        } else {
+            escrever(0b1111, 4);
+            escrever(dod, 64);
+        }
+    }
+
+    private void escreverXor(long xor) {
+        if (xor == 0) {
+            escrever(0b0, 1);
+            return;
+        }
+
+        int esquerda = Long.numberOfLeadingZeros(xor);
+        int direita = Long.numberOfTrailingZeros(xor);
+        if (zerosEsquerda >= 0 && esquerda >= zerosEsquerda && direita >= zerosDireita) {
+            // Cabe na mesma janela de bits significativos do ponto anterior
+            escrever(0b10, 2);
+            escrever(xor >>> zerosDireita, 64 - zerosEsquerda - zerosDireita);
+        } else {
+            int significativos = 64 - esquerda - direita;
+            escrever(0b11, 2);
+            escrever(esquerda, 6);
+            escrever(significativos - 1, 6);
+            escrever(xor >>> direita, significativos);
+            zerosEsquerda = esquerda;
+            zerosDireita = direita;
+        }
+    }
+
+    // Grava os "quantidade" bits menos significativos de "valor", do mais alto para o mais baixo
+    private void escrever(long valor, int quantidade) {
+        while (quantidade > 0) {
+            int indice = INICIO_DADOS + (int) (bits >>> 3);
+            int livres = 8 - (int) (bits & 7);
+            int n = Math.min(livres, quantidade);
+            int parte = (int) (valor >>> (quantidade - n)) & ((1 << n) - 1);
+            buffer.put(indice, (byte) (buffer.get(indice) | (parte << (livres - n))));
+            bits += n;
+            quantidade -= n;
+        }
+    }
+
+    /**
+     * Percorre sequencialmente os pontos de um segmento. Lê apenas a quantidade de pontos
+     * publicada no cabeçalho no momento em que foi criado.
+     */
+    static final class Leitor {
+        private final ByteBuffer buffer;
+        private final int quantidade;
+        private final long primeiroInstante;
+        private final long ultimoInstante;
+
+        private int lidos;
+        private long posicao;
+        private long instante;
+        private long delta;
+        private long valor;
+        private int zerosEsquerda = -1;
+        private int zerosDireita;
+
+        private Leitor(ByteBuffer buffer, int quantidade, long primeiroInstante, long ultimoInstante) {
+            this.buffer = buffer;
+            this.quantidade = quantidade;
+            this.primeiroInstante = primeiroInstante;
+            this.ultimoInstante = ultimoInstante;
+        }
+
+        int quantidade() {
+            return quantidade;
+        }
+
+        long primeiroInstante() {
+            return primeiroInstante;
+        }
+
+        long ultimoInstante() {
+            return ultimoInstante;
+        }
+
+        boolean proximo() {
+            if (lidos == quantidade) {
+                return false;
+            }
+
+            if (lidos == 0) {
+                instante = ler(64);
+                valor = ler(64);
+            } else {
+                delta += lerDeltaDeDelta();
+                instante += delta;
+                valor ^= lerXor();
+            }
+            lidos++;
+            return true;
+        }
+
+        long instante() {
+            return instante;
+        }
+
+        long valor() {
+            return valor;
+        }
+
+        private long lerDeltaDeDelta() {
+            if (ler(1) == 0) {
+                return 0;
+            }
+            if (ler(1) == 0) {
+                return comSinal(ler(7), 7);
+            }
+            if (ler(1) == 0) {
+                return comSinal(ler(9), 9);
+            }
+            if (ler(1) == 0) {
+                return comSinal(ler(12), 12);
+            }
+            return ler(64);
+        }
+
+        private long lerXor() {
+            if (ler(1) == 0) {
+                return 0;
+            }
+            if (ler(1) == 0) {
+                return ler(64 - zerosEsquerda - zerosDireita) << zerosDireita;
+            }
+            zerosEsquerda = (int) ler(6);
+            int significativos = (int) ler(6) + 1;
+            zerosDireita = 64 - zerosEsquerda - significativos;
+            return ler(significativos) << zerosDireita;
+        }
+
+        private long ler(int quantidade) {
+            long resultado = 0;
+            while (quantidade > 0) {
+                int indice = INICIO_DADOS + (int) (posicao >>> 3);
+                int disponiveis = 8 - (int) (posicao & 7);
+                int n = Math.min(disponiveis, quantidade);
+                int parte = ((buffer.get(indice) & 0xFF) >>> (disponiveis - n)) & ((1 << n) - 1);
+                resultado = (resultado << n) | parte;
+                posicao += n;
+                quantidade -= n;
+            }
+            return resultado;
+        }
+
+        private static long comSinal(long valor, int bits) {
+            return (valor << (64 - bits)) >> (64 - bits);
+        }
+    }
+}
@@ -0,0 +1,150 @@
+package com.psoft.wallet.historico;
+
+import com.psoft.wallet.dto.Cotacao;
+
+import java.io.IOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Consumer;
+
+/**
+ * Histórico de um ativo: um diretório com segmentos numerados em ordem de criação.
+ * Apenas o último segmento recebe novos pontos; os anteriores são só lidos. O último segmento
+ * só fica mapeado para escrita entre {@link #registrar} e {@link #fechar}: uma série fechada
+ * volta a mapeá-lo na próxima cotação.
+ */
+final class Serie {
+    private static final String EXTENSAO = ".seg";
+
+    private final Path diretorio;
+    private final int tamanhoSegmento;
+    private final ReentrantLock escrita = new ReentrantLock();
+    private final List<Path> fechados = new ArrayList<>();
+    // Último segmento; "aberto" é o seu mapeamento, null enquanto a série está fechada
+    private Path ultimo;
+    private Segmento aberto;
+
+    private Serie(Path diretorio, int tamanhoSegmento) {
+        this.diretorio = diretorio;
+        this.tamanhoSegmento = tamanhoSegmento;
+    }
+
+    static Serie abrir(Path diretorio, int tamanhoSegmento) throws IOException {
+        Files.createDirectories(diretorio);
+        Serie serie = new Serie(diretorio, tamanhoSegmento);
+
+        List<Path> arquivos = new ArrayList<>();
+        try (DirectoryStream<Path> existentes = Files.newDirectoryStream(diretorio, "*" + EXTENSAO)) {
+            existentes.forEach(arquivos::add);
+        }
+        // Os nomes têm largura fixa: a ordem alfabética é a ordem de criação
+        arquivos.sort(null);
+        if (!arquivos.isEmpty()) {
+            serie.fechados.addAll(arquivos.subList(0, arquivos.size() - 1));
+            serie.ultimo = arquivos.get(arquivos.size() - 1);
+        }
+        return serie;
+    }
+
+    void registrar(long instante, long valor) throws IOException {
+        escrita.lock();
+        try {
+            if (aberto == null && ultimo != null) {
+                aberto = Segmento.reabrir(ultimo);
+            }
+            // Instantes nunca recuam dentro da série, mesmo se o relógio do sistema recuar
+            if (aberto != null && !aberto.vazio()) {
+                instante = Math.max(instante, aberto.ultimoInstante());
+            }
+            if (aberto == null || !aberto.acrescentar(instante, valor)) {
+                long ultimoInstante = aberto == null ? Long.MIN_VALUE : aberto.ultimoInstante();
+                if (aberto != null) {
+                    aberto.descarregar();
+                    fechados.add(aberto.arquivo());
+                }
+                ultimo = diretorio.resolve(nome(fechados.size()));
+                aberto = Segmento.criar(ultimo, tamanhoSegmento);
+                aberto.acrescentar(Math.max(instante, ultimoInstante), valor);
+            }
+        } finally {
+            escrita.unlock();
+        }
+    }
+
+    // Pontos com instante entre "de" e "ate" (inclusive), em ordem cronológica
+    void percorrer(long de, long ate, Consumer<Cotacao> consumidor) throws IOException {
+        List<Path> anteriores;
+        Segmento.Leitor leitorUltimo;
+        escrita.lock();
+        try {
+            anteriores = List.copyOf(fechados);
+            if (aberto != null) {
+                leitorUltimo = aberto.leitor();
+            } else {
+                // Série fechada: lê o último segmento sem mapeá-lo para escrita
+                leitorUltimo = ultimo == null ? null : Segmento.ler(ultimo);
+            }
+        } finally {
+            escrita.unlock();
+        }
+
+        for (Path arquivo : anteriores) {
+            if (!percorrer(Segmento.ler(arquivo), de, ate, consumidor)) {
+                return;
+            }
+        }
+        if (leitorUltimo != null) {
+            percorrer(leitorUltimo, de, ate, consumidor);
+        }
+    }
+
+    boolean mapeada() {
+        escrita.lock();
+        try {
+            return aberto != null;
+        } finally {
+            escrita.unlock();
+        }
+    }
+
+    void fechar() {
+        escrita.lock();
+        try {
+            if (aberto != null) {
+                aberto.descarregar();
+                aberto = null;
+            }
+        } finally {
+            escrita.unlock();
+        }
+    }
+
+    // Devolve false quando já passou de "ate" e os segmentos seguintes não interessam
+    private static boolean percorrer(Segmento.Leitor leitor, long de, long ate, Consumer<Cotacao> consumidor) {
+        if (leitor.quantidade() == 0 || leitor.ultimoInstante() < de) {
+            return true;
+        }
+        if (leitor.primeiroInstante() > ate) {
+            return false;
+        }
+        while (leitor.proximo()) {
+            long instante = leitor.instante();
+            if (instante > ate) {
+                return false;
+            }
+            if (instante >= de) {
+                consumidor.accept(new Cotacao(Instant.ofEpochMilli(instante), leitor.valor()));
+            }
+        }
+        return true;
+    }
+
+    private static String nome(int sequencia) {
+        return String.format("%010d%s", sequencia, EXTENSAO);
+    }
+}
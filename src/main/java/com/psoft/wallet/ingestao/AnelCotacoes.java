@@ -0,0 +1,78 @@
+package com.psoft.wallet.ingestao;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Fila circular de cotações para exatamente um produtor e um consumidor, pré-alocada em dois
+ * vetores de {@code long}. Enfileirar e desenfileirar não alocam nem travam: cada lado só escreve
+ * no seu próprio contador e publica com {@code setRelease}.
+ *
+ * <p>Cada lado guarda a última posição que leu do outro e só volta a ler o contador alheio
+ * quando essa cópia indica fila cheia (produtor) ou vazia (consumidor), o que evita disputar a
+ * linha de cache do outro lado a cada cotação.
+ */
+final class AnelCotacoes {
+    private final long[] ids;
+    private final long[] valores;
+    private final int mascara;
+
+    // Próxima posição a escrever; só o produtor altera
+    private final AtomicLong cauda = new AtomicLong();
+    // Próxima posição a ler; só o consumidor altera
+    private final AtomicLong cabeca = new AtomicLong();
+
+    private long cabecaVistaPeloProdutor;
+    private long caudaVistaPeloConsumidor;
+
+    AnelCotacoes(int capacidade) {
+        if (capacidade <= 0 || Integer.bitCount(capacidade) != 1) {
+            throw new IllegalArgumentException("Capacidade do anel de cotações deve ser uma potência de 2");
+        }
+        ids = new long[capacidade];
+        valores = new long[capacidade];
+        mascara = capacidade - 1;
+    }
+
+    // Só o produtor chama. false se a fila está cheia
+    boolean oferecer(long id, long valor) {
+        long posicao = cauda.getPlain();
+        if (posicao - cabecaVistaPeloProdutor > mascara) {
+            cabecaVistaPeloProdutor = cabeca.getAcquire();
+            if (posicao - cabecaVistaPeloProdutor > mascara) {
+                return false;
+            }
+        }
+        int indice = (int) posicao & mascara;
+        ids[indice] = id;
+        valores[indice] = valor;
+        cauda.setRelease(posicao + 1);
+        return true;
+    }
+
+    // Só o consumidor chama. Entrega até "maximo" cotações, na ordem de chegada
+    int drenar(ConsumidorCotacao consumidor, int maximo) {
+        long posicao = cabeca.getPlain();
+        if (caudaVistaPeloConsumidor - posicao < maximo) {
+            caudaVistaPeloConsumidor = cauda.getAcquire();
+        }
+        int quantidade = (int) Math.min(maximo, caudaVistaPeloConsumidor - posicao);
+        for (int i = 0; i < quantidade; i++) {
+            int indice = (int) (posicao + i) & mascara;
+            consumidor.aceitar(ids[indice], valores[indice]);
+        }
+        if (quantidade > 0) {
+            // Libera as posições lidas para o produtor
+            cabeca.setRelease(posicao + quantidade);
+        }
+        return quantidade;
+    }
+
+    int capacidade() {
+        return mascara + 1;
+    }
+
+    // Aproximado: os dois contadores são lidos em momentos diferentes
+    int ocupacao() {
+        return (int) Math.max(0, Math.min(capacidade(), cauda.getAcquire() - cabeca.getAcquire()));
+    }
+}
@@ -0,0 +1,7 @@
+package com.psoft.wallet.ingestao;
+
+// Recebe uma cotação já decomposta em primitivos, sem objeto por cotação
+@FunctionalInterface
+interface ConsumidorCotacao {
+    void aceitar(long id, long valor);
+}
@@ -0,0 +1,95 @@
+package com.psoft.wallet.ingestao;
+
+import java.util.Arrays;
+
+/**
+ * Cotações do lote em formação, no máximo uma por ativo: uma nova cotação do mesmo ativo
+ * substitui a anterior (conflação). Tabela de endereçamento aberto sobre vetores de
+ * {@code long}, pré-alocada para o tamanho do lote; só a thread de escrita usa.
+ */
+final class CotacoesPendentes implements ConsumidorCotacao {
+    private static final long VAZIO = Long.MIN_VALUE;
+    private static final int MAXIMO_LIMITE = 1 << 24;
+
+    private final long[] chaves;
+    private final long[] valores;
+    private final int mascara;
+    // Posições ocupadas, na ordem da primeira cotação de cada ativo
+    private final int[] ocupadas;
+    private final int limite;
+    private int quantidade;
+    private long conflacoes;
+
+    CotacoesPendentes(int limite) {
+        if (limite <= 0 || limite > MAXIMO_LIMITE) {
+            throw new IllegalArgumentException("Tamanho do lote de cotações inválido: " + limite);
+        }
+        // Ocupação máxima de 50%, para sondagens curtas
+        int capacidade = Integer.highestOneBit(limite * 2 - 1) << 1;
+        chaves = new long[capacidade];
+        valores = new long[capacidade];
+        Arrays.fill(chaves, VAZIO);
+        mascara = capacidade - 1;
+        ocupadas = new int[limite];
+        this.limite = limite;
+    }
+
+    @Override
+    public void aceitar(long id, long valor) {
+        int posicao = espalhar(id) & mascara;
+        while (chaves[posicao] != VAZIO) {
+            if (chaves[posicao] == id) {
+                valores[posicao] = valor;
+                conflacoes++;
+                return;
+            }
+            posicao = (posicao + 1) & mascara;
+        }
+        if (quantidade == limite) {
+            // Quem drena respeita espacoLivre(); chegar aqui é erro de uso
+            throw new IllegalStateException("Lote de cotações cheio");
+        }
+        chaves[posicao] = id;
+        valores[posicao] = valor;
+        ocupadas[quantidade++] = posicao;
+    }
+
+    // Cotações que ainda cabem com certeza, mesmo que todas sejam de ativos novos
+    int espacoLivre() {
+        return limite - quantidade;
+    }
+
+    boolean vazio() {
+        return quantidade == 0;
+    }
+
+    int quantidade() {
+        return quantidade;
+    }
+
+    // Cotações substituídas desde a última chamada
+    long retirarConflacoes() {
+        long total = conflacoes;
+        conflacoes = 0;
+        return total;
+    }
+
+    void percorrer(ConsumidorCotacao consumidor) {
+        for (int i = 0; i < quantidade; i++) {
+            int posicao = ocupadas[i];
+            consumidor.aceitar(chaves[posicao], valores[posicao]);
+        }
+    }
+
+    void limpar() {
+        for (int i = 0; i < quantidade; i++) {
+            chaves[ocupadas[i]] = VAZIO;
+        }
+        quantidade = 0;
+    }
+
+    private static int espalhar(long id) {
+        long h = id * 0x9E3779B97F4A7C15L;
+        return (int) (h ^ (h >>> 32));
+    }
+}
@@ -0,0 +1,331 @@
+package com.psoft.wallet.ingestao;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+import com.psoft.wallet.dto.AtualizacaoValor;
+import com.psoft.wallet.dto.ResultadoAtualizacaoValor;
+import com.psoft.wallet.service.AtivoService;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Entrada de cotações por um feed local, além do PATCH: um arquivo acompanhado como
+ * {@code tail -f}, um pipe nomeado ou uma conexão TCP em localhost (ver {@link LeitorCotacoes}
+ * para o formato). Habilitada com {@code wallet.ingestao.habilitada=true}.
+ *
+ * <p>Duas threads: a leitora interpreta o feed e enfileira no {@link AnelCotacoes}; a escritora
+ * drena o anel para as {@link CotacoesPendentes}, que guardam só a cotação mais recente de cada
+ * ativo, e entrega o lote ao {@link AtivoService#atualizarValores}, com a mesma validação de 1%,
+ * histórico, gravação e eventos do PATCH em lote. O lote sai quando enche ou quando o anel
+ * esvazia, então a espera de uma cotação é limitada pelo tamanho do lote. Até o lote, nada é
+ * alocado por cotação. Com o anel cheio, a leitora para de ler e a pressão volta para o feed.
+ *
+ * <p>O arquivo comum é reaberto após uma falha no byte seguinte à última linha completa lida, sem
+ * reaplicar cotações. Ao ser aberto pela primeira vez, é lido do fim ({@code
+ * wallet.ingestao.inicio=fim}, só cotações novas) ou do início ({@code inicio}); um arquivo criado
+ * depois da subida é lido do início. Se encolher (truncado) ou for trocado por outro no mesmo
+ * caminho (rotação), volta ao início.
+ */
+@Slf4j
+@Component
+@ConditionalOnProperty(name = "wallet.ingestao.habilitada", havingValue = "true")
+public class IngestaoCotacoes {
+    private static final String METRICA = "wallet.ingestao.cotacoes";
+
+    private final AtivoService service;
+    private final String fonte;
+    private final Path arquivo;
+    private final boolean lerDoInicio;
+    private final int porta;
+    private final long esperaOciosa;
+
+    private final AnelCotacoes anel;
+    private final CotacoesPendentes pendentes;
+    private final LeitorCotacoes leitor;
+
+    private final Counter aceitas;
+    private final Counter recusadas;
+    private final Counter conflacoes;
+    private final Counter invalidas;
+
+    private final Thread leitora;
+    private final Thread escritora;
+    private volatile boolean ativa = true;
+    // Arquivo, pipe, socket ou servidor aberto no momento, para encerrar() interromper a leitura
+    private volatile Closeable aberto;
+    // Byte do arquivo comum em que a próxima abertura começa; negativo antes da primeira. Só a
+    // leitora usa
+    private long posicao = -1;
+
+    public IngestaoCotacoes(AtivoService service,
+                            MeterRegistry meterRegistry,
+                            @Value("${wallet.ingestao.fonte:arquivo}") String fonte,
+                            @Value("${wallet.ingestao.arquivo:}") String arquivo,
+                            @Value("${wallet.ingestao.inicio:fim}") String inicio,
+                            @Value("${wallet.ingestao.porta:9099}") int porta,
+                            @Value("${wallet.ingestao.capacidade-anel:65536}") int capacidadeAnel,
+                            @Value("${wallet.ingestao.tamanho-lote:1024}") int tamanhoLote,
+                            @Value("${wallet.ingestao.espera-ociosa:1ms}") Duration esperaOciosa) {
+        if (!fonte.equals("arquivo") && !fonte.equals("socket")) {
+            throw new IllegalArgumentException("Fonte de cotações inválida: " + fonte + " (use arquivo ou socket)");
+        }
+        if (fonte.equals("arquivo") && arquivo.isBlank()) {
+            throw new IllegalArgumentException("Informe wallet.ingestao.arquivo para a fonte arquivo");
+        }
+        if (!inicio.equals("inicio") && !inicio.equals("fim")) {
+            throw new IllegalArgumentException("Início de leitura inválido: " + inicio + " (use inicio ou fim)");
+        }
+        this.service = service;
+        this.fonte = fonte;
+        this.arquivo = arquivo.isBlank() ? null : Path.of(arquivo);
+        this.lerDoInicio = inicio.equals("inicio");
+        this.porta = porta;
+        this.esperaOciosa = esperaOciosa.toNanos();
+
+        anel = new AnelCotacoes(capacidadeAnel);
+        pendentes = new CotacoesPendentes(tamanhoLote);
+        leitor = new LeitorCotacoes(64 * 1024, this::enfileirar);
+
+        aceitas = contador(meterRegistry, "aceita");
+        recusadas = contador(meterRegistry, "recusada");
+        conflacoes = contador(meterRegistry, "conflada");
+        invalidas = contador(meterRegistry, "invalida");
+        Gauge.builder("wallet.ingestao.anel.ocupacao", anel, AnelCotacoes::ocupacao)
+            .register(meterRegistry);
+
+        leitora = Thread.ofPlatform().name("ingestao-leitura").daemon().unstarted(this::lerFeed);
+        escritora = Thread.ofPlatform().name("ingestao-escrita").daemon().unstarted(this::escrever);
+    }
+
+    @PostConstruct
+    public void iniciar() {
+        escritora.start();
+        leitora.start();
+    }
+
+    @PreDestroy
+    public void encerrar() throws InterruptedException {
+        ativa = false;
+        fechar(aberto);
+        leitora.interrupt();
+        leitora.join(1000);
+        // A escritora aplica o que já estava no anel antes de terminar
+        escritora.join(5000);
+    }
+
+    // Fecha a entrada atual como uma falha de leitura faria; a leitora reabre o feed (usado nos
+    // testes)
+    void interromperLeitura() {
+        fechar(aberto);
+    }
+
+    private static Counter contador(MeterRegistry meterRegistry, String resultado) {
+        return Counter.builder(METRICA).tag("resultado", resultado).register(meterRegistry);
+    }
+
+    // Thread leitora
+
+    private void lerFeed() {
+        while (ativa) {
+            try {
+                if (fonte.equals("socket")) {
+                    lerSocket();
+                } else {
+                    lerArquivo();
+                }
+            } catch (NoSuchFileException ex) {
+                // O arquivo ainda não foi criado pelo feed: tudo o que ele trouxer é novo
+                if (posicao < 0) {
+                    posicao = 0;
+                }
+                LockSupport.parkNanos(esperaOciosa * 100);
+            } catch (IOException ex) {
+                if (ativa) {
+                    log.warn("Falha ao ler o feed de cotações ({}); tentando de novo", fonte, ex);
+                    LockSupport.parkNanos(esperaOciosa * 100);
+                }
+            } finally {
+                invalidas.increment(leitor.retirarInvalidas());
+            }
+        }
+    }
+
+    // Arquivo comum: acompanhado como tail -f a partir de posicao. Pipe nomeado: termina quando o
+    // escritor fecha o pipe, e é reaberto à espera do próximo
+    private void lerArquivo() throws IOException {
+        if (Files.exists(arquivo) && !Files.isRegularFile(arquivo)) {
+            lerPipe();
+            return;
+        }
+        try (FileChannel canal = FileChannel.open(arquivo, StandardOpenOption.READ)) {
+            aberto = canal;
+            Object identidade = identidade();
+            if (posicao < 0) {
+                posicao = lerDoInicio ? 0 : canal.size();
+            } else if (canal.size() < posicao) {
+                // Truncado enquanto estava fechado
+                posicao = 0;
+            }
+            long base = posicao;
+            canal.position(base);
+            leitor.retomar();
+            InputStream entrada = Channels.newInputStream(canal);
+            try {
+                while (ativa) {
+                    if (lerBloco(entrada)) {
+                        continue;
+                    }
+                    if (canal.size() < base + leitor.lidos()) {
+                        log.info("Arquivo de cotações truncado; lendo desde o início");
+                        leitor.reiniciar();
+                        base = 0;
+                        canal.position(0);
+                    } else if (!Objects.equals(identidade, identidade())) {
+                        log.info("Arquivo de cotações trocado; lendo o novo desde o início");
+                        leitor.reiniciar();
+                        base = 0;
+                        return;
+                    } else {
+                        LockSupport.parkNanos(esperaOciosa);
+                    }
+                }
+            } finally {
+                // A linha incompleta é relida na próxima abertura
+                posicao = base + leitor.fimUltimaLinha();
+            }
+        }
+    }
+
+    // Identifica o arquivo no caminho (dispositivo e inode, no Linux); null se ele não existe mais
+    private Object identidade() throws IOException {
+        try {
+            return Files.readAttributes(arquivo, BasicFileAttributes.class).fileKey();
+        } catch (NoSuchFileException ex) {
+            return null;
+        }
+    }
+
+    private void lerPipe() throws IOException {
+        try (InputStream entrada = Files.newInputStream(arquivo)) {
+            aberto = entrada;
+            while (ativa && lerBloco(entrada)) {
+                // Segue até o escritor fechar o pipe
+            }
+        } finally {
+            leitor.reiniciar();
+        }
+    }
+
+    // Uma conexão por vez, só em localhost: o anel aceita um único produtor
+    private void lerSocket() throws IOException {
+        try (ServerSocket servidor = new ServerSocket(porta, 1, InetAddress.getLoopbackAddress())) {
+            while (ativa) {
+                aberto = servidor;
+                try (Socket conexao = servidor.accept(); InputStream entrada = conexao.getInputStream()) {
+                    aberto = conexao;
+                    while (ativa && lerBloco(entrada)) {
+                        // Segue até o feed fechar a conexão
+                    }
+                } finally {
+                    leitor.reiniciar();
+                }
+            }
+        }
+    }
+
+    private boolean lerBloco(InputStream entrada) throws IOException {
+        boolean lido = leitor.ler(entrada);
+        long descartadas = leitor.retirarInvalidas();
+        if (descartadas > 0) {
+            invalidas.increment(descartadas);
+        }
+        return lido;
+    }
+
+    private void enfileirar(long id, long valor) {
+        // Linhas descartadas antes desta são contadas antes de ela seguir para a escritora
+        long descartadas = leitor.retirarInvalidas();
+        if (descartadas > 0) {
+            invalidas.increment(descartadas);
+        }
+        // Anel cheio: espera a escritora em vez de descartar cotações
+        while (!anel.oferecer(id, valor)) {
+            if (!ativa) {
+                return;
+            }
+            LockSupport.parkNanos(esperaOciosa);
+        }
+    }
+
+    // Thread escritora
+
+    private void escrever() {
+        while (ativa || anel.ocupacao() > 0) {
+            int drenadas = anel.drenar(pendentes, pendentes.espacoLivre());
+            if (!pendentes.vazio() && (drenadas == 0 || pendentes.espacoLivre() == 0)) {
+                aplicarLote();
+            } else if (drenadas == 0) {
+                LockSupport.parkNanos(esperaOciosa);
+            }
+        }
+        if (!pendentes.vazio()) {
+            aplicarLote();
+        }
+    }
+
+    private void aplicarLote() {
+        List<AtualizacaoValor> lote = new ArrayList<>(pendentes.quantidade());
+        pendentes.percorrer((id, valor) -> lote.add(new AtualizacaoValor(id, valor)));
+        pendentes.limpar();
+        conflacoes.increment(pendentes.retirarConflacoes());
+
+        try {
+            for (ResultadoAtualizacaoValor resultado : service.atualizarValores(lote)) {
+                if (resultado.valorAtual() != null) {
+                    aceitas.increment();
+                } else {
+                    recusadas.increment();
+                }
+            }
+        } catch (RuntimeException ex) {
+            // A escritora continua com os próximos lotes
+            recusadas.increment(lote.size());
+            log.error("Falha ao aplicar lote de {} cotações do feed", lote.size(), ex);
+        }
+    }
+
+    private static void fechar(Closeable recurso) {
+        if (recurso == null) {
+            return;
+        }
+        try {
+            recurso.close();
+        } catch (IOException ex) {
+            // Encerrando: nada a fazer
+        }
+    }
+}
@@ -0,0 +1,182 @@
+package com.psoft.wallet.ingestao;
+
+import com.psoft.wallet.model.Preco;
+
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * Interpreta o feed de cotações, uma por linha: o id do ativo e o valor decimal, separados por
+ * vírgula, ponto e vírgula, espaço ou tabulação (ex.: {@code 42;101.25}). Os bytes são lidos
+ * num buffer reutilizado e convertidos direto para ponto fixo, sem String nem BigDecimal.
+ *
+ * <p>Uma linha pode chegar em pedaços: o estado da linha em andamento é mantido entre as
+ * leituras. Linhas malformadas, ou com mais casas decimais do que {@link Preco#CASAS}, são
+ * descartadas e contadas em {@link #retirarInvalidas()}.
+ *
+ * <p>Conta os bytes lidos e onde termina a última linha completa, para que um arquivo reaberto
+ * seja retomado na linha em andamento, sem reaplicar as anteriores.
+ */
+final class LeitorCotacoes {
+    // Maiores partes que cabem em um long sem estouro, já considerando a escala do Preco
+    private static final int MAXIMO_DIGITOS_ID = 18;
+    private static final int MAXIMO_DIGITOS_INTEIROS = 18 - Preco.CASAS;
+
+    private static final int ID = 0;
+    private static final int SEPARADOR = 1;
+    private static final int INTEIROS = 2;
+    private static final int DECIMAIS = 3;
+    private static final int DESCARTE = 4;
+
+    private final byte[] buffer;
+    private final ConsumidorCotacao destino;
+
+    private int estado = ID;
+    private int digitos;
+    private long id;
+    private long valor;
+    private int casas;
+    private long invalidas;
+    // Desde o último reiniciar() ou retomar()
+    private long lidos;
+    private long fimUltimaLinha;
+
+    LeitorCotacoes(int tamanhoBuffer, ConsumidorCotacao destino) {
+        this.buffer = new byte[tamanhoBuffer];
+        this.destino = destino;
+    }
+
+    // Entrega as linhas completas que houver em uma leitura. false no fim da entrada
+    boolean ler(InputStream entrada) throws IOException {
+        int lidos = entrada.read(buffer);
+        if (lidos < 0) {
+            return false;
+        }
+        for (int i = 0; i < lidos; i++) {
+            byte b = buffer[i];
+            consumir(b);
+            if (b == '\n') {
+                fimUltimaLinha = this.lidos + i + 1;
+            }
+        }
+        this.lidos += lidos;
+        return true;
+    }
+
+    // A entrada foi trocada (reconexão, pipe reaberto): a linha incompleta é perdida
+    void reiniciar() {
+        if (linhaIniciada()) {
+            invalidas++;
+        }
+        retomar();
+    }
+
+    // A mesma entrada será lida de novo a partir de fimUltimaLinha(): a linha incompleta não se
+    // perde, é relida
+    void retomar() {
+        novaLinha();
+        lidos = 0;
+        fimUltimaLinha = 0;
+    }
+
+    long lidos() {
+        return lidos;
+    }
+
+    // Bytes até o fim da última linha completa, inclusive o '\n'
+    long fimUltimaLinha() {
+        return fimUltimaLinha;
+    }
+
+    // Linhas descartadas desde a última chamada
+    long retirarInvalidas() {
+        long total = invalidas;
+        invalidas = 0;
+        return total;
+    }
+
+    private void consumir(byte b) {
+        if (b == '\n') {
+            terminarLinha();
+            return;
+        }
+        if (b == '\r' || estado == DESCARTE) {
+            return;
+        }
+
+        boolean digito = b >= '0' && b <= '9';
+        boolean separador = b == ',' || b == ';' || b == ' ' || b == '\t';
+        switch (estado) {
+            case ID -> {
+                if (digito && digitos < MAXIMO_DIGITOS_ID) {
+                    id = id * 10 + (b - '0');
+                    digitos++;
+                } else if (separador && digitos > 0) {
+                    estado = SEPARADOR;
+                } else {
+                    descartar();
+                }
+            }
+            case SEPARADOR -> {
+                if (digito) {
+                    estado = INTEIROS;
+                    digitos = 0;
+                    consumir(b);
+                } else if (!separador) {
+                    descartar();
+                }
+            }
+            case INTEIROS -> {
+                if (digito && digitos < MAXIMO_DIGITOS_INTEIROS) {
+                    valor = valor * 10 + (b - '0');
+                    digitos++;
+                } else if (b == '.') {
+                    estado = DECIMAIS;
+                } else {
+                    descartar();
+                }
+            }
+            case DECIMAIS -> {
+                if (digito && casas < Preco.CASAS) {
+                    valor = valor * 10 + (b - '0');
+                    casas++;
+                } else {
+                    descartar();
+                }
+            }
+            default -> throw new IllegalStateException("Estado inválido: " + estado);
+        }
+    }
+
+    private void terminarLinha() {
+        if (estado == INTEIROS || estado == DECIMAIS) {
+            long escalado = valor;
+            for (int i = casas; i < Preco.CASAS; i++) {
+                escalado *= 10;
+            }
+            destino.aceitar(id, escalado);
+        } else if (linhaIniciada()) {
+            // Linhas vazias são ignoradas; as demais sem valor contam como inválidas
+            invalidas++;
+        }
+        novaLinha();
+    }
+
+    // Já descartadas não contam de novo
+    private boolean linhaIniciada() {
+        return estado != DESCARTE && (estado != ID || digitos > 0);
+    }
+
+    private void descartar() {
+        estado = DESCARTE;
+        invalidas++;
+    }
+
+    private void novaLinha() {
+        estado = ID;
+        digitos = 0;
+        id = 0;
+        valor = 0;
+        casas = 0;
+    }
+}
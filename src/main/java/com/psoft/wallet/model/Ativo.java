@@ -1,21 +1,48 @@
 package com.psoft.wallet.model;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
 import jakarta.persistence.*;
 import lombok.Data;
+import lombok.EqualsAndHashCode;
+import lombok.ToString;
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
 
 @Entity
 @Data
+// Cache de segundo nível: buscas por id não vão ao banco enquanto a entrada for válida.
+// A descrição (lazy) fica fora das entradas
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE, region = "ativos", includeLazy = false)
 public class Ativo {
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    // Sequência com alocação em blocos (otimizador pooled): o id é conhecido antes do INSERT,
+    // o que permite ao Hibernate agrupar os INSERTs em lotes JDBC
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "ativo_seq")
+    @SequenceGenerator(name = "ativo_seq", sequenceName = "ativo_seq", allocationSize = 50)
     private Long id;
 
+    // Único e indexado: a unicidade vale mesmo entre criações concorrentes
+    @Column(unique = true)
     private String nome;
 
     @Enumerated(EnumType.STRING)
     private TipoAtivo tipo;
 
+    // Texto livre, possivelmente longo: carregado só quando lido (requer o enhancement do
+    // Hibernate no build). Fora de equals/hashCode/toString para não disparar a carga
+    @Basic(fetch = FetchType.LAZY)
+    @EqualsAndHashCode.Exclude
+    @ToString.Exclude
     private String descricao;
+
     private boolean disponivel;
-    private float valorAtual;
+
+    // Ponto fixo (ver Preco); na API, um número decimal
+    @Preco.Json
+    private long valorAtual;
+
+    // Controle de concorrência otimista; não faz parte da API
+    @Version
+    @JsonIgnore
+    private Long versao;
 }
@@ -2,12 +2,16 @@ package com.psoft.wallet.model;
 
 import jakarta.persistence.*;
 import lombok.Data;
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
 
 @Entity
 @Data
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE, region = "clientes")
 public class Cliente {
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "cliente_seq")
+    @SequenceGenerator(name = "cliente_seq", sequenceName = "cliente_seq", allocationSize = 50)
     private Long id;
 
     private String nomeCompleto;
@@ -16,5 +20,7 @@ public class Cliente {
     @Enumerated(EnumType.STRING)
     private TipoPlano plano;
     
+    // Único e indexado: é a chave de busca em toda validação de acesso
+    @Column(unique = true)
     private String codigoAcesso; // 6 dígitos
 } 
\ No newline at end of file
@@ -0,0 +1,117 @@
+package com.psoft.wallet.model;
+
+import com.fasterxml.jackson.annotation.JacksonAnnotationsInside;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.DeserializationContext;
+import com.fasterxml.jackson.databind.SerializerProvider;
+import com.fasterxml.jackson.databind.annotation.JsonDeserialize;
+import com.fasterxml.jackson.databind.annotation.JsonSerialize;
+import com.fasterxml.jackson.databind.deser.std.StdDeserializer;
+import com.fasterxml.jackson.databind.ser.std.StdSerializer;
+
+import java.io.IOException;
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+
+/**
+ * Preços em ponto fixo: um {@code long} com {@link #CASAS} casas decimais implícitas
+ * (25,50 é guardado como 255000). Comparações e a regra de variação mínima usam só
+ * aritmética inteira. Na API o preço continua sendo um número decimal comum; campos
+ * com {@link Json} são convertidos na serialização.
+ */
+public final class Preco {
+    public static final int CASAS = 4;
+    public static final long ESCALA = 10_000;
+
+    private Preco() {
+    }
+
+    // Recusa valores com mais casas do que a escala comporta, em vez de arredondar
+    public static long de(BigDecimal valor) {
+        try {
+            return valor.setScale(CASAS, RoundingMode.UNNECESSARY).unscaledValue().longValueExact();
+        } catch (ArithmeticException ex) {
+            throw new IllegalArgumentException("Valor inválido: " + valor.toPlainString()
+                + " (no máximo " + CASAS + " casas decimais)");
+        }
+    }
+
+    public static long de(String valor) {
+        return de(new BigDecimal(valor));
+    }
+
+    public static BigDecimal decimal(long preco) {
+        return BigDecimal.valueOf(preco, CASAS);
+    }
+
+    // Forma decimal sem zeros à direita, mas sempre com uma casa: 1100000 é "110.0"
+    public static String formatar(long preco) {
+        BigDecimal decimal = decimal(preco).stripTrailingZeros();
+        return (decimal.scale() < 1 ? decimal.setScale(1) : decimal).toPlainString();
+    }
+
+    // Variação de pelo menos 1% sobre o valor atual: |novo - atual| * 100 >= |atual|, sem multiplicar
+    public static boolean variacaoMinimaAtingida(long atual, long novo) {
+        return Math.abs(novo - atual) >= Math.ceilDiv(Math.abs(atual), 100);
+    }
+
+    // Marca um campo long (ou Long) como preço na serialização JSON
+    @Retention(RetentionPolicy.RUNTIME)
+    @Target({ElementType.FIELD, ElementType.METHOD, ElementType.PARAMETER})
+    @JacksonAnnotationsInside
+    @JsonSerialize(using = Serializador.class)
+    @JsonDeserialize(using = Desserializador.class)
+    public @interface Json {
+    }
+
+    static final class Serializador extends StdSerializer<Long> {
+        Serializador() {
+            super(Long.class);
+        }
+
+        @Override
+        public void serialize(Long preco, JsonGenerator gerador, SerializerProvider provider) throws IOException {
+            gerador.writeNumber(formatar(preco));
+        }
+    }
+
+    // Aceita número ou texto (o CSV só tem texto); o valor decimal é lido sem passar por double
+    static final class Desserializador extends StdDeserializer<Long> {
+        Desserializador() {
+            super(Long.class);
+        }
+
+        @Override
+        public Long deserialize(JsonParser parser, DeserializationContext contexto) throws IOException {
+            JsonToken token = parser.currentToken();
+            if (token == JsonToken.VALUE_NUMBER_INT || token == JsonToken.VALUE_NUMBER_FLOAT) {
+                try {
+                    return de(parser.getDecimalValue());
+                } catch (IllegalArgumentException ex) {
+                    throw contexto.weirdNumberException(parser.getNumberValue(), Long.class, ex.getMessage());
+                }
+            }
+            if (token == JsonToken.VALUE_STRING) {
+                String texto = parser.getText().trim();
+                try {
+                    return de(texto);
+                } catch (IllegalArgumentException ex) {
+                    // Inclui NumberFormatException
+                    throw contexto.weirdStringException(texto, Long.class, "não é um preço válido");
+                }
+            }
+            return (Long) contexto.handleUnexpectedToken(Long.class, parser);
+        }
+
+        @Override
+        public Long getNullValue(DeserializationContext contexto) {
+            return 0L;
+        }
+    }
+}
@@ -2,5 +2,10 @@ package com.psoft.wallet.model;
 
 public enum TipoPlano {
     NORMAL,
-    PREMIUM
-} 
\ No newline at end of file
+    PREMIUM;
+
+    // Clientes Normal veem apenas Tesouro Direto; Premium veem todos os tipos
+    public boolean permite(TipoAtivo tipo) {
+        return this == PREMIUM || tipo == TipoAtivo.TESOURO_DIRETO;
+    }
+}
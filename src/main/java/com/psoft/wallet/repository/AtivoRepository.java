@@ -1,16 +1,34 @@
 package com.psoft.wallet.repository;
 
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
+import org.springframework.transaction.annotation.Transactional;
 import com.psoft.wallet.model.Ativo;
 import java.util.Optional;
-import java.util.List;
 
 public interface AtivoRepository extends JpaRepository<Ativo, Long> {
-    Optional<Ativo> findByNome(String nome);
-    
-    List<Ativo> findByDisponivel(boolean disponivel);
-    
-    List<Ativo> findByDisponivelTrue();
-    
-    List<Ativo> findByDisponivelFalse();
-}
\ No newline at end of file
+    // Só a descrição, que o catálogo não mantém em memória
+    @Query("SELECT a.descricao FROM Ativo a WHERE a.id = :id")
+    Optional<String> findDescricaoById(@Param("id") Long id);
+
+    // Aplica o novo valor só se a variação sobre o valor gravado for de pelo menos 1%.
+    // Devolve 0 quando o ativo não existe ou a variação é insuficiente.
+    // Mesma regra de Preco.variacaoMinimaAtingida: compara com o teto de |atual| / 100, em
+    // divisão inteira, em vez de multiplicar a diferença por 100 (que estoura em preços altos).
+    // SQL nativo com um espaço de consulta que nenhuma entidade usa: um UPDATE em massa em JPQL
+    // faria o Hibernate invalidar a região de ativos inteira do cache de segundo nível. Quem
+    // chama descarta só a entrada do ativo alterado
+    @Transactional
+    @Modifying(flushAutomatically = true, clearAutomatically = true)
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_NATIVE_SPACES, value = "ativo_cotacao"))
+    @Query(nativeQuery = true,
+           value = "UPDATE ativo SET valor_atual = :novoValor, versao = versao + 1 " +
+                   "WHERE id = :id AND ABS(:novoValor - valor_atual) >= ABS(valor_atual) / 100 " +
+                   "+ CASE WHEN MOD(ABS(valor_atual), 100) = 0 THEN 0 ELSE 1 END")
+    int atualizarValorComVariacaoMinima(@Param("id") Long id, @Param("novoValor") long novoValor);
+}
@@ -0,0 +1,53 @@
+package com.psoft.wallet.repository;
+
+import com.github.benmanes.caffeine.jcache.configuration.CaffeineConfiguration;
+import com.github.benmanes.caffeine.jcache.spi.CaffeineCachingProvider;
+import org.hibernate.cache.jcache.ConfigSettings;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.orm.jpa.HibernatePropertiesCustomizer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import javax.cache.CacheManager;
+import javax.cache.Caching;
+import java.net.URI;
+import java.time.Duration;
+import java.util.OptionalLong;
+import java.util.UUID;
+
+/**
+ * Regiões do cache de segundo nível do Hibernate (JCache sobre Caffeine), com tamanho
+ * máximo e expiração. O Hibernate recusa subir se uma entidade usar uma região que não
+ * esteja criada aqui.
+ */
+@Configuration(proxyBeanMethods = false)
+class CacheSegundoNivel {
+    static final String ATIVOS = "ativos";
+    static final String CLIENTES = "clientes";
+
+    @Bean(destroyMethod = "close")
+    CacheManager cacheSegundoNivel(
+            @Value("${wallet.cache-entidades.ativos.tamanho-maximo:10000}") long maximoAtivos,
+            @Value("${wallet.cache-entidades.clientes.tamanho-maximo:10000}") long maximoClientes,
+            @Value("${wallet.cache-entidades.expiracao:10m}") Duration expiracao) {
+        // Um gerenciador por contexto: contextos na mesma JVM (testes, benchmarks) não dividem regiões
+        CacheManager gerenciador = Caching.getCachingProvider(CaffeineCachingProvider.class.getName())
+            .getCacheManager(URI.create("psoft-wallet:" + UUID.randomUUID()), getClass().getClassLoader());
+
+        gerenciador.createCache(ATIVOS, regiao(maximoAtivos, expiracao));
+        gerenciador.createCache(CLIENTES, regiao(maximoClientes, expiracao));
+        return gerenciador;
+    }
+
+    @Bean
+    HibernatePropertiesCustomizer cacheSegundoNivelHibernate(CacheManager cacheSegundoNivel) {
+        return propriedades -> propriedades.put(ConfigSettings.CACHE_MANAGER, cacheSegundoNivel);
+    }
+
+    private static CaffeineConfiguration<Object, Object> regiao(long tamanhoMaximo, Duration expiracao) {
+        CaffeineConfiguration<Object, Object> configuracao = new CaffeineConfiguration<>();
+        configuracao.setMaximumSize(OptionalLong.of(tamanhoMaximo));
+        configuracao.setExpireAfterWrite(OptionalLong.of(expiracao.toNanos()));
+        return configuracao;
+    }
+}
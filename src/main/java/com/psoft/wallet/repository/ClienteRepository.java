@@ -1,9 +1,34 @@
 package com.psoft.wallet.repository;
 
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
+import org.springframework.data.domain.Limit;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
+import com.psoft.wallet.dto.ClienteResumo;
 import com.psoft.wallet.model.Cliente;
+import java.util.Collection;
 import java.util.Optional;
+import java.util.List;
+import java.util.stream.Stream;
 
 public interface ClienteRepository extends JpaRepository<Cliente, Long> {
     Optional<Cliente> findByCodigoAcesso(String codigoAcesso);
-} 
\ No newline at end of file
+
+    // Projeções para leitura: o código de acesso nunca é selecionado
+    List<ClienteResumo> findAllByOrderByIdAsc();
+
+    Optional<ClienteResumo> findResumoByCodigoAcesso(String codigoAcesso);
+
+    // Paginação por chave (id): cada página é uma busca pelo índice da chave primária
+    List<ClienteResumo> findByIdGreaterThanOrderByIdAsc(Long id, Limit limite);
+
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "500"))
+    Stream<ClienteResumo> streamAllByOrderByIdAsc();
+
+    // Quais destes códigos já pertencem a algum cliente (usado na importação, um bloco por vez)
+    @Query("SELECT c.codigoAcesso FROM Cliente c WHERE c.codigoAcesso IN :codigos")
+    List<String> findCodigosAcessoEmUso(@Param("codigos") Collection<String> codigos);
+}
@@ -1,64 +1,330 @@
 package com.psoft.wallet.service;
 
+import com.fasterxml.jackson.databind.MappingIterator;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.http.HttpStatus;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+import com.psoft.wallet.dto.AtivoResumo;
+import com.psoft.wallet.dto.AtualizacaoValor;
+import com.psoft.wallet.dto.Cotacao;
+import com.psoft.wallet.dto.Pagina;
+import com.psoft.wallet.dto.ProgressoImportacao;
+import com.psoft.wallet.dto.ResultadoAtualizacaoValor;
+import com.psoft.wallet.historico.HistoricoPrecos;
 import com.psoft.wallet.model.Ativo;
+import com.psoft.wallet.model.Preco;
+import com.psoft.wallet.model.TipoPlano;
 import com.psoft.wallet.repository.AtivoRepository;
 
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.SortedMap;
+import java.util.TreeMap;
+import java.util.function.Consumer;
+import java.util.function.Predicate;
 
 @Service
 public class AtivoService {
+    private static final String MENSAGEM_VARIACAO_INVALIDA = "Variação mínima de 1% não atingida";
+    private static final int MAXIMO_TENTATIVAS = 3;
+
     private final AtivoRepository repository;
+    private final CatalogoAtivos catalogo;
+    private final PersistenciaPrecos persistenciaPrecos;
+    private final TransmissaoAtivos transmissao;
+    private final HistoricoPrecos historico;
+    private final TravasAtivos travas;
+    private final TransactionTemplate transactionTemplate;
+    private final int tamanhoBlocoImportacao;
 
-    public AtivoService(AtivoRepository repository) {
+    public AtivoService(AtivoRepository repository, CatalogoAtivos catalogo, PersistenciaPrecos persistenciaPrecos,
+                        TransmissaoAtivos transmissao, HistoricoPrecos historico, TravasAtivos travas,
+                        TransactionTemplate transactionTemplate,
+                        @Value("${wallet.importacao.tamanho-bloco:500}") int tamanhoBlocoImportacao) {
         this.repository = repository;
+        this.catalogo = catalogo;
+        this.persistenciaPrecos = persistenciaPrecos;
+        this.transmissao = transmissao;
+        this.historico = historico;
+        this.travas = travas;
+        this.transactionTemplate = transactionTemplate;
+        this.tamanhoBlocoImportacao = tamanhoBlocoImportacao;
     }
 
     public Ativo criarAtivo(Ativo ativo) {
-        // Verificar se já existe um ativo com o mesmo nome
-        if (repository.findByNome(ativo.getNome()).isPresent()) {
-            throw new AtivoNomeDuplicadoException("Já existe um ativo com o nome '" + ativo.getNome() + "'");
+        // Verificar nome duplicado em memória; o índice único cobre o que o catálogo não vê
+        String nome = ativo.getNome();
+        if (!catalogo.reservarNome(nome)) {
+            throw new AtivoNomeDuplicadoException(mensagemNomeDuplicado(nome));
+        }
+
+        Ativo ativoSalvo;
+        try {
+            ativoSalvo = repository.saveAndFlush(ativo);
+        } catch (DataIntegrityViolationException ex) {
+            catalogo.liberarNome(nome);
+            throw new AtivoNomeDuplicadoException(mensagemNomeDuplicado(nome));
+        } catch (RuntimeException ex) {
+            catalogo.liberarNome(nome);
+            throw ex;
         }
-        return repository.save(ativo);
+        catalogo.registrar(ativoSalvo);
+        // Cotação inicial: primeiro ponto do histórico
+        historico.registrar(ativoSalvo.getId(), Instant.now(), ativoSalvo.getValorAtual());
+        return ativoSalvo;
     }
 
-    public Ativo atualizarValor(Long id, float novoValor) {
-        Ativo ativo = repository.findById(id)
-            .orElseThrow(() -> new AtivoNaoEncontradoException("Ativo com ID " + id + " não encontrado"));
+    // Mesma regra de nome único de criarAtivo, gravando em blocos de tamanhoBlocoImportacao, cada um
+    // em uma transação. Ativos importados entram no histórico a partir da primeira cotação
+    public ProgressoImportacao importarAtivos(MappingIterator<Ativo> registros, Consumer<Object> eventos) {
+        return ImportacaoEmBlocos.executar(registros, tamanhoBlocoImportacao, this::gravarBloco, eventos);
+    }
+
+    public AtivoResumo atualizarValor(Long id, long novoValor) {
+        // Validação e gravação sob a trava do ativo: a variação é sempre calculada sobre o último valor aceito
+        AtivoResumo atualizado = travas.executar(id, () -> {
+            long valorAtual = catalogo.preco(id);
+            if (valorAtual == TabelaPrecos.AUSENTE) {
+                throw new AtivoNaoEncontradoException("Ativo com ID " + id + " não encontrado");
+            }
+
+            if (!Preco.variacaoMinimaAtingida(valorAtual, novoValor)) {
+                throw new VariacaoInvalidaException(MENSAGEM_VARIACAO_INVALIDA);
+            }
 
-        float variacao = Math.abs((novoValor - ativo.getValorAtual()) / ativo.getValorAtual());
-        if (variacao < 0.01f) {
-            throw new VariacaoInvalidaException("Variação mínima de 1% não atingida");
+            if (!persistenciaPrecos.gravar(id, novoValor)) {
+                // Recusado pelo banco: o ativo foi removido ou o valor gravado difere do catálogo
+                Ativo gravado = repository.findById(id)
+                    .orElseThrow(() -> new AtivoNaoEncontradoException("Ativo com ID " + id + " não encontrado"));
+                catalogo.registrar(gravado);
+                throw new VariacaoInvalidaException(MENSAGEM_VARIACAO_INVALIDA);
+            }
+            historico.registrar(id, Instant.now(), novoValor);
+            return AtivoResumo.de(catalogo.atualizarValor(id, novoValor));
+        });
+        transmissao.publicar(id);
+        return atualizado;
+    }
+
+    public List<ResultadoAtualizacaoValor> atualizarValores(List<AtualizacaoValor> atualizacoes) {
+        // Validado antes das travas: uma cotação sem id recusa o lote inteiro
+        for (int i = 0; i < atualizacoes.size(); i++) {
+            AtualizacaoValor atualizacao = atualizacoes.get(i);
+            if (atualizacao == null || atualizacao.id() == null) {
+                throw new IllegalArgumentException("Cotação sem id na posição " + i + " do lote");
+            }
         }
 
-        ativo.setValorAtual(novoValor);
-        return repository.save(ativo);
+        List<ResultadoAtualizacaoValor> resultados = new ArrayList<>(atualizacoes.size());
+        List<Long> ids = atualizacoes.stream().map(AtualizacaoValor::id).toList();
+        Map<Long, Long> aceitos = travas.executar(ids, () -> aplicarValores(atualizacoes, resultados));
+        aceitos.keySet().forEach(transmissao::publicar);
+        return resultados;
     }
 
     public void removerAtivo(Long id) {
-        if (!repository.existsById(id)) {
+        travas.executar(id, () -> {
+            if (!repository.existsById(id)) {
+                throw new AtivoNaoEncontradoException("Ativo com ID " + id + " não encontrado");
+            }
+            repository.deleteById(id);
+            persistenciaPrecos.descartar(id);
+            historico.remover(id);
+            catalogo.remover(id);
+            return null;
+        });
+    }
+
+    public AtivoResumo ativarDesativarAtivo(Long id, boolean ativo) {
+        AtivoResumo ativoSalvo = travas.executar(id, () -> {
+            // A gravação assíncrona de cotações pode alterar a mesma linha: tenta de novo com a versão atual
+            for (int tentativa = 1; ; tentativa++) {
+                try {
+                    return AtivoResumo.de(alterarDisponibilidade(id, ativo));
+                } catch (OptimisticLockingFailureException ex) {
+                    if (tentativa == MAXIMO_TENTATIVAS) {
+                        throw ex;
+                    }
+                }
+            }
+        });
+        transmissao.publicar(id);
+        return ativoSalvo;
+    }
+
+    public List<Cotacao> listarHistorico(Long id, Instant de, Instant ate) {
+        List<Cotacao> cotacoes = new ArrayList<>();
+        percorrerHistorico(id, de, ate, cotacoes::add);
+        return cotacoes;
+    }
+
+    public void percorrerHistorico(Long id, Instant de, Instant ate, Consumer<Cotacao> consumidor) {
+        validarConsultaHistorico(id, de, ate);
+        historico.percorrer(id, de, ate, consumidor);
+    }
+
+    public void validarConsultaHistorico(Long id, Instant de, Instant ate) {
+        if (catalogo.buscar(id).isEmpty()) {
             throw new AtivoNaoEncontradoException("Ativo com ID " + id + " não encontrado");
         }
-        repository.deleteById(id);
+        if (de != null && ate != null && de.isAfter(ate)) {
+            throw new IllegalArgumentException("Início do intervalo deve ser anterior ao fim");
+        }
     }
 
-    public Ativo ativarDesativarAtivo(Long id, boolean ativo) {
-        Ativo ativoEncontrado = repository.findById(id)
+    // Muda a cada alteração de qualquer ativo; identifica as listas completas do catálogo
+    public VersaoCatalogo versaoCatalogo() {
+        return catalogo.versao();
+    }
+
+    // Detalhe do ativo: último valor aceito, do catálogo, e a descrição, lida do banco
+    public Ativo buscarAtivo(Long id) {
+        Ativo ativo = catalogo.buscar(id)
+            .map(CatalogoAtivos::copiar)
             .orElseThrow(() -> new AtivoNaoEncontradoException("Ativo com ID " + id + " não encontrado"));
-        
-        ativoEncontrado.setDisponivel(ativo);
-        return repository.save(ativoEncontrado);
+        ativo.setDescricao(repository.findDescricaoById(id).orElse(null));
+        return ativo;
+    }
+
+    public List<AtivoResumo> listarAtivosDisponiveis() {
+        return resumir(catalogo.listarDisponiveis());
+    }
+
+    public VisaoPlano listarAtivosDisponiveisParaPlano(TipoPlano plano) {
+        return catalogo.visaoDoPlano(plano);
+    }
+
+    public List<AtivoResumo> listarAtivosIndisponiveis() {
+        return resumir(catalogo.listarIndisponiveis());
     }
 
-    public List<Ativo> listarAtivosDisponiveis() {
-        return repository.findByDisponivelTrue();
+    public List<AtivoResumo> listarTodosAtivos() {
+        return resumir(catalogo.listarTodos());
     }
 
-    public List<Ativo> listarAtivosIndisponiveis() {
-        return repository.findByDisponivelFalse();
+    public Pagina<AtivoResumo> listarTodosAtivos(long apos, int limite) {
+        return paginar(apos, limite, ativo -> true);
+    }
+
+    public Pagina<AtivoResumo> listarAtivosDisponiveis(long apos, int limite) {
+        return paginar(apos, limite, Ativo::isDisponivel);
+    }
+
+    public Pagina<AtivoResumo> listarAtivosIndisponiveis(long apos, int limite) {
+        return paginar(apos, limite, ativo -> !ativo.isDisponivel());
+    }
+
+    private Pagina<AtivoResumo> paginar(long apos, int limite, Predicate<Ativo> filtro) {
+        Pagina.validarLimite(limite);
+        return Pagina.de(resumir(catalogo.listarApos(apos, limite, filtro)), limite, AtivoResumo::id);
+    }
+
+    private static List<AtivoResumo> resumir(List<Ativo> ativos) {
+        return ativos.stream().map(AtivoResumo::de).toList();
+    }
+
+    // Chamado com as travas de todos os ativos do lote; devolve o último valor aceito de cada ativo
+    private Map<Long, Long> aplicarValores(List<AtualizacaoValor> atualizacoes,
+                                            List<ResultadoAtualizacaoValor> resultados) {
+        // Cotações repetidas do mesmo ativo são validadas contra o valor já atualizado no lote
+        Map<Long, Long> valoresAtuais = new HashMap<>();
+        Map<Long, Long> aceitos = new LinkedHashMap<>();
+        // Todas as cotações aceitas, inclusive as repetidas, vão para o histórico
+        List<AtualizacaoValor> cotacoes = new ArrayList<>();
+
+        for (AtualizacaoValor atualizacao : atualizacoes) {
+            Long id = atualizacao.id();
+            Long repetido = valoresAtuais.get(id);
+            long valorAtual = repetido != null ? repetido : catalogo.preco(id);
+            if (valorAtual == TabelaPrecos.AUSENTE) {
+                resultados.add(ResultadoAtualizacaoValor.falha(id, HttpStatus.NOT_FOUND,
+                    "Ativo com ID " + id + " não encontrado"));
+                continue;
+            }
+
+            if (!Preco.variacaoMinimaAtingida(valorAtual, atualizacao.novoValor())) {
+                resultados.add(ResultadoAtualizacaoValor.falha(id, HttpStatus.BAD_REQUEST,
+                    MENSAGEM_VARIACAO_INVALIDA));
+                continue;
+            }
+
+            valoresAtuais.put(id, atualizacao.novoValor());
+            aceitos.put(id, atualizacao.novoValor());
+            cotacoes.add(atualizacao);
+            resultados.add(ResultadoAtualizacaoValor.sucesso(id, atualizacao.novoValor()));
+        }
+
+        // Uma única transação (e um único findAllById) para todas as cotações aceitas
+        persistenciaPrecos.gravar(aceitos);
+        Instant agora = Instant.now();
+        cotacoes.forEach(cotacao -> historico.registrar(cotacao.id(), agora, cotacao.novoValor()));
+        aceitos.forEach(catalogo::atualizarValor);
+        return aceitos;
+    }
+
+    private SortedMap<Long, String> gravarBloco(List<ImportacaoEmBlocos.Registro<Ativo>> bloco) {
+        SortedMap<Long, String> recusados = new TreeMap<>();
+        List<ImportacaoEmBlocos.Registro<Ativo>> reservados = new ArrayList<>(bloco.size());
+        for (ImportacaoEmBlocos.Registro<Ativo> registro : bloco) {
+            Ativo ativo = registro.valor();
+            // A importação só cria ativos
+            ativo.setId(null);
+            ativo.setVersao(null);
+            if (catalogo.reservarNome(ativo.getNome())) {
+                reservados.add(registro);
+            } else {
+                recusados.put(registro.numero(), mensagemNomeDuplicado(ativo.getNome()));
+            }
+        }
+        if (reservados.isEmpty()) {
+            return recusados;
+        }
+
+        List<Ativo> ativos = reservados.stream().map(ImportacaoEmBlocos.Registro::valor).toList();
+        List<Ativo> salvos;
+        try {
+            salvos = transactionTemplate.execute(status -> repository.saveAll(ativos));
+        } catch (DataIntegrityViolationException ex) {
+            // Nome gravado por fora do catálogo: grava um a um para saber qual
+            ativos.forEach(ativo -> catalogo.liberarNome(ativo.getNome()));
+            for (ImportacaoEmBlocos.Registro<Ativo> registro : reservados) {
+                registro.valor().setId(null);
+                registro.valor().setVersao(null);
+                try {
+                    criarAtivo(registro.valor());
+                } catch (AtivoNomeDuplicadoException duplicado) {
+                    recusados.put(registro.numero(), duplicado.getMessage());
+                }
+            }
+            return recusados;
+        } catch (RuntimeException ex) {
+            ativos.forEach(ativo -> catalogo.liberarNome(ativo.getNome()));
+            throw ex;
+        }
+        catalogo.registrarTodos(salvos);
+        return recusados;
+    }
+
+    private Ativo alterarDisponibilidade(Long id, boolean ativo) {
+        Ativo ativoEncontrado = repository.findById(id)
+            .orElseThrow(() -> new AtivoNaoEncontradoException("Ativo com ID " + id + " não encontrado"));
+
+        ativoEncontrado.setDisponivel(ativo);
+        // Preservar a última cotação aceita, que pode ainda não ter sido gravada
+        catalogo.buscar(id).ifPresent(atual -> ativoEncontrado.setValorAtual(atual.getValorAtual()));
+        Ativo ativoSalvo = repository.save(ativoEncontrado);
+        catalogo.registrar(ativoSalvo);
+        return ativoSalvo;
     }
 
-    public List<Ativo> listarTodosAtivos() {
-        return repository.findAll();
+    private static String mensagemNomeDuplicado(String nome) {
+        return "Já existe um ativo com o nome '" + nome + "'";
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,270 @@
+package com.psoft.wallet.service;
+
+import jakarta.annotation.PostConstruct;
+import org.springframework.stereotype.Component;
+import com.psoft.wallet.dto.AtivoResumo;
+import com.psoft.wallet.model.Ativo;
+import com.psoft.wallet.model.TipoPlano;
+import com.psoft.wallet.repository.AtivoRepository;
+
+import java.util.Collection;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentNavigableMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Predicate;
+
+/**
+ * Cópia em memória da tabela de ativos, usada para servir as leituras do catálogo
+ * sem consultar o banco. É carregada na inicialização e mantida pelo {@link AtivoService};
+ * os objetos devolvidos são compartilhados entre as requisições e não devem ser alterados.
+ * A descrição dos ativos não é mantida: é lida do banco só no detalhe de um ativo.
+ *
+ * <p>Alterações estruturais (registro, remoção, disponibilidade) passam pelo lock de escrita.
+ * Uma cotação troca só o ativo e o seu preço, sem o lock, e apenas marca como desatualizadas as
+ * listas afetadas: o catálogo inteiro e a {@link VisaoPlano} de cada {@link TipoPlano} que tem o
+ * ativo. Cada lista tem uma {@link VersaoCatalogo}, e a visão de um plano só é remontada quando
+ * é pedida depois de uma alteração.
+ */
+@Component
+public class CatalogoAtivos {
+    private final AtivoRepository repository;
+
+    // Ordenado por id, na mesma ordem em que o banco devolve os ativos
+    private final ConcurrentNavigableMap<Long, Ativo> ativos = new ConcurrentSkipListMap<>();
+    // Último preço aceito de cada ativo, para a validação de cotações sem alocação
+    private final TabelaPrecos precos = new TabelaPrecos();
+    // Nomes em uso, incluindo os reservados por criações ainda não concluídas
+    private final Set<String> nomes = ConcurrentHashMap.newKeySet();
+    // ReentrantLock em vez de synchronized: não prende a thread portadora quando
+    // uma thread virtual espera pelo lock ou pela consulta de recarregar()
+    private final ReentrantLock escrita = new ReentrantLock();
+    // Muda a cada inicialização, para que a ETag de uma execução anterior nunca coincida
+    private final String origem = Long.toString(System.currentTimeMillis(), 36);
+    private final Alteracoes alteracoes = new Alteracoes();
+    private final Map<TipoPlano, Plano> planos = new EnumMap<>(TipoPlano.class);
+
+    public CatalogoAtivos(AtivoRepository repository) {
+        this.repository = repository;
+        for (TipoPlano plano : TipoPlano.values()) {
+            planos.put(plano, new Plano());
+        }
+    }
+
+    @PostConstruct
+    public void recarregar() {
+        escrita.lock();
+        try {
+            List<Ativo> carregados = repository.findAll();
+            ativos.clear();
+            nomes.clear();
+            precos.limpar();
+            carregados.forEach(ativo -> {
+                ativos.put(ativo.getId(), copiar(ativo));
+                precos.gravar(ativo.getId(), ativo.getValorAtual());
+                reservarNome(ativo.getNome());
+            });
+            alterarTudo();
+        } finally {
+            escrita.unlock();
+        }
+    }
+
+    // Para importações: as listas são marcadas uma vez, em vez de uma vez por ativo
+    public void registrarTodos(Collection<Ativo> novos) {
+        escrita.lock();
+        try {
+            novos.forEach(ativo -> {
+                ativos.put(ativo.getId(), copiar(ativo));
+                precos.gravar(ativo.getId(), ativo.getValorAtual());
+                reservarNome(ativo.getNome());
+            });
+            alterarTudo();
+        } finally {
+            escrita.unlock();
+        }
+    }
+
+    // Deve ser lida antes da lista correspondente: se houver uma alteração entre as duas
+    // leituras, a lista enviada é mais nova que a versão, e não o contrário
+    public VersaoCatalogo versao() {
+        return alteracoes.versao(origem);
+    }
+
+    // TabelaPrecos.AUSENTE se o ativo não está no catálogo
+    public long preco(Long id) {
+        return precos.ler(id);
+    }
+
+    public Optional<Ativo> buscar(Long id) {
+        return id == null ? Optional.empty() : Optional.ofNullable(ativos.get(id));
+    }
+
+    public List<Ativo> listarTodos() {
+        return List.copyOf(ativos.values());
+    }
+
+    public List<Ativo> listarDisponiveis() {
+        return ativos.values().stream()
+            .filter(Ativo::isDisponivel)
+            .toList();
+    }
+
+    public List<Ativo> listarIndisponiveis() {
+        return ativos.values().stream()
+            .filter(ativo -> !ativo.isDisponivel())
+            .toList();
+    }
+
+    // Até "limite" ativos com id maior que "apos", percorrendo o mapa já ordenado
+    public List<Ativo> listarApos(long apos, int limite, Predicate<Ativo> filtro) {
+        return ativos.tailMap(apos, false).values().stream()
+            .filter(filtro)
+            .limit(limite)
+            .toList();
+    }
+
+    // Remontada só se o plano foi alterado desde a última montagem; uma montagem por vez
+    public VisaoPlano visaoDoPlano(TipoPlano plano) {
+        Plano estado = planos.get(plano);
+        VisaoPlano visao = estado.visao;
+        if (visao != null && visao.versao().numero() == estado.alteracoes.numero()) {
+            return visao;
+        }
+
+        estado.montagem.lock();
+        try {
+            // A versão é lida antes dos ativos, pela mesma regra de versao()
+            VersaoCatalogo versao = estado.alteracoes.versao(origem);
+            visao = estado.visao;
+            if (visao == null || visao.versao().numero() != versao.numero()) {
+                List<AtivoResumo> doPlano = ativos.values().stream()
+                    .filter(ativo -> pertence(plano, ativo))
+                    .map(AtivoResumo::de)
+                    .toList();
+                visao = new VisaoPlano(plano, versao, doPlano);
+                estado.visao = visao;
+            }
+            return visao;
+        } finally {
+            estado.montagem.unlock();
+        }
+    }
+
+    // Reserva atômica: devolve false se o nome já pertence a outro ativo ou a outra criação em andamento
+    public boolean reservarNome(String nome) {
+        return nome == null || nomes.add(nome);
+    }
+
+    public void liberarNome(String nome) {
+        if (nome != null) {
+            nomes.remove(nome);
+        }
+    }
+
+    public void registrar(Ativo ativo) {
+        Ativo novo = copiar(ativo);
+        escrita.lock();
+        try {
+            Ativo anterior = ativos.put(novo.getId(), novo);
+            precos.gravar(novo.getId(), novo.getValorAtual());
+            reservarNome(novo.getNome());
+            alterar(anterior, novo);
+        } finally {
+            escrita.unlock();
+        }
+    }
+
+    // Sem o lock de escrita: chamado sob a trava do ativo, que já o protege de outra alteração
+    public Ativo atualizarValor(Long id, long valorAtual) {
+        Ativo atualizado = ativos.computeIfPresent(id, (chave, anterior) -> {
+            Ativo copia = copiar(anterior);
+            copia.setValorAtual(valorAtual);
+            return copia;
+        });
+        if (atualizado == null) {
+            return null;
+        }
+        precos.atualizar(id, valorAtual);
+        // O preço não muda a que planos o ativo pertence
+        alterar(atualizado, atualizado);
+        return atualizado;
+    }
+
+    public void remover(Long id) {
+        escrita.lock();
+        try {
+            Ativo anterior = ativos.remove(id);
+            if (anterior != null) {
+                liberarNome(anterior.getNome());
+                precos.remover(id);
+                alterar(anterior, null);
+            }
+        } finally {
+            escrita.unlock();
+        }
+    }
+
+    // Depois da alteração aplicada: quem lê a versão nova vê a alteração
+    private void alterar(Ativo anterior, Ativo novo) {
+        for (TipoPlano plano : TipoPlano.values()) {
+            boolean estava = anterior != null && pertence(plano, anterior);
+            boolean esta = novo != null && pertence(plano, novo);
+            if (estava || esta) {
+                planos.get(plano).alteracoes.incrementar();
+            }
+        }
+        alteracoes.incrementar();
+    }
+
+    private void alterarTudo() {
+        planos.values().forEach(estado -> estado.alteracoes.incrementar());
+        alteracoes.incrementar();
+    }
+
+    private static boolean pertence(TipoPlano plano, Ativo ativo) {
+        return ativo.isDisponivel() && plano.permite(ativo.getTipo());
+    }
+
+    // Sem a descrição: ler o atributo lazy de uma entidade carregada iria ao banco
+    static Ativo copiar(Ativo ativo) {
+        Ativo copia = new Ativo();
+        copia.setId(ativo.getId());
+        copia.setNome(ativo.getNome());
+        copia.setTipo(ativo.getTipo());
+        copia.setDisponivel(ativo.isDisponivel());
+        copia.setValorAtual(ativo.getValorAtual());
+        copia.setVersao(ativo.getVersao());
+        return copia;
+    }
+
+    // Contador de alterações de uma lista, incrementado sem lock
+    private static final class Alteracoes {
+        private final AtomicLong numero = new AtomicLong(1);
+
+        void incrementar() {
+            numero.incrementAndGet();
+        }
+
+        long numero() {
+            return numero.get();
+        }
+
+        VersaoCatalogo versao(String origem) {
+            return new VersaoCatalogo(origem, numero.get());
+        }
+    }
+
+    private static final class Plano {
+        private final Alteracoes alteracoes = new Alteracoes();
+        private final ReentrantLock montagem = new ReentrantLock();
+        // Última visão montada; desatualizada se a versão é menor que o contador
+        private volatile VisaoPlano visao;
+    }
+}
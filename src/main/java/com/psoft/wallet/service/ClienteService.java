@@ -1,53 +1,112 @@
 package com.psoft.wallet.service;
 
+import com.fasterxml.jackson.databind.MappingIterator;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.data.domain.Limit;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+import com.psoft.wallet.dto.ClienteResumo;
+import com.psoft.wallet.dto.Pagina;
+import com.psoft.wallet.dto.ProgressoImportacao;
+import com.psoft.wallet.dto.SessaoCliente;
 import com.psoft.wallet.model.Cliente;
 import com.psoft.wallet.repository.ClienteRepository;
 
+import java.time.Duration;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.SortedMap;
+import java.util.TreeMap;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
 
 @Service
 public class ClienteService {
+    private static final String MENSAGEM_CODIGO_INVALIDO = "Código de acesso deve ter exatamente 6 dígitos";
+    private static final String MENSAGEM_CODIGO_EM_USO = "Código de acesso já está em uso";
+    private static final String MENSAGEM_SEM_CREDENCIAL = "Token de sessão ou código de acesso é obrigatório";
+    private static final String PREFIXO_BEARER = "Bearer ";
+
     private final ClienteRepository repository;
+    private final TransactionTemplate transactionTemplate;
+    private final TokensSessao tokens;
+    private final int tamanhoBlocoImportacao;
+
+    // Resultado das validações de acesso bem-sucedidas, por código
+    private final Cache<String, ClienteResumo> acessosValidados;
 
-    public ClienteService(ClienteRepository repository) {
+    public ClienteService(ClienteRepository repository,
+                          TransactionTemplate transactionTemplate,
+                          TokensSessao tokens,
+                          @Value("${wallet.clientes.cache-acesso.tamanho-maximo:100000}") long tamanhoMaximo,
+                          @Value("${wallet.clientes.cache-acesso.expiracao:10m}") Duration expiracao,
+                          @Value("${wallet.importacao.tamanho-bloco:500}") int tamanhoBlocoImportacao) {
         this.repository = repository;
+        this.transactionTemplate = transactionTemplate;
+        this.tokens = tokens;
+        this.tamanhoBlocoImportacao = tamanhoBlocoImportacao;
+        this.acessosValidados = Caffeine.newBuilder()
+            .maximumSize(tamanhoMaximo)
+            .expireAfterWrite(expiracao)
+            .build();
     }
 
     public Cliente criarCliente(Cliente cliente) {
         // Validar código de acesso (6 dígitos)
-        if (cliente.getCodigoAcesso() == null || cliente.getCodigoAcesso().length() != 6 || 
-            !cliente.getCodigoAcesso().matches("\\d{6}")) {
-            throw new IllegalArgumentException("Código de acesso deve ter exatamente 6 dígitos");
+        if (!codigoAcessoValido(cliente.getCodigoAcesso())) {
+            throw new IllegalArgumentException(MENSAGEM_CODIGO_INVALIDO);
         }
         
-        return repository.save(cliente);
+        return salvar(cliente);
     }
 
-    public List<Cliente> listarTodosClientes() {
-        List<Cliente> clientes = repository.findAll();
-        // Não exibir códigos de acesso nas operações de leitura
-        clientes.forEach(cliente -> cliente.setCodigoAcesso(null));
-        return clientes;
+    // Mesmas regras de criarCliente, gravando em blocos de tamanhoBlocoImportacao, cada um em uma transação
+    public ProgressoImportacao importarClientes(MappingIterator<Cliente> registros, Consumer<Object> eventos) {
+        return ImportacaoEmBlocos.executar(registros, tamanhoBlocoImportacao, this::gravarBloco, eventos);
     }
 
-    public Cliente buscarClientePorId(Long id) {
-        Cliente cliente = repository.findById(id)
+    @Transactional(readOnly = true)
+    public List<ClienteResumo> listarTodosClientes() {
+        // Projeção sem código de acesso: nenhuma entidade gerenciada para verificar
+        return repository.findAllByOrderByIdAsc();
+    }
+
+    public Pagina<ClienteResumo> listarClientes(long apos, int limite) {
+        Pagina.validarLimite(limite);
+        return Pagina.de(repository.findByIdGreaterThanOrderByIdAsc(apos, Limit.of(limite)), limite, ClienteResumo::id);
+    }
+
+    @Transactional(readOnly = true)
+    public void transmitirClientes(Consumer<ClienteResumo> consumidor) {
+        // Projeções não ficam no contexto de persistência: a memória não cresce com o número de linhas
+        try (Stream<ClienteResumo> clientes = repository.streamAllByOrderByIdAsc()) {
+            clientes.forEach(consumidor);
+        }
+    }
+
+    @Transactional(readOnly = true)
+    public ClienteResumo buscarClientePorId(Long id) {
+        // Busca pela entidade para aproveitar o cache de segundo nível
+        return repository.findById(id)
+            .map(ClienteResumo::de)
             .orElseThrow(() -> new ClienteNaoEncontradoException("Cliente com ID " + id + " não encontrado"));
-        
-        // Não exibir código de acesso
-        cliente.setCodigoAcesso(null);
-        return cliente;
     }
 
-    public Cliente editarCliente(Long id, Cliente cliente, String codigoAcesso) {
+    public ClienteResumo editarCliente(Long id, Cliente cliente, String autorizacao, String codigoAcesso) {
+        Sessao sessao = sessaoInformada(id, autorizacao, codigoAcesso);
         Cliente clienteExistente = repository.findById(id)
             .orElseThrow(() -> new ClienteNaoEncontradoException("Cliente com ID " + id + " não encontrado"));
 
-        // Verificar código de acesso
-        if (codigoAcesso == null || !codigoAcesso.equals(clienteExistente.getCodigoAcesso())) {
-            throw new CodigoAcessoIncorretoException("Código de acesso incorreto ou não informado");
+        // Sem token, verificar código de acesso
+        if (sessao == null) {
+            verificarCodigoAcesso(clienteExistente, codigoAcesso);
         }
+        String codigoAnterior = clienteExistente.getCodigoAcesso();
 
         // Validar novo código de acesso se fornecido
         if (cliente.getCodigoAcesso() != null) {
@@ -64,34 +123,147 @@ public class ClienteService {
             clienteExistente.setCodigoAcesso(cliente.getCodigoAcesso());
         }
 
-        Cliente clienteSalvo = repository.save(clienteExistente);
+        Cliente clienteSalvo = salvar(clienteExistente);
+        // Nome e plano mudaram: a validação em cache do código antigo não vale mais
+        acessosValidados.invalidate(codigoAnterior);
+        acessosValidados.invalidate(clienteSalvo.getCodigoAcesso());
+        // Código trocado: quem tinha o antigo perde as sessões abertas com ele
+        if (!codigoAnterior.equals(clienteSalvo.getCodigoAcesso())) {
+            tokens.revogar(id);
+        }
+
         // Não retornar código de acesso
-        clienteSalvo.setCodigoAcesso(null);
-        return clienteSalvo;
+        return ClienteResumo.de(clienteSalvo);
     }
 
-    public void removerCliente(Long id, String codigoAcesso) {
+    public void removerCliente(Long id, String autorizacao, String codigoAcesso) {
+        Sessao sessao = sessaoInformada(id, autorizacao, codigoAcesso);
         Cliente cliente = repository.findById(id)
             .orElseThrow(() -> new ClienteNaoEncontradoException("Cliente com ID " + id + " não encontrado"));
 
-        // Verificar código de acesso
-        if (codigoAcesso == null || !codigoAcesso.equals(cliente.getCodigoAcesso())) {
-            throw new CodigoAcessoIncorretoException("Código de acesso incorreto ou não informado");
+        // Sem token, verificar código de acesso
+        if (sessao == null) {
+            verificarCodigoAcesso(cliente, codigoAcesso);
         }
 
         repository.deleteById(id);
+        acessosValidados.invalidate(cliente.getCodigoAcesso());
+        tokens.revogar(id);
+    }
+
+    public SessaoCliente iniciarSessao(String codigoAcesso) {
+        // Única verificação do código: as requisições seguintes apresentam o token
+        return tokens.emitir(listarAtivosPorPlano(codigoAcesso).get(0));
     }
 
-    public List<Cliente> listarAtivosPorPlano(String codigoAcesso) {
+    // Pelo token de sessão, sem consulta ao banco; sem token, pelo código de acesso
+    public Sessao autenticar(String autorizacao, String codigoAcesso) {
+        if (autorizacao != null) {
+            return tokens.verificar(token(autorizacao));
+        }
+        if (codigoAcesso == null) {
+            throw new IllegalArgumentException(MENSAGEM_SEM_CREDENCIAL);
+        }
+        ClienteResumo cliente = listarAtivosPorPlano(codigoAcesso).get(0);
+        return new Sessao(cliente.id(), cliente.plano());
+    }
+
+    public List<ClienteResumo> listarAtivosPorPlano(String codigoAcesso) {
         if (codigoAcesso == null) {
             throw new CodigoAcessoIncorretoException("Código de acesso é obrigatório");
         }
 
-        Cliente cliente = repository.findByCodigoAcesso(codigoAcesso)
-            .orElseThrow(() -> new CodigoAcessoIncorretoException("Código de acesso incorreto"));
+        // Códigos incorretos não são guardados: só acessos válidos evitam a consulta
+        ClienteResumo cliente = acessosValidados.get(codigoAcesso, codigo -> repository.findResumoByCodigoAcesso(codigo)
+            .orElse(null));
+        if (cliente == null) {
+            throw new CodigoAcessoIncorretoException("Código de acesso incorreto");
+        }
 
         // Retornar apenas o cliente (sem código de acesso) para validação
-        cliente.setCodigoAcesso(null);
         return List.of(cliente);
     }
+
+    public void limparCacheAcessos() {
+        acessosValidados.invalidateAll();
+    }
+
+    private SortedMap<Long, String> gravarBloco(List<ImportacaoEmBlocos.Registro<Cliente>> bloco) {
+        SortedMap<Long, String> recusados = new TreeMap<>();
+        Map<String, ImportacaoEmBlocos.Registro<Cliente>> porCodigo = new LinkedHashMap<>();
+        for (ImportacaoEmBlocos.Registro<Cliente> registro : bloco) {
+            Cliente cliente = registro.valor();
+            // A importação só cria clientes
+            cliente.setId(null);
+            if (!codigoAcessoValido(cliente.getCodigoAcesso())) {
+                recusados.put(registro.numero(), MENSAGEM_CODIGO_INVALIDO);
+            } else if (porCodigo.putIfAbsent(cliente.getCodigoAcesso(), registro) != null) {
+                recusados.put(registro.numero(), MENSAGEM_CODIGO_EM_USO);
+            }
+        }
+        if (porCodigo.isEmpty()) {
+            return recusados;
+        }
+
+        // Uma consulta por bloco para os códigos já gravados, inclusive pelos blocos anteriores
+        for (String codigo : repository.findCodigosAcessoEmUso(porCodigo.keySet())) {
+            recusados.put(porCodigo.remove(codigo).numero(), MENSAGEM_CODIGO_EM_USO);
+        }
+
+        List<Cliente> validos = porCodigo.values().stream().map(ImportacaoEmBlocos.Registro::valor).toList();
+        try {
+            transactionTemplate.executeWithoutResult(status -> repository.saveAll(validos));
+        } catch (DataIntegrityViolationException ex) {
+            // Código criado por outra requisição durante o bloco: grava um a um para saber qual
+            for (ImportacaoEmBlocos.Registro<Cliente> registro : porCodigo.values()) {
+                registro.valor().setId(null);
+                try {
+                    salvar(registro.valor());
+                } catch (CodigoAcessoDuplicadoException duplicado) {
+                    recusados.put(registro.numero(), duplicado.getMessage());
+                }
+            }
+        }
+        return recusados;
+    }
+
+    // Sessão do token, que deve ser do próprio cliente; null quando a autorização é pelo código de acesso
+    private Sessao sessaoInformada(Long id, String autorizacao, String codigoAcesso) {
+        if (autorizacao == null) {
+            if (codigoAcesso == null) {
+                throw new IllegalArgumentException(MENSAGEM_SEM_CREDENCIAL);
+            }
+            return null;
+        }
+        Sessao sessao = tokens.verificar(token(autorizacao));
+        if (!sessao.clienteId().equals(id)) {
+            throw new OperacaoNaoAutorizadaException("Token de sessão de outro cliente");
+        }
+        return sessao;
+    }
+
+    private static void verificarCodigoAcesso(Cliente cliente, String codigoAcesso) {
+        if (!codigoAcesso.equals(cliente.getCodigoAcesso())) {
+            throw new CodigoAcessoIncorretoException("Código de acesso incorreto ou não informado");
+        }
+    }
+
+    private static String token(String autorizacao) {
+        if (!autorizacao.regionMatches(true, 0, PREFIXO_BEARER, 0, PREFIXO_BEARER.length())) {
+            throw new CodigoAcessoIncorretoException("Token de sessão inválido");
+        }
+        return autorizacao.substring(PREFIXO_BEARER.length()).trim();
+    }
+
+    private static boolean codigoAcessoValido(String codigoAcesso) {
+        return codigoAcesso != null && codigoAcesso.matches("\\d{6}");
+    }
+
+    private Cliente salvar(Cliente cliente) {
+        try {
+            return repository.saveAndFlush(cliente);
+        } catch (DataIntegrityViolationException ex) {
+            throw new CodigoAcessoDuplicadoException(MENSAGEM_CODIGO_EM_USO);
+        }
+    }
 } 
\ No newline at end of file
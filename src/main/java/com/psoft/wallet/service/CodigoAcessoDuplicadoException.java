@@ -0,0 +1,11 @@
+package com.psoft.wallet.service;
+
+import org.springframework.http.HttpStatus;
+import org.springframework.web.bind.annotation.ResponseStatus;
+
+@ResponseStatus(HttpStatus.CONFLICT)
+public class CodigoAcessoDuplicadoException extends RuntimeException {
+    public CodigoAcessoDuplicadoException(String message) {
+        super(message);
+    }
+}
\ No newline at end of file
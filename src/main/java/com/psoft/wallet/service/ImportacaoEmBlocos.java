@@ -0,0 +1,90 @@
+package com.psoft.wallet.service;
+
+import com.fasterxml.jackson.databind.JsonMappingException;
+import com.fasterxml.jackson.databind.MappingIterator;
+import com.psoft.wallet.dto.ErroImportacao;
+import com.psoft.wallet.dto.ProgressoImportacao;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SortedMap;
+import java.util.function.Consumer;
+import java.util.function.Function;
+
+/**
+ * Conduz uma importação: lê os registros um a um, agrupa-os em blocos e entrega cada bloco
+ * para ser gravado em sua própria transação. Só o bloco atual fica em memória; erros e
+ * progresso são enviados ao consumidor à medida que acontecem.
+ */
+final class ImportacaoEmBlocos {
+
+    // Registro lido e sua posição no arquivo
+    record Registro<T>(long numero, T valor) {
+    }
+
+    private ImportacaoEmBlocos() {
+    }
+
+    /**
+     * @param gravarBloco grava os registros válidos do bloco e devolve os recusados, por número, com o motivo
+     */
+    static <T> ProgressoImportacao executar(MappingIterator<T> registros, int tamanhoBloco,
+                                           Function<List<Registro<T>>, SortedMap<Long, String>> gravarBloco,
+                                           Consumer<Object> eventos) {
+        long processados = 0;
+        long importados = 0;
+        long erros = 0;
+        List<Registro<T>> bloco = new ArrayList<>(tamanhoBloco);
+
+        while (true) {
+            long numero = processados + 1;
+            T valor;
+            try {
+                if (!registros.hasNextValue()) {
+                    break;
+                }
+                valor = registros.nextValue();
+            } catch (JsonMappingException ex) {
+                // Campo com tipo ou valor inválido: o leitor continua no registro seguinte
+                processados++;
+                erros++;
+                eventos.accept(new ErroImportacao(numero, "Registro inválido: " + ex.getOriginalMessage()));
+                continue;
+            } catch (IOException ex) {
+                // Conteúdo malformado: não há como encontrar o início do próximo registro
+                processados++;
+                erros++;
+                eventos.accept(new ErroImportacao(numero, "Conteúdo malformado, importação interrompida: " + ex.getMessage()));
+                break;
+            }
+
+            processados++;
+            bloco.add(new Registro<>(numero, valor));
+            if (bloco.size() == tamanhoBloco) {
+                long recusados = gravar(bloco, gravarBloco, eventos);
+                erros += recusados;
+                importados += bloco.size() - recusados;
+                bloco.clear();
+                eventos.accept(new ProgressoImportacao(processados, importados, erros, false));
+            }
+        }
+
+        if (!bloco.isEmpty()) {
+            long recusados = gravar(bloco, gravarBloco, eventos);
+            erros += recusados;
+            importados += bloco.size() - recusados;
+        }
+        ProgressoImportacao fim = new ProgressoImportacao(processados, importados, erros, true);
+        eventos.accept(fim);
+        return fim;
+    }
+
+    private static <T> long gravar(List<Registro<T>> bloco,
+                                   Function<List<Registro<T>>, SortedMap<Long, String>> gravarBloco,
+                                   Consumer<Object> eventos) {
+        SortedMap<Long, String> recusados = gravarBloco.apply(bloco);
+        recusados.forEach((numero, mensagem) -> eventos.accept(new ErroImportacao(numero, mensagem)));
+        return recusados.size();
+    }
+}
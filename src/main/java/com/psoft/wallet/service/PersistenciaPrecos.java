@@ -0,0 +1,109 @@
+package com.psoft.wallet.service;
+
+import jakarta.annotation.PreDestroy;
+import jakarta.persistence.Cache;
+import jakarta.persistence.EntityManagerFactory;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+import com.psoft.wallet.model.Ativo;
+import com.psoft.wallet.repository.AtivoRepository;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Grava no banco as cotações aceitas pelo {@link AtivoService}. Com a escrita assíncrona
+ * habilitada, as cotações ficam pendentes por ativo (só a mais recente é mantida) e são
+ * gravadas periodicamente em um único lote.
+ */
+@Slf4j
+@Component
+public class PersistenciaPrecos {
+    private final AtivoRepository repository;
+    private final TransactionTemplate transactionTemplate;
+    private final Cache cacheEntidades;
+    private final boolean escritaAssincrona;
+    private final ConcurrentMap<Long, Long> pendentes = new ConcurrentHashMap<>();
+
+    public PersistenciaPrecos(AtivoRepository repository,
+                              TransactionTemplate transactionTemplate,
+                              EntityManagerFactory entityManagerFactory,
+                              @Value("${wallet.precos.escrita-assincrona:true}") boolean escritaAssincrona) {
+        this.repository = repository;
+        this.transactionTemplate = transactionTemplate;
+        this.cacheEntidades = entityManagerFactory.getCache();
+        this.escritaAssincrona = escritaAssincrona;
+    }
+
+    public void gravar(Map<Long, Long> precos) {
+        if (precos.isEmpty()) {
+            return;
+        }
+        if (escritaAssincrona) {
+            pendentes.putAll(precos);
+        } else {
+            gravarAgora(precos);
+        }
+    }
+
+    // Uma única cotação, já validada contra o catálogo. No modo síncrono é um só UPDATE
+    // condicional, que o banco recusa (devolvendo false) se o ativo não existe ou se a variação
+    // sobre o valor gravado não chega a 1%
+    public boolean gravar(Long id, long valor) {
+        if (escritaAssincrona) {
+            pendentes.put(id, valor);
+            return true;
+        }
+        boolean gravada = repository.atualizarValorComVariacaoMinima(id, valor) == 1;
+        // O UPDATE não passa pelo cache de segundo nível: descarta só a entrada deste ativo,
+        // inclusive na recusa, para que a releitura do AtivoService venha do banco
+        cacheEntidades.evict(Ativo.class, id);
+        return gravada;
+    }
+
+    public void descartar(Long id) {
+        pendentes.remove(id);
+    }
+
+    @Scheduled(fixedDelayString = "${wallet.precos.intervalo-escrita-ms:200}")
+    public void descarregar() {
+        if (pendentes.isEmpty()) {
+            return;
+        }
+
+        Map<Long, Long> lote = new HashMap<>();
+        for (Long id : pendentes.keySet()) {
+            Long valor = pendentes.remove(id);
+            if (valor != null) {
+                lote.put(id, valor);
+            }
+        }
+
+        try {
+            gravarAgora(lote);
+        } catch (RuntimeException ex) {
+            // Devolve o lote sem sobrescrever cotações que chegaram depois
+            lote.forEach(pendentes::putIfAbsent);
+            log.error("Falha ao gravar {} cotações pendentes", lote.size(), ex);
+        }
+    }
+
+    @PreDestroy
+    public void encerrar() {
+        descarregar();
+    }
+
+    private void gravarAgora(Map<Long, Long> precos) {
+        // Uma consulta para o lote; os UPDATEs saem agrupados no commit
+        transactionTemplate.executeWithoutResult(status -> {
+            for (Ativo ativo : repository.findAllById(precos.keySet())) {
+                ativo.setValorAtual(precos.get(ativo.getId()));
+            }
+        });
+    }
+}
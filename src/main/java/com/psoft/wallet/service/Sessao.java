@@ -0,0 +1,7 @@
+package com.psoft.wallet.service;
+
+import com.psoft.wallet.model.TipoPlano;
+
+// Cliente autenticado por token de sessão ou código de acesso
+public record Sessao(Long clienteId, TipoPlano plano) {
+}
@@ -0,0 +1,98 @@
+package com.psoft.wallet.service;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Último preço aceito de cada ativo, em ponto fixo, num vetor de {@code long} indexado pelo id.
+ * Os ids vêm de uma sequência, então o vetor é denso; ler ou gravar um preço não aloca nada.
+ *
+ * <p>Leituras não travam, e {@link #atualizar(long, long)} troca o preço de um ativo já gravado
+ * também sem travar. As demais gravações (que podem trocar o vetor por um maior) devem ser feitas
+ * sempre sob o mesmo lock; no {@link CatalogoAtivos}, é o lock de escrita. Ao crescer, o vetor
+ * novo é publicado antes da cópia, para que uma atualização concorrente não se perca.
+ */
+public final class TabelaPrecos {
+    public static final long AUSENTE = Long.MIN_VALUE;
+    private static final int CAPACIDADE_INICIAL = 1024;
+    private static final int CAPACIDADE_MAXIMA = Integer.MAX_VALUE - 8;
+
+    private volatile AtomicLongArray precos = vazia(CAPACIDADE_INICIAL);
+    // Vetor substituído, enquanto seus preços ainda são copiados para o atual
+    private volatile AtomicLongArray anterior;
+
+    // AUSENTE se o ativo não existe
+    public long ler(long id) {
+        AtomicLongArray atual = precos;
+        if (id < 0 || id >= atual.length()) {
+            return AUSENTE;
+        }
+        long preco = atual.getAcquire((int) id);
+        if (preco == AUSENTE) {
+            // Pode ser uma posição ainda não copiada do vetor anterior
+            AtomicLongArray copiando = anterior;
+            preco = copiando != null && id < copiando.length()
+                ? copiando.get((int) id)
+                : atual.get((int) id);
+        }
+        return preco;
+    }
+
+    public void gravar(long id, long preco) {
+        if (id < 0 || id >= CAPACIDADE_MAXIMA) {
+            throw new IllegalArgumentException("Id fora da faixa da tabela de preços: " + id);
+        }
+        AtomicLongArray atual = precos;
+        if (id >= atual.length()) {
+            atual = crescer(atual, (int) id + 1);
+        }
+        atual.setRelease((int) id, preco);
+    }
+
+    // Sem lock: só para ativos já gravados, chamada sob a trava do ativo. Se o vetor foi trocado
+    // durante a gravação, grava também no novo
+    public void atualizar(long id, long preco) {
+        AtomicLongArray atual = precos;
+        if (id < 0 || id >= atual.length()) {
+            throw new IllegalArgumentException("Id fora da faixa da tabela de preços: " + id);
+        }
+        atual.set((int) id, preco);
+        AtomicLongArray novo;
+        while ((novo = precos) != atual) {
+            atual = novo;
+            atual.set((int) id, preco);
+        }
+    }
+
+    public void remover(long id) {
+        AtomicLongArray atual = precos;
+        if (id >= 0 && id < atual.length()) {
+            atual.setRelease((int) id, AUSENTE);
+        }
+    }
+
+    public void limpar() {
+        precos = vazia(CAPACIDADE_INICIAL);
+    }
+
+    private AtomicLongArray crescer(AtomicLongArray atual, int minimo) {
+        int capacidade = (int) Math.min(CAPACIDADE_MAXIMA, Math.max((long) atual.length() * 2, minimo));
+        AtomicLongArray maior = vazia(capacidade);
+        anterior = atual;
+        precos = maior;
+        // Uma atualização que já chegou ao vetor novo prevalece sobre a cópia; uma que só chegou
+        // ao antigo terminou antes da publicação e é vista aqui
+        for (int i = 0; i < atual.length(); i++) {
+            maior.compareAndSet(i, AUSENTE, atual.get(i));
+        }
+        anterior = null;
+        return maior;
+    }
+
+    private static AtomicLongArray vazia(int capacidade) {
+        AtomicLongArray vazia = new AtomicLongArray(capacidade);
+        for (int i = 0; i < capacidade; i++) {
+            vazia.setPlain(i, AUSENTE);
+        }
+        return vazia;
+    }
+}
@@ -0,0 +1,145 @@
+package com.psoft.wallet.service;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import com.psoft.wallet.dto.ClienteResumo;
+import com.psoft.wallet.dto.SessaoCliente;
+import com.psoft.wallet.model.TipoPlano;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+import java.nio.ByteBuffer;
+import java.security.GeneralSecurityException;
+import java.security.MessageDigest;
+import java.security.SecureRandom;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import java.util.Base64;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Tokens de sessão dos clientes. O código de acesso é verificado uma vez, no login; o token
+ * carrega o id, o plano e a geração do cliente e a expiração, assinados com HMAC-SHA256, e é
+ * verificado só com a chave e a geração em memória, sem consultar o banco. O plano é o do
+ * momento do login: uma edição do cliente vale para os tokens emitidos depois dela.
+ * <p>
+ * A troca do código de acesso e a remoção do cliente avançam a geração ({@link #revogar}), e os
+ * tokens emitidos antes passam a ser recusados. As gerações ficam na memória da instância: com um
+ * {@code wallet.sessao.segredo} fixo, depois de um reinício ou em outra instância, um token
+ * revogado volta a valer até expirar.
+ * <p>
+ * Sem {@code wallet.sessao.segredo}, a chave é sorteada na subida: os tokens não sobrevivem a
+ * um reinício nem valem em outra instância.
+ */
+@Component
+public class TokensSessao {
+    private static final String ALGORITMO = "HmacSHA256";
+    private static final int TAMANHO_MINIMO_CHAVE = 32;
+    // id (8 bytes), plano (1), geração (4) e expiração em segundos desde a época (8)
+    private static final int TAMANHO_DADOS = Long.BYTES + 1 + Integer.BYTES + Long.BYTES;
+    private static final TipoPlano[] PLANOS = TipoPlano.values();
+    private static final Base64.Encoder CODIFICADOR = Base64.getUrlEncoder().withoutPadding();
+    private static final Base64.Decoder DECODIFICADOR = Base64.getUrlDecoder();
+
+    private final SecretKeySpec chave;
+    private final Duration duracao;
+    // Mac não é thread-safe: uma instância por thread, criada uma vez
+    private final ThreadLocal<Mac> macs;
+    // Geração atual por cliente; ausente é a geração 0
+    private final ConcurrentMap<Long, Integer> geracoes = new ConcurrentHashMap<>();
+
+    public TokensSessao(@Value("${wallet.sessao.segredo:}") String segredo,
+                        @Value("${wallet.sessao.duracao:15m}") Duration duracao) {
+        byte[] bytes;
+        if (segredo.isBlank()) {
+            bytes = new byte[TAMANHO_MINIMO_CHAVE];
+            new SecureRandom().nextBytes(bytes);
+        } else {
+            bytes = Base64.getDecoder().decode(segredo);
+        }
+        if (bytes.length < TAMANHO_MINIMO_CHAVE) {
+            throw new IllegalArgumentException(
+                "wallet.sessao.segredo deve ter pelo menos " + TAMANHO_MINIMO_CHAVE + " bytes (em Base64)");
+        }
+        this.chave = new SecretKeySpec(bytes, ALGORITMO);
+        this.duracao = duracao;
+        this.macs = ThreadLocal.withInitial(this::novoMac);
+    }
+
+    public SessaoCliente emitir(ClienteResumo cliente) {
+        Instant expiraEm = Instant.now().plus(duracao).truncatedTo(ChronoUnit.SECONDS);
+        byte[] dados = ByteBuffer.allocate(TAMANHO_DADOS)
+            .putLong(cliente.id())
+            .put((byte) cliente.plano().ordinal())
+            .putInt(geracao(cliente.id()))
+            .putLong(expiraEm.getEpochSecond())
+            .array();
+        String token = CODIFICADOR.encodeToString(dados) + "." + CODIFICADOR.encodeToString(assinar(dados));
+        return new SessaoCliente(token, expiraEm, cliente);
+    }
+
+    public Sessao verificar(String token) {
+        int ponto = token.indexOf('.');
+        if (ponto < 0) {
+            throw invalido();
+        }
+
+        byte[] dados;
+        byte[] assinatura;
+        try {
+            dados = DECODIFICADOR.decode(token.substring(0, ponto));
+            assinatura = DECODIFICADOR.decode(token.substring(ponto + 1));
+        } catch (IllegalArgumentException ex) {
+            throw invalido();
+        }
+        // Comparação em tempo constante: o tempo de resposta não revela quantos bytes conferem
+        if (dados.length != TAMANHO_DADOS || !MessageDigest.isEqual(assinar(dados), assinatura)) {
+            throw invalido();
+        }
+
+        ByteBuffer leitura = ByteBuffer.wrap(dados);
+        long id = leitura.getLong();
+        int plano = leitura.get();
+        int geracao = leitura.getInt();
+        long expiraEm = leitura.getLong();
+        if (plano < 0 || plano >= PLANOS.length) {
+            throw invalido();
+        }
+        if (Instant.now().getEpochSecond() >= expiraEm) {
+            throw new CodigoAcessoIncorretoException("Token de sessão expirado");
+        }
+        if (geracao != geracao(id)) {
+            throw new CodigoAcessoIncorretoException("Token de sessão revogado");
+        }
+        return new Sessao(id, PLANOS[plano]);
+    }
+
+    // Recusa os tokens já emitidos para o cliente; os emitidos depois valem normalmente
+    public void revogar(Long clienteId) {
+        geracoes.merge(clienteId, 1, Integer::sum);
+    }
+
+    private int geracao(long clienteId) {
+        return geracoes.getOrDefault(clienteId, 0);
+    }
+
+    private byte[] assinar(byte[] dados) {
+        return macs.get().doFinal(dados);
+    }
+
+    private Mac novoMac() {
+        try {
+            Mac mac = Mac.getInstance(ALGORITMO);
+            mac.init(chave);
+            return mac;
+        } catch (GeneralSecurityException ex) {
+            throw new IllegalStateException("HMAC indisponível", ex);
+        }
+    }
+
+    private static CodigoAcessoIncorretoException invalido() {
+        return new CodigoAcessoIncorretoException("Token de sessão inválido");
+    }
+}
@@ -0,0 +1,203 @@
+package com.psoft.wallet.service;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Component;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+import com.psoft.wallet.dto.AtivoResumo;
+import com.psoft.wallet.model.Ativo;
+import com.psoft.wallet.model.TipoPlano;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.EnumMap;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Envia aos clientes inscritos, por Server-Sent Events, as mudanças de cotação e de
+ * disponibilidade dos ativos. Cada inscrito recebe apenas os tipos de ativo permitidos
+ * pelo seu {@link TipoPlano}.
+ *
+ * <p>{@link #publicar(Long)} só marca o ativo como alterado: várias mudanças do mesmo ativo
+ * antes do próximo despacho viram um único evento, com o estado atual lido do
+ * {@link CatalogoAtivos}. O despacho serializa cada ativo uma vez e o coloca na fila de cada
+ * inscrito; cada fila é enviada por uma thread virtual própria, de modo que um cliente lento
+ * não atrasa os demais. Um inscrito cuja fila enche é desconectado (o EventSource reconecta
+ * e recebe os próximos eventos).
+ */
+@Slf4j
+@Component
+public class TransmissaoAtivos {
+    private static final String EVENTO = "ativo";
+
+    private final CatalogoAtivos catalogo;
+    private final ObjectMapper objectMapper;
+    private final long timeout;
+    private final int tamanhoFila;
+    private final Counter descartados;
+    private final Map<TipoPlano, Set<Inscrito>> inscritos = new EnumMap<>(TipoPlano.class);
+
+    // Ativos alterados desde o último despacho, na ordem da primeira alteração
+    private Set<Long> alterados = new LinkedHashSet<>();
+    private final Semaphore sinal = new Semaphore(0);
+    private volatile boolean encerrado;
+    private final Thread despacho;
+    private final ExecutorService envios = Executors.newVirtualThreadPerTaskExecutor();
+
+    public TransmissaoAtivos(CatalogoAtivos catalogo,
+                             ObjectMapper objectMapper,
+                             MeterRegistry meterRegistry,
+                             @Value("${wallet.eventos.timeout:30m}") Duration timeout,
+                             @Value("${wallet.eventos.fila-por-inscrito:256}") int tamanhoFila) {
+        this.catalogo = catalogo;
+        this.objectMapper = objectMapper;
+        this.timeout = timeout.toMillis();
+        this.tamanhoFila = tamanhoFila;
+        this.descartados = meterRegistry.counter("wallet.eventos.descartados");
+        for (TipoPlano plano : TipoPlano.values()) {
+            Set<Inscrito> doPlano = ConcurrentHashMap.newKeySet();
+            inscritos.put(plano, doPlano);
+            Gauge.builder("wallet.eventos.inscritos", doPlano, Set::size)
+                .tag("plano", plano.name())
+                .register(meterRegistry);
+        }
+        this.despacho = Thread.ofPlatform().name("transmissao-ativos").daemon().start(this::despachar);
+    }
+
+    public SseEmitter inscrever(TipoPlano plano) {
+        // Ao expirar, o EventSource do navegador reconecta sozinho
+        return inscrever(plano, new SseEmitter(timeout));
+    }
+
+    SseEmitter inscrever(TipoPlano plano, SseEmitter emitter) {
+        Set<Inscrito> doPlano = inscritos.get(plano);
+        Inscrito inscrito = new Inscrito(emitter, new ArrayBlockingQueue<>(tamanhoFila));
+        emitter.onCompletion(() -> doPlano.remove(inscrito));
+        emitter.onTimeout(() -> doPlano.remove(inscrito));
+        emitter.onError(erro -> doPlano.remove(inscrito));
+        doPlano.add(inscrito);
+        return emitter;
+    }
+
+    public void publicar(Long id) {
+        boolean novo;
+        synchronized (this) {
+            novo = alterados.add(id);
+        }
+        if (novo) {
+            sinal.release();
+        }
+    }
+
+    @PreDestroy
+    public void encerrar() {
+        encerrado = true;
+        despacho.interrupt();
+        envios.shutdownNow();
+        inscritos.values().forEach(doPlano -> doPlano.forEach(inscrito -> inscrito.emitter().complete()));
+    }
+
+    private void despachar() {
+        while (!encerrado) {
+            try {
+                sinal.acquire();
+            } catch (InterruptedException ex) {
+                return;
+            }
+            sinal.drainPermits();
+
+            Set<Long> lote;
+            synchronized (this) {
+                lote = alterados;
+                alterados = new LinkedHashSet<>();
+            }
+            for (Long id : lote) {
+                try {
+                    catalogo.buscar(id).ifPresent(this::distribuir);
+                } catch (RuntimeException ex) {
+                    log.error("Falha ao despachar o evento do ativo {}", id, ex);
+                }
+            }
+        }
+    }
+
+    private void distribuir(Ativo ativo) {
+        String json;
+        try {
+            // Serializado uma vez para todos os inscritos
+            json = objectMapper.writeValueAsString(AtivoResumo.de(ativo));
+        } catch (JsonProcessingException ex) {
+            log.error("Falha ao serializar o ativo {}", ativo.getId(), ex);
+            return;
+        }
+
+        for (TipoPlano plano : TipoPlano.values()) {
+            if (!plano.permite(ativo.getTipo())) {
+                continue;
+            }
+            for (Inscrito inscrito : inscritos.get(plano)) {
+                if (!inscrito.fila().offer(json)) {
+                    // Ficou para trás: desconecta em vez de esperar por ele
+                    descartar(plano, inscrito, null);
+                } else if (inscrito.enviando().compareAndSet(false, true)) {
+                    envios.execute(() -> enviar(plano, inscrito));
+                }
+            }
+        }
+    }
+
+    // Roda em uma thread virtual por inscrito; no máximo uma por vez para cada inscrito
+    private void enviar(TipoPlano plano, Inscrito inscrito) {
+        do {
+            String json;
+            while ((json = inscrito.fila().poll()) != null) {
+                try {
+                    inscrito.emitter().send(SseEmitter.event()
+                        .name(EVENTO)
+                        .data(json, MediaType.APPLICATION_JSON));
+                } catch (IOException | IllegalStateException ex) {
+                    // Conexão encerrada pelo cliente
+                    descartar(plano, inscrito, ex);
+                    return;
+                }
+            }
+            inscrito.enviando().set(false);
+            // Evento colocado na fila entre o último poll e a liberação: continua enviando
+        } while (!inscrito.fila().isEmpty() && inscrito.enviando().compareAndSet(false, true));
+    }
+
+    private void descartar(TipoPlano plano, Inscrito inscrito, Exception erro) {
+        if (!inscritos.get(plano).remove(inscrito)) {
+            return;
+        }
+        inscrito.fila().clear();
+        if (erro != null) {
+            inscrito.emitter().completeWithError(erro);
+        } else {
+            descartados.increment();
+            inscrito.emitter().complete();
+        }
+    }
+
+    private record Inscrito(SseEmitter emitter, BlockingQueue<String> fila, AtomicBoolean enviando) {
+        Inscrito(SseEmitter emitter, BlockingQueue<String> fila) {
+            this(emitter, fila, new AtomicBoolean());
+        }
+    }
+}
@@ -0,0 +1,67 @@
+package com.psoft.wallet.service;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.Collection;
+import java.util.TreeSet;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Supplier;
+
+/**
+ * Travas por ativo, distribuídas em faixas: operações sobre o mesmo ativo são serializadas,
+ * e ativos em faixas diferentes são alterados em paralelo. A quantidade de faixas limita a
+ * memória usada, independentemente do número de ativos.
+ */
+@Component
+class TravasAtivos {
+    private final ReentrantLock[] faixas;
+
+    TravasAtivos(@Value("${wallet.precos.faixas-trava:1024}") int quantidade) {
+        if (quantidade <= 0 || Integer.bitCount(quantidade) != 1) {
+            throw new IllegalArgumentException("Quantidade de faixas de trava deve ser uma potência de 2");
+        }
+        faixas = new ReentrantLock[quantidade];
+        for (int i = 0; i < quantidade; i++) {
+            faixas[i] = new ReentrantLock();
+        }
+    }
+
+    <T> T executar(Long id, Supplier<T> operacao) {
+        ReentrantLock trava = faixas[faixa(id)];
+        trava.lock();
+        try {
+            return operacao.get();
+        } finally {
+            trava.unlock();
+        }
+    }
+
+    // Trava as faixas de todos os ids, sempre em ordem crescente para não haver deadlock entre lotes
+    <T> T executar(Collection<Long> ids, Supplier<T> operacao) {
+        TreeSet<Integer> indices = new TreeSet<>();
+        ids.forEach(id -> indices.add(faixa(id)));
+
+        int travadas = 0;
+        try {
+            for (int indice : indices) {
+                faixas[indice].lock();
+                travadas++;
+            }
+            return operacao.get();
+        } finally {
+            for (int indice : indices) {
+                if (travadas-- == 0) {
+                    break;
+                }
+                faixas[indice].unlock();
+            }
+        }
+    }
+
+    private int faixa(Long id) {
+        // Espalha ids sequenciais entre as faixas
+        int hash = id == null ? 0 : Long.hashCode(id) * 0x9E3779B9;
+        return (hash ^ (hash >>> 16)) & (faixas.length - 1);
+    }
+}
@@ -0,0 +1,10 @@
+package com.psoft.wallet.service;
+
+// Versão de uma lista do catálogo. A origem muda a cada inicialização, para que a ETag
+// de uma execução anterior nunca coincida com a de uma lista diferente nesta
+public record VersaoCatalogo(String origem, long numero) {
+
+    public String etag() {
+        return origem + "-" + numero;
+    }
+}
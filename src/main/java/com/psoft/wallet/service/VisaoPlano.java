@@ -0,0 +1,14 @@
+package com.psoft.wallet.service;
+
+import com.psoft.wallet.dto.AtivoResumo;
+import com.psoft.wallet.model.TipoPlano;
+
+import java.util.List;
+
+// Ativos disponíveis para um plano; a versão muda sempre que a lista muda
+public record VisaoPlano(TipoPlano plano, VersaoCatalogo versao, List<AtivoResumo> ativos) {
+
+    public String etag() {
+        return plano.name() + "-" + versao.etag();
+    }
+}
@@ -0,0 +1,42 @@
+package com.psoft.wallet.replay;
+
+import java.util.Arrays;
+
+// Latências de um tipo de requisição, guardadas todas para percentis exatos no fim do replay
+final class Latencias {
+    private long[] valores = new long[1024];
+    private int quantidade;
+
+    synchronized void registrar(long nanos) {
+        if (quantidade == valores.length) {
+            valores = Arrays.copyOf(valores, quantidade * 2);
+        }
+        valores[quantidade++] = nanos;
+    }
+
+    synchronized Resumo resumir() {
+        long[] ordenados = Arrays.copyOf(valores, quantidade);
+        Arrays.sort(ordenados);
+        return new Resumo(ordenados);
+    }
+
+    record Resumo(long[] ordenados) {
+
+        int quantidade() {
+            return ordenados.length;
+        }
+
+        // Em milissegundos; percentil de 0 a 100, pelo método do posto mais próximo
+        double percentil(double percentil) {
+            if (ordenados.length == 0) {
+                return 0;
+            }
+            int posto = (int) Math.ceil(percentil / 100 * ordenados.length);
+            return ordenados[Math.max(0, posto - 1)] / 1e6;
+        }
+
+        double maximo() {
+            return ordenados.length == 0 ? 0 : ordenados[ordenados.length - 1] / 1e6;
+        }
+    }
+}
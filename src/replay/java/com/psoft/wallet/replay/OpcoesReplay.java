@@ -0,0 +1,85 @@
+package com.psoft.wallet.replay;
+
+import java.net.URI;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.format.DateTimeParseException;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+
+// Opções de linha de comando, no formato --chave=valor
+record OpcoesReplay(URI url,
+                    Path cotacoes,
+                    Path leituras,
+                    double leiturasPorSegundo,
+                    double velocidade,
+                    int concorrencia,
+                    Duration duracao,
+                    long semente) {
+
+    private static final Set<String> CHAVES = Set.of("url", "cotacoes", "leituras", "leituras-por-segundo",
+        "velocidade", "concorrencia", "duracao", "semente");
+
+    static final String USO = """
+        Uso: ./gradlew replay --args="--cotacoes=pregao.csv --leituras=codigos.txt [opções]"
+          --url=http://localhost:8080   aplicação em execução
+          --cotacoes=ARQUIVO            cotações gravadas, uma por linha: instante;id;valor
+                                        (instante em ISO-8601 ou em milissegundos desde 1970)
+          --leituras=ARQUIVO            códigos de acesso dos clientes, um por linha: codigo[;peso]
+          --leituras-por-segundo=50     leituras de /cliente/ativos/disponiveis, em tempo real
+          --velocidade=1                1 = tempo real; 10 = dez vezes mais rápido
+          --concorrencia=64             máximo de requisições em andamento
+          --duracao=60s                 tempo real simulado quando não há arquivo de cotações
+          --semente=42                  sorteio dos códigos de acesso, para repetir o mesmo replay""";
+
+    static OpcoesReplay ler(String[] args) {
+        Map<String, String> valores = new HashMap<>();
+        for (String arg : args) {
+            int igual = arg.indexOf('=');
+            if (!arg.startsWith("--") || igual < 0) {
+                throw new IllegalArgumentException("Opção inválida: " + arg);
+            }
+            String chave = arg.substring(2, igual);
+            if (!CHAVES.contains(chave)) {
+                throw new IllegalArgumentException("Opção desconhecida: --" + chave);
+            }
+            valores.put(chave, arg.substring(igual + 1));
+        }
+
+        OpcoesReplay opcoes = new OpcoesReplay(
+            URI.create(valores.getOrDefault("url", "http://localhost:8080")),
+            caminho(valores.get("cotacoes")),
+            caminho(valores.get("leituras")),
+            Double.parseDouble(valores.getOrDefault("leituras-por-segundo", "50")),
+            Double.parseDouble(valores.getOrDefault("velocidade", "1")),
+            Integer.parseInt(valores.getOrDefault("concorrencia", "64")),
+            duracao(valores.getOrDefault("duracao", "60s")),
+            Long.parseLong(valores.getOrDefault("semente", "42")));
+        opcoes.validar();
+        return opcoes;
+    }
+
+    private void validar() {
+        if (cotacoes == null && leituras == null) {
+            throw new IllegalArgumentException("Informe --cotacoes, --leituras ou ambos");
+        }
+        // Escrito com negações para recusar também NaN
+        if (!(velocidade > 0) || concorrencia <= 0 || !(leiturasPorSegundo >= 0) || duracao.isNegative()) {
+            throw new IllegalArgumentException("Velocidade, concorrência, leituras por segundo e duração devem ser positivas");
+        }
+    }
+
+    // Como em 60s, 5m ou 1h30m
+    private static Duration duracao(String valor) {
+        try {
+            return Duration.parse("PT" + valor);
+        } catch (DateTimeParseException ex) {
+            throw new IllegalArgumentException("Duração inválida: " + valor);
+        }
+    }
+
+    private static Path caminho(String valor) {
+        return valor == null || valor.isBlank() ? null : Path.of(valor);
+    }
+}
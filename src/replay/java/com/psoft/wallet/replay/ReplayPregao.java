@@ -0,0 +1,306 @@
+package com.psoft.wallet.replay;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.URLEncoder;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.SplittableRandom;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Reproduz um pregão gravado contra a aplicação em execução: as cotações do arquivo, no ritmo
+ * em que foram gravadas multiplicado pela velocidade, intercaladas com leituras de
+ * {@code /cliente/ativos/disponiveis} por clientes sorteados do arquivo de códigos de acesso.
+ *
+ * <p>As requisições saem no horário programado, sem esperar as anteriores (carga aberta), até o
+ * limite de concorrência. A latência é medida a partir do horário programado: se a aplicação
+ * atrasa e as requisições se acumulam, a espera entra nos percentis em vez de sumir.
+ *
+ * <p>Os erros são contados pelo status HTTP (400 em uma cotação: variação abaixo de 1%; 401 em
+ * uma leitura: código de acesso incorreto) e conferidos com o contador {@code wallet.erros} do
+ * Actuator, que a aplicação mantém por tipo de exceção.
+ */
+public final class ReplayPregao {
+    private static final String VARIACAO_INVALIDA = "VariacaoInvalidaException";
+    private static final String CODIGO_INCORRETO = "CodigoAcessoIncorretoException";
+    private static final Duration TIMEOUT = Duration.ofSeconds(30);
+
+    private final OpcoesReplay opcoes;
+    private final HttpClient http = HttpClient.newBuilder()
+        .version(HttpClient.Version.HTTP_1_1)
+        .connectTimeout(Duration.ofSeconds(5))
+        .build();
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    private final Latencias latenciasCotacoes = new Latencias();
+    private final Latencias latenciasLeituras = new Latencias();
+    private final AtomicLong variacoesInvalidas = new AtomicLong();
+    private final AtomicLong codigosIncorretos = new AtomicLong();
+    private final AtomicLong outrosErros = new AtomicLong();
+    private long atrasoMaximoDespacho;
+
+    private ReplayPregao(OpcoesReplay opcoes) {
+        this.opcoes = opcoes;
+    }
+
+    public static void main(String[] args) throws Exception {
+        OpcoesReplay opcoes;
+        try {
+            opcoes = OpcoesReplay.ler(args);
+        } catch (IllegalArgumentException ex) {
+            System.err.println(ex.getMessage());
+            System.err.println(OpcoesReplay.USO);
+            System.exit(2);
+            return;
+        }
+        new ReplayPregao(opcoes).executar();
+    }
+
+    private record CotacaoGravada(long instante, String id, String valor) {
+    }
+
+    private record Leitor(String codigoAcesso, double pesoAcumulado) {
+    }
+
+    private void executar() throws Exception {
+        List<CotacaoGravada> cotacoes = opcoes.cotacoes() == null ? List.of() : lerCotacoes(opcoes.cotacoes());
+        List<Leitor> leitores = opcoes.leituras() == null ? List.of() : lerLeitores(opcoes.leituras());
+
+        // Duração do replay em tempo real (a da gravação, se houver) e, dividida pela velocidade, em nanos
+        long duracaoGravada = cotacoes.isEmpty()
+            ? opcoes.duracao().toMillis()
+            : cotacoes.get(cotacoes.size() - 1).instante() - cotacoes.get(0).instante();
+        long fim = nanosDoReplay(duracaoGravada);
+        double leiturasPorSegundo = leitores.isEmpty() ? 0 : opcoes.leiturasPorSegundo() * opcoes.velocidade();
+        long intervaloLeituras = leiturasPorSegundo == 0 ? Long.MAX_VALUE : (long) (1e9 / leiturasPorSegundo);
+
+        System.out.printf(Locale.ROOT, "Replay de %d cotações e %.0f leituras/s contra %s, %sx, concorrência %d%n",
+            cotacoes.size(), leiturasPorSegundo, opcoes.url(), opcoes.velocidade(), opcoes.concorrencia());
+
+        double variacoesAntes = errosNoServidor(VARIACAO_INVALIDA);
+        double codigosAntes = errosNoServidor(CODIGO_INCORRETO);
+
+        SplittableRandom sorteio = new SplittableRandom(opcoes.semente());
+        Semaphore vagas = new Semaphore(opcoes.concorrencia());
+        long inicio = System.nanoTime();
+        try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            int proximaCotacao = 0;
+            long leiturasDespachadas = 0;
+            while (true) {
+                long horarioCotacao = proximaCotacao < cotacoes.size()
+                    ? nanosDoReplay(cotacoes.get(proximaCotacao).instante() - cotacoes.get(0).instante())
+                    : Long.MAX_VALUE;
+                long horarioLeitura = intervaloLeituras == Long.MAX_VALUE || leiturasDespachadas * intervaloLeituras > fim
+                    ? Long.MAX_VALUE
+                    : leiturasDespachadas * intervaloLeituras;
+                if (horarioCotacao == Long.MAX_VALUE && horarioLeitura == Long.MAX_VALUE) {
+                    break;
+                }
+
+                if (horarioCotacao <= horarioLeitura) {
+                    CotacaoGravada cotacao = cotacoes.get(proximaCotacao++);
+                    despachar(executor, vagas, inicio + horarioCotacao, requisicaoCotacao(cotacao),
+                        latenciasCotacoes, 400, variacoesInvalidas);
+                } else {
+                    Leitor leitor = sortear(leitores, sorteio.nextDouble());
+                    despachar(executor, vagas, inicio + horarioLeitura, requisicaoLeitura(leitor),
+                        latenciasLeituras, 401, codigosIncorretos);
+                    leiturasDespachadas++;
+                }
+            }
+        }
+        double segundos = (System.nanoTime() - inicio) / 1e9;
+
+        relatar(segundos,
+            errosNoServidor(VARIACAO_INVALIDA) - variacoesAntes,
+            errosNoServidor(CODIGO_INCORRETO) - codigosAntes);
+    }
+
+    private long nanosDoReplay(long milissegundosGravados) {
+        return (long) (milissegundosGravados * 1e6 / opcoes.velocidade());
+    }
+
+    // Espera o horário programado e uma vaga de concorrência; a requisição segue em uma thread virtual
+    private void despachar(ExecutorService executor, Semaphore vagas, long horario, HttpRequest requisicao,
+                           Latencias latencias, int statusErroEsperado, AtomicLong errosEsperados)
+            throws InterruptedException {
+        for (long espera = horario - System.nanoTime(); espera > 0; espera = horario - System.nanoTime()) {
+            LockSupport.parkNanos(espera);
+        }
+        vagas.acquire();
+        atrasoMaximoDespacho = Math.max(atrasoMaximoDespacho, System.nanoTime() - horario);
+
+        executor.execute(() -> {
+            try {
+                int status = http.send(requisicao, HttpResponse.BodyHandlers.discarding()).statusCode();
+                latencias.registrar(System.nanoTime() - horario);
+                if (status == statusErroEsperado) {
+                    errosEsperados.incrementAndGet();
+                } else if (status >= 400) {
+                    outrosErros.incrementAndGet();
+                }
+            } catch (IOException | InterruptedException ex) {
+                outrosErros.incrementAndGet();
+            } finally {
+                vagas.release();
+            }
+        });
+    }
+
+    private HttpRequest requisicaoCotacao(CotacaoGravada cotacao) {
+        URI uri = opcoes.url().resolve("/ativos/" + cotacao.id() + "/valor?novoValor=" + cotacao.valor());
+        return HttpRequest.newBuilder(uri)
+            .timeout(TIMEOUT)
+            .method("PATCH", HttpRequest.BodyPublishers.noBody())
+            .build();
+    }
+
+    private HttpRequest requisicaoLeitura(Leitor leitor) {
+        String codigo = URLEncoder.encode(leitor.codigoAcesso(), StandardCharsets.UTF_8);
+        URI uri = opcoes.url().resolve("/cliente/ativos/disponiveis?codigoAcesso=" + codigo);
+        return HttpRequest.newBuilder(uri)
+            .timeout(TIMEOUT)
+            .GET()
+            .build();
+    }
+
+    // Sorteio ponderado pelos pesos do arquivo de códigos de acesso
+    private static Leitor sortear(List<Leitor> leitores, double sorteado) {
+        double alvo = sorteado * leitores.get(leitores.size() - 1).pesoAcumulado();
+        int baixo = 0;
+        int alto = leitores.size() - 1;
+        while (baixo < alto) {
+            int meio = (baixo + alto) >>> 1;
+            if (leitores.get(meio).pesoAcumulado() <= alvo) {
+                baixo = meio + 1;
+            } else {
+                alto = meio;
+            }
+        }
+        return leitores.get(baixo);
+    }
+
+    // Contagem do Actuator para uma exceção; NaN se o Actuator não responde
+    private double errosNoServidor(String excecao) {
+        URI uri = opcoes.url().resolve("/actuator/metrics/wallet.erros?tag=excecao:" + excecao);
+        try {
+            HttpResponse<String> resposta = http.send(HttpRequest.newBuilder(uri).timeout(TIMEOUT).build(),
+                HttpResponse.BodyHandlers.ofString());
+            if (resposta.statusCode() == 404) {
+                // O contador só existe depois da primeira exceção
+                return 0;
+            }
+            if (resposta.statusCode() != 200) {
+                return Double.NaN;
+            }
+            for (JsonNode medida : objectMapper.readTree(resposta.body()).path("measurements")) {
+                if ("COUNT".equals(medida.path("statistic").asText())) {
+                    return medida.path("value").asDouble();
+                }
+            }
+            return 0;
+        } catch (IOException ex) {
+            return Double.NaN;
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            return Double.NaN;
+        }
+    }
+
+    private void relatar(double segundos, double variacoesNoServidor, double codigosNoServidor) {
+        Latencias.Resumo cotacoes = latenciasCotacoes.resumir();
+        Latencias.Resumo leituras = latenciasLeituras.resumir();
+        int total = cotacoes.quantidade() + leituras.quantidade();
+
+        System.out.printf(Locale.ROOT, "%nRequisições: %d em %.1f s (%.1f req/s)%n", total, segundos, total / segundos);
+        System.out.printf(Locale.ROOT, "%-10s %10s %10s %10s %10s %10s %10s %10s%n",
+            "", "total", "req/s", "p50 ms", "p90 ms", "p99 ms", "p99.9 ms", "máx ms");
+        linha("cotações", cotacoes, segundos);
+        linha("leituras", leituras, segundos);
+
+        System.out.printf(Locale.ROOT, "%nErros%n");
+        System.out.printf(Locale.ROOT, "  %-32s %8d (servidor: %s)%n", VARIACAO_INVALIDA, variacoesInvalidas.get(),
+            formatarContagem(variacoesNoServidor));
+        System.out.printf(Locale.ROOT, "  %-32s %8d (servidor: %s)%n", CODIGO_INCORRETO, codigosIncorretos.get(),
+            formatarContagem(codigosNoServidor));
+        System.out.printf(Locale.ROOT, "  %-32s %8d%n", "outros", outrosErros.get());
+        // Atraso alto: a concorrência limitou o despacho e a carga ficou abaixo da programada
+        System.out.printf(Locale.ROOT, "%nMaior atraso do despacho: %.1f ms%n",
+            TimeUnit.NANOSECONDS.toMicros(atrasoMaximoDespacho) / 1000.0);
+    }
+
+    private static void linha(String tipo, Latencias.Resumo resumo, double segundos) {
+        System.out.printf(Locale.ROOT, "%-10s %10d %10.1f %10.2f %10.2f %10.2f %10.2f %10.2f%n",
+            tipo, resumo.quantidade(), resumo.quantidade() / segundos,
+            resumo.percentil(50), resumo.percentil(90), resumo.percentil(99), resumo.percentil(99.9),
+            resumo.maximo());
+    }
+
+    private static String formatarContagem(double contagem) {
+        // Com outras requisições chegando à aplicação ao mesmo tempo, o servidor conta também as delas
+        return Double.isNaN(contagem) ? "Actuator indisponível" : String.format(Locale.ROOT, "%.0f", contagem);
+    }
+
+    // Linhas vazias e iniciadas por # são ignoradas; as cotações são ordenadas pelo instante
+    private static List<CotacaoGravada> lerCotacoes(Path arquivo) throws IOException {
+        List<CotacaoGravada> cotacoes = new ArrayList<>();
+        for (String linha : linhas(arquivo)) {
+            String[] campos = linha.split("[;,]");
+            if (campos.length != 3) {
+                throw new IllegalArgumentException("Cotação inválida em " + arquivo + ": " + linha);
+            }
+            cotacoes.add(new CotacaoGravada(instante(campos[0].strip()), campos[1].strip(), campos[2].strip()));
+        }
+        cotacoes.sort((a, b) -> Long.compare(a.instante(), b.instante()));
+        return cotacoes;
+    }
+
+    private static List<Leitor> lerLeitores(Path arquivo) throws IOException {
+        List<Leitor> leitores = new ArrayList<>();
+        double acumulado = 0;
+        for (String linha : linhas(arquivo)) {
+            String[] campos = linha.split(";");
+            double peso = campos.length > 1 ? Double.parseDouble(campos[1].strip()) : 1;
+            if (peso <= 0) {
+                throw new IllegalArgumentException("Peso inválido em " + arquivo + ": " + linha);
+            }
+            acumulado += peso;
+            leitores.add(new Leitor(campos[0].strip(), acumulado));
+        }
+        if (leitores.isEmpty()) {
+            throw new IllegalArgumentException("Nenhum código de acesso em " + arquivo);
+        }
+        return leitores;
+    }
+
+    private static List<String> linhas(Path arquivo) throws IOException {
+        return Files.readAllLines(arquivo).stream()
+            .map(String::strip)
+            .filter(linha -> !linha.isEmpty() && !linha.startsWith("#"))
+            .toList();
+    }
+
+    private static long instante(String texto) {
+        return texto.chars().allMatch(Character::isDigit)
+            ? Long.parseLong(texto)
+            : Instant.parse(texto).toEpochMilli();
+    }
+}
@@ -0,0 +1,93 @@
+package com.psoft.wallet.replay;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class LatenciasTest {
+
+    @Test
+    void testPercentisPeloPostoMaisProximo() {
+        // Given - 1 a 100 ms, fora de ordem
+        Latencias latencias = new Latencias();
+        for (int ms = 100; ms >= 1; ms--) {
+            latencias.registrar(TimeUnit.MILLISECONDS.toNanos(ms));
+        }
+
+        // When
+        Latencias.Resumo resumo = latencias.resumir();
+
+        // Then
+        assertEquals(100, resumo.quantidade());
+        assertEquals(1.0, resumo.percentil(0));
+        assertEquals(1.0, resumo.percentil(1));
+        assertEquals(50.0, resumo.percentil(50));
+        assertEquals(95.0, resumo.percentil(95));
+        assertEquals(99.0, resumo.percentil(99));
+        assertEquals(100.0, resumo.percentil(100));
+        assertEquals(100.0, resumo.maximo());
+    }
+
+    @Test
+    void testPercentilArredondaOPostoParaCima() {
+        // Given - Quatro amostras: o p50 é a segunda e o p51, a terceira
+        Latencias latencias = new Latencias();
+        latencias.registrar(TimeUnit.MILLISECONDS.toNanos(40));
+        latencias.registrar(TimeUnit.MILLISECONDS.toNanos(10));
+        latencias.registrar(TimeUnit.MILLISECONDS.toNanos(30));
+        latencias.registrar(TimeUnit.MILLISECONDS.toNanos(20));
+
+        // When
+        Latencias.Resumo resumo = latencias.resumir();
+
+        // Then
+        assertEquals(20.0, resumo.percentil(50));
+        assertEquals(30.0, resumo.percentil(51));
+        assertEquals(40.0, resumo.percentil(99.9));
+    }
+
+    @Test
+    void testSemAmostras() {
+        // When
+        Latencias.Resumo resumo = new Latencias().resumir();
+
+        // Then
+        assertEquals(0, resumo.quantidade());
+        assertEquals(0.0, resumo.percentil(99));
+        assertEquals(0.0, resumo.maximo());
+    }
+
+    @Test
+    void testGuardaAmostrasAlemDaCapacidadeInicial() {
+        // Given
+        Latencias latencias = new Latencias();
+        for (int i = 1; i <= 5000; i++) {
+            latencias.registrar(i * 1_000_000L);
+        }
+
+        // When
+        Latencias.Resumo resumo = latencias.resumir();
+
+        // Then - Nenhuma amostra perdida ao crescer
+        assertEquals(5000, resumo.quantidade());
+        assertEquals(2500.0, resumo.percentil(50));
+        assertEquals(5000.0, resumo.maximo());
+    }
+
+    @Test
+    void testResumoNaoMudaComRegistrosPosteriores() {
+        // Given
+        Latencias latencias = new Latencias();
+        latencias.registrar(TimeUnit.MILLISECONDS.toNanos(10));
+        Latencias.Resumo resumo = latencias.resumir();
+
+        // When
+        latencias.registrar(TimeUnit.MILLISECONDS.toNanos(500));
+
+        // Then
+        assertEquals(1, resumo.quantidade());
+        assertEquals(10.0, resumo.maximo());
+    }
+}
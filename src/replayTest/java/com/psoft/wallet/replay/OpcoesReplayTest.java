@@ -0,0 +1,107 @@
+package com.psoft.wallet.replay;
+
+import org.junit.jupiter.api.Test;
+
+import java.net.URI;
+import java.nio.file.Path;
+import java.time.Duration;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class OpcoesReplayTest {
+
+    @Test
+    void testValoresPadrao() {
+        // When
+        OpcoesReplay opcoes = OpcoesReplay.ler(new String[] {"--cotacoes=pregao.csv"});
+
+        // Then
+        assertEquals(URI.create("http://localhost:8080"), opcoes.url());
+        assertEquals(Path.of("pregao.csv"), opcoes.cotacoes());
+        assertNull(opcoes.leituras());
+        assertEquals(50, opcoes.leiturasPorSegundo());
+        assertEquals(1, opcoes.velocidade());
+        assertEquals(64, opcoes.concorrencia());
+        assertEquals(Duration.ofSeconds(60), opcoes.duracao());
+        assertEquals(42, opcoes.semente());
+    }
+
+    @Test
+    void testTodasAsOpcoes() {
+        // When
+        OpcoesReplay opcoes = OpcoesReplay.ler(new String[] {
+            "--url=http://wallet:9090",
+            "--cotacoes=pregao.csv",
+            "--leituras=codigos.txt",
+            "--leituras-por-segundo=12.5",
+            "--velocidade=10",
+            "--concorrencia=128",
+            "--duracao=1h30m",
+            "--semente=7"
+        });
+
+        // Then
+        assertEquals(URI.create("http://wallet:9090"), opcoes.url());
+        assertEquals(Path.of("pregao.csv"), opcoes.cotacoes());
+        assertEquals(Path.of("codigos.txt"), opcoes.leituras());
+        assertEquals(12.5, opcoes.leiturasPorSegundo());
+        assertEquals(10, opcoes.velocidade());
+        assertEquals(128, opcoes.concorrencia());
+        assertEquals(Duration.ofMinutes(90), opcoes.duracao());
+        assertEquals(7, opcoes.semente());
+    }
+
+    @Test
+    void testValorComSinalDeIgual() {
+        // When - Só o primeiro "=" separa a chave do valor
+        OpcoesReplay opcoes = OpcoesReplay.ler(new String[] {"--leituras=codigos=2025.txt"});
+
+        // Then
+        assertEquals(Path.of("codigos=2025.txt"), opcoes.leituras());
+    }
+
+    @Test
+    void testArquivoEmBrancoContaComoAusente() {
+        // When & Then
+        assertRecusada("Informe --cotacoes, --leituras ou ambos", "--cotacoes=", "--leituras= ");
+    }
+
+    @Test
+    void testRecusaOpcoesMalFormadas() {
+        assertRecusada("Opção inválida: cotacoes=pregao.csv", "cotacoes=pregao.csv");
+        assertRecusada("Opção inválida: -cotacoes=pregao.csv", "-cotacoes=pregao.csv");
+        assertRecusada("Opção inválida: --cotacoes", "--cotacoes");
+        assertRecusada("Opção desconhecida: --cotacao", "--cotacao=pregao.csv");
+    }
+
+    @Test
+    void testRecusaSemArquivos() {
+        assertRecusada("Informe --cotacoes, --leituras ou ambos");
+        assertRecusada("Informe --cotacoes, --leituras ou ambos", "--velocidade=10");
+    }
+
+    @Test
+    void testRecusaValoresForaDaFaixa() {
+        String mensagem = "Velocidade, concorrência, leituras por segundo e duração devem ser positivas";
+        assertRecusada(mensagem, "--cotacoes=pregao.csv", "--velocidade=0");
+        assertRecusada(mensagem, "--cotacoes=pregao.csv", "--velocidade=NaN");
+        assertRecusada(mensagem, "--cotacoes=pregao.csv", "--concorrencia=0");
+        assertRecusada(mensagem, "--cotacoes=pregao.csv", "--leituras-por-segundo=-1");
+        assertRecusada(mensagem, "--cotacoes=pregao.csv", "--duracao=-5s");
+    }
+
+    @Test
+    void testRecusaValoresQueNaoSaoNumerosNemDuracoes() {
+        // NumberFormatException é uma IllegalArgumentException: o replay mostra o uso em vez de falhar
+        assertThrows(IllegalArgumentException.class,
+            () -> OpcoesReplay.ler(new String[] {"--cotacoes=pregao.csv", "--concorrencia=muitas"}));
+        assertThrows(IllegalArgumentException.class,
+            () -> OpcoesReplay.ler(new String[] {"--cotacoes=pregao.csv", "--semente="}));
+        assertRecusada("Duração inválida: um minuto", "--cotacoes=pregao.csv", "--duracao=um minuto");
+    }
+
+    private static void assertRecusada(String mensagem, String... args) {
+        IllegalArgumentException erro = assertThrows(IllegalArgumentException.class, () -> OpcoesReplay.ler(args));
+        assertEquals(mensagem, erro.getMessage());
+    }
+}
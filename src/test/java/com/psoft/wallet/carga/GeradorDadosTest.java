@@ -0,0 +1,154 @@
+package com.psoft.wallet.carga;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+import com.psoft.wallet.model.Ativo;
+import com.psoft.wallet.model.Cliente;
+import com.psoft.wallet.model.Preco;
+import com.psoft.wallet.model.TipoAtivo;
+import com.psoft.wallet.model.TipoPlano;
+import com.psoft.wallet.repository.AtivoRepository;
+import com.psoft.wallet.repository.ClienteRepository;
+import com.psoft.wallet.service.AtivoService;
+import com.psoft.wallet.service.ClienteService;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@SpringBootTest(properties = {
+    "spring.datasource.url=jdbc:h2:mem:carga",
+    "wallet.carga.tamanho-bloco=700"
+})
+@ActiveProfiles("test")
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+class GeradorDadosTest {
+    private static final EspecificacaoCarga ESPECIFICACAO = new EspecificacaoCarga(42, 5000, 0.25, 900, 0.9);
+
+    @Autowired
+    private GeradorDados gerador;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private ClienteRepository clienteRepository;
+
+    @Autowired
+    private AtivoRepository ativoRepository;
+
+    @Autowired
+    private ClienteService clienteService;
+
+    @Autowired
+    private AtivoService ativoService;
+
+    @Test
+    void testCargaGeraClientesComCodigosUnicosEPlanosNaProporcao() {
+        // When
+        ResultadoCarga resultado = gerador.carregar(ESPECIFICACAO);
+
+        // Then
+        assertEquals(5000, clienteRepository.count());
+        assertEquals(5000, jdbcTemplate.queryForObject(
+            "SELECT COUNT(DISTINCT codigo_acesso) FROM cliente", Integer.class));
+        assertEquals(0, jdbcTemplate.queryForObject(
+            "SELECT COUNT(*) FROM cliente WHERE NOT REGEXP_LIKE(codigo_acesso, '^[0-9]{6}$')", Integer.class));
+        int premium = jdbcTemplate.queryForObject(
+            "SELECT COUNT(*) FROM cliente WHERE plano = 'PREMIUM'", Integer.class);
+        assertTrue(premium > 1100 && premium < 1400, "Clientes premium: " + premium);
+
+        // Then - Ids contíguos, e o código de cada posição é o informado pelo gerador
+        Cliente ultimo = clienteRepository.findById(resultado.primeiroIdCliente() + 4999).orElseThrow();
+        assertEquals(GeradorDados.codigoAcesso(42, 4999), ultimo.getCodigoAcesso());
+        assertEquals(ultimo.getPlano(), clienteService.listarAtivosPorPlano(ultimo.getCodigoAcesso()).get(0).plano());
+    }
+
+    @Test
+    void testCargaGeraAtivosDeTodosOsTiposNoCatalogo() {
+        // When
+        gerador.carregar(ESPECIFICACAO);
+
+        // Then - Os tipos se alternam, e o catálogo foi recarregado
+        for (TipoAtivo tipo : TipoAtivo.values()) {
+            assertEquals(300, jdbcTemplate.queryForObject(
+                "SELECT COUNT(*) FROM ativo WHERE tipo = ?", Integer.class, tipo.name()));
+        }
+        assertEquals(900, ativoService.listarTodosAtivos().size());
+        int disponiveis = ativoService.listarAtivosDisponiveis().size();
+        assertTrue(disponiveis > 780 && disponiveis < 840, "Ativos disponíveis: " + disponiveis);
+    }
+
+    @Test
+    void testMesmaSementeGeraOsMesmosDados() {
+        // When
+        gerador.carregar(ESPECIFICACAO);
+        List<Map<String, Object>> primeira = linhas();
+        gerador.carregar(ESPECIFICACAO);
+        List<Map<String, Object>> segunda = linhas();
+
+        // Then - Tudo igual, menos os ids, que seguem a sequência
+        assertEquals(5900, primeira.size());
+        assertEquals(primeira, segunda);
+    }
+
+    @Test
+    void testCriacoesDepoisDaCargaNaoColidemComOsIdsGerados() {
+        // Given
+        ResultadoCarga resultado = gerador.carregar(ESPECIFICACAO);
+
+        // When - Inserções pelo Hibernate, com ids das sequências
+        Cliente cliente = new Cliente();
+        cliente.setNomeCompleto("Cliente Novo");
+        cliente.setEnderecoPrincipal("Rua Nova, 1");
+        cliente.setPlano(TipoPlano.NORMAL);
+        cliente.setCodigoAcesso(codigoLivre());
+        Cliente clienteSalvo = clienteService.criarCliente(cliente);
+
+        Ativo ativo = new Ativo();
+        ativo.setNome("Ativo Novo");
+        ativo.setTipo(TipoAtivo.ACAO);
+        ativo.setDisponivel(true);
+        ativo.setValorAtual(Preco.de("10.00"));
+        Ativo ativoSalvo = ativoService.criarAtivo(ativo);
+
+        // Then
+        assertTrue(clienteSalvo.getId() >= resultado.primeiroIdCliente() + resultado.clientes());
+        assertTrue(ativoSalvo.getId() >= resultado.primeiroIdAtivo() + resultado.ativos());
+        assertEquals(5001, clienteRepository.count());
+        assertEquals(901, ativoRepository.count());
+    }
+
+    @Test
+    void testEspecificacaoLimitaClientesAosCodigosDe6Digitos() {
+        assertThrows(IllegalArgumentException.class,
+            () -> new EspecificacaoCarga(42, EspecificacaoCarga.MAXIMO_CLIENTES + 1, 0.2, 10, 0.9));
+    }
+
+    private List<Map<String, Object>> linhas() {
+        List<Map<String, Object>> linhas = new ArrayList<>(jdbcTemplate.queryForList(
+            "SELECT nome_completo, endereco_principal, plano, codigo_acesso FROM cliente ORDER BY id"));
+        linhas.addAll(jdbcTemplate.queryForList(
+            "SELECT nome, tipo, descricao, disponivel, valor_atual FROM ativo ORDER BY id"));
+        return linhas;
+    }
+
+    // Primeiro código de 6 dígitos que a carga não usou
+    private String codigoLivre() {
+        Set<String> usados = new HashSet<>(jdbcTemplate.queryForList("SELECT codigo_acesso FROM cliente", String.class));
+        for (int i = 0; ; i++) {
+            String codigo = String.format("%06d", i);
+            if (!usados.contains(codigo)) {
+                return codigo;
+            }
+        }
+    }
+}
@@ -3,10 +3,16 @@ package com.psoft.wallet.controller;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.psoft.wallet.model.Ativo;
 import com.psoft.wallet.model.Cliente;
+import com.psoft.wallet.model.Preco;
 import com.psoft.wallet.model.TipoAtivo;
 import com.psoft.wallet.model.TipoPlano;
 import com.psoft.wallet.repository.AtivoRepository;
 import com.psoft.wallet.repository.ClienteRepository;
+import com.psoft.wallet.service.CatalogoAtivos;
+import com.psoft.wallet.service.ClienteService;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.BeforeEach;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -15,12 +21,16 @@ import org.springframework.boot.test.context.SpringBootTest;
 import org.springframework.http.MediaType;
 import org.springframework.test.context.ActiveProfiles;
 import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
 import org.springframework.test.web.servlet.setup.MockMvcBuilders;
 import org.springframework.web.context.WebApplicationContext;
 
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
 import static org.hamcrest.Matchers.hasSize;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
 
 @SpringBootTest
 @ActiveProfiles("test")
@@ -36,15 +46,26 @@ class AtivoClienteControllerTest {
     @Autowired
     private ClienteRepository clienteRepository;
 
+    @Autowired
+    private CatalogoAtivos catalogo;
+
+    @Autowired
+    private ClienteService clienteService;
+
     @Autowired
     private ObjectMapper objectMapper;
 
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
     private MockMvc mockMvc;
 
     @BeforeEach
     void setUp() {
         ativoRepository.deleteAll();
         clienteRepository.deleteAll();
+        catalogo.recarregar();
+        clienteService.limparCacheAcessos();
         mockMvc = MockMvcBuilders.webAppContextSetup(webApplicationContext).build();
     }
 
@@ -70,21 +91,21 @@ class AtivoClienteControllerTest {
         tesouro.setTipo(TipoAtivo.TESOURO_DIRETO);
         tesouro.setDescricao("Tesouro Direto Selic 2026");
         tesouro.setDisponivel(true);
-        tesouro.setValorAtual(100.00f);
+        tesouro.setValorAtual(Preco.de("100.00"));
 
         Ativo acao = new Ativo();
         acao.setNome("Petrobras");
         acao.setTipo(TipoAtivo.ACAO);
         acao.setDescricao("Ação da Petrobras");
         acao.setDisponivel(true);
-        acao.setValorAtual(25.50f);
+        acao.setValorAtual(Preco.de("25.50"));
 
         Ativo cripto = new Ativo();
         cripto.setNome("Bitcoin");
         cripto.setTipo(TipoAtivo.CRIPTOMOEDA);
         cripto.setDescricao("Bitcoin - primeira criptomoeda");
         cripto.setDisponivel(true);
-        cripto.setValorAtual(150000.00f);
+        cripto.setValorAtual(Preco.de("150000.00"));
 
         // Criar os ativos
         mockMvc.perform(post("/ativos")
@@ -131,21 +152,21 @@ class AtivoClienteControllerTest {
         tesouro.setTipo(TipoAtivo.TESOURO_DIRETO);
         tesouro.setDescricao("Tesouro Direto Selic 2026");
         tesouro.setDisponivel(true);
-        tesouro.setValorAtual(100.00f);
+        tesouro.setValorAtual(Preco.de("100.00"));
 
         Ativo acao = new Ativo();
         acao.setNome("Petrobras");
         acao.setTipo(TipoAtivo.ACAO);
         acao.setDescricao("Ação da Petrobras");
         acao.setDisponivel(true);
-        acao.setValorAtual(25.50f);
+        acao.setValorAtual(Preco.de("25.50"));
 
         Ativo cripto = new Ativo();
         cripto.setNome("Bitcoin");
         cripto.setTipo(TipoAtivo.CRIPTOMOEDA);
         cripto.setDescricao("Bitcoin - primeira criptomoeda");
         cripto.setDisponivel(true);
-        cripto.setValorAtual(150000.00f);
+        cripto.setValorAtual(Preco.de("150000.00"));
 
         // Criar os ativos
         mockMvc.perform(post("/ativos")
@@ -196,14 +217,14 @@ class AtivoClienteControllerTest {
         acao.setTipo(TipoAtivo.ACAO);
         acao.setDescricao("Ação da Petrobras");
         acao.setDisponivel(true);
-        acao.setValorAtual(25.50f);
+        acao.setValorAtual(Preco.de("25.50"));
 
         Ativo cripto = new Ativo();
         cripto.setNome("Bitcoin");
         cripto.setTipo(TipoAtivo.CRIPTOMOEDA);
         cripto.setDescricao("Bitcoin - primeira criptomoeda");
         cripto.setDisponivel(true);
-        cripto.setValorAtual(150000.00f);
+        cripto.setValorAtual(Preco.de("150000.00"));
 
         // Criar os ativos
         mockMvc.perform(post("/ativos")
@@ -243,7 +264,7 @@ class AtivoClienteControllerTest {
         tesouro.setTipo(TipoAtivo.TESOURO_DIRETO);
         tesouro.setDescricao("Tesouro Direto Selic 2026");
         tesouro.setDisponivel(true);
-        tesouro.setValorAtual(100.00f);
+        tesouro.setValorAtual(Preco.de("100.00"));
 
         // Criar o ativo
         mockMvc.perform(post("/ativos")
@@ -280,7 +301,7 @@ class AtivoClienteControllerTest {
         tesouroIndisponivel.setTipo(TipoAtivo.TESOURO_DIRETO);
         tesouroIndisponivel.setDescricao("Tesouro Direto Selic 2026");
         tesouroIndisponivel.setDisponivel(false);
-        tesouroIndisponivel.setValorAtual(100.00f);
+        tesouroIndisponivel.setValorAtual(Preco.de("100.00"));
 
         // Criar o ativo indisponível
         mockMvc.perform(post("/ativos")
@@ -311,6 +332,68 @@ class AtivoClienteControllerTest {
                 .andExpect(status().isBadRequest());
     }
 
+    @Test
+    void testAcessoComTokenDeSessaoNaoConsultaOBanco() throws Exception {
+        // Given - Cliente Normal, um Tesouro Direto e uma ação
+        Cliente cliente = new Cliente();
+        cliente.setNomeCompleto("João Silva");
+        cliente.setEnderecoPrincipal("Rua das Flores, 123");
+        cliente.setPlano(TipoPlano.NORMAL);
+        cliente.setCodigoAcesso("123456");
+
+        mockMvc.perform(post("/clientes")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(objectMapper.writeValueAsString(cliente)))
+                .andExpect(status().isOk());
+
+        Ativo tesouro = new Ativo();
+        tesouro.setNome("Tesouro Selic 2026");
+        tesouro.setTipo(TipoAtivo.TESOURO_DIRETO);
+        tesouro.setDisponivel(true);
+        tesouro.setValorAtual(Preco.de("100.00"));
+
+        Ativo acao = new Ativo();
+        acao.setNome("Petrobras");
+        acao.setTipo(TipoAtivo.ACAO);
+        acao.setDisponivel(true);
+        acao.setValorAtual(Preco.de("25.50"));
+
+        mockMvc.perform(post("/ativos")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(objectMapper.writeValueAsString(tesouro)))
+                .andExpect(status().isOk());
+
+        mockMvc.perform(post("/ativos")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(objectMapper.writeValueAsString(acao)))
+                .andExpect(status().isOk());
+
+        // Given - Login com o código de acesso
+        String response = mockMvc.perform(post("/clientes/login")
+                .param("codigoAcesso", "123456"))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getContentAsString();
+        String token = objectMapper.readTree(response).get("token").asText();
+
+        Statistics estatisticas = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        estatisticas.clear();
+
+        // When & Then - Plano vem do token, e a lista, do catálogo em memória
+        mockMvc.perform(get("/cliente/ativos/disponiveis")
+                .header("Authorization", "Bearer " + token))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$", hasSize(1)))
+                .andExpect(jsonPath("$[0].nome").value("Tesouro Selic 2026"));
+
+        assertEquals(0, estatisticas.getPrepareStatementCount());
+
+        // When & Then - Token adulterado
+        mockMvc.perform(get("/cliente/ativos/disponiveis")
+                .header("Authorization", "Bearer x" + token))
+                .andExpect(status().isUnauthorized())
+                .andExpect(jsonPath("$.message").value("Token de sessão inválido"));
+    }
+
     @Test
     void testClientePremiumVeMultiplosAtivos() throws Exception {
         // Given - Criar cliente Premium
@@ -330,37 +413,37 @@ class AtivoClienteControllerTest {
         tesouro1.setNome("Tesouro Selic 2026");
         tesouro1.setTipo(TipoAtivo.TESOURO_DIRETO);
         tesouro1.setDisponivel(true);
-        tesouro1.setValorAtual(100.00f);
+        tesouro1.setValorAtual(Preco.de("100.00"));
 
         Ativo tesouro2 = new Ativo();
         tesouro2.setNome("Tesouro IPCA 2030");
         tesouro2.setTipo(TipoAtivo.TESOURO_DIRETO);
         tesouro2.setDisponivel(true);
-        tesouro2.setValorAtual(150.00f);
+        tesouro2.setValorAtual(Preco.de("150.00"));
 
         Ativo acao1 = new Ativo();
         acao1.setNome("Petrobras");
         acao1.setTipo(TipoAtivo.ACAO);
         acao1.setDisponivel(true);
-        acao1.setValorAtual(25.50f);
+        acao1.setValorAtual(Preco.de("25.50"));
 
         Ativo acao2 = new Ativo();
         acao2.setNome("Vale");
         acao2.setTipo(TipoAtivo.ACAO);
         acao2.setDisponivel(true);
-        acao2.setValorAtual(30.00f);
+        acao2.setValorAtual(Preco.de("30.00"));
 
         Ativo cripto1 = new Ativo();
         cripto1.setNome("Bitcoin");
         cripto1.setTipo(TipoAtivo.CRIPTOMOEDA);
         cripto1.setDisponivel(true);
-        cripto1.setValorAtual(150000.00f);
+        cripto1.setValorAtual(Preco.de("150000.00"));
 
         Ativo cripto2 = new Ativo();
         cripto2.setNome("Ethereum");
         cripto2.setTipo(TipoAtivo.CRIPTOMOEDA);
         cripto2.setDisponivel(true);
-        cripto2.setValorAtual(8000.00f);
+        cripto2.setValorAtual(Preco.de("8000.00"));
 
         // Criar todos os ativos
         mockMvc.perform(post("/ativos")
@@ -419,19 +502,19 @@ class AtivoClienteControllerTest {
         tesouro1.setNome("Tesouro Selic 2026");
         tesouro1.setTipo(TipoAtivo.TESOURO_DIRETO);
         tesouro1.setDisponivel(true);
-        tesouro1.setValorAtual(100.00f);
+        tesouro1.setValorAtual(Preco.de("100.00"));
 
         Ativo tesouro2 = new Ativo();
         tesouro2.setNome("Tesouro IPCA 2030");
         tesouro2.setTipo(TipoAtivo.TESOURO_DIRETO);
         tesouro2.setDisponivel(false); // Indisponível
-        tesouro2.setValorAtual(150.00f);
+        tesouro2.setValorAtual(Preco.de("150.00"));
 
         Ativo tesouro3 = new Ativo();
         tesouro3.setNome("Tesouro Prefixado 2025");
         tesouro3.setTipo(TipoAtivo.TESOURO_DIRETO);
         tesouro3.setDisponivel(true);
-        tesouro3.setValorAtual(120.00f);
+        tesouro3.setValorAtual(Preco.de("120.00"));
 
         // Criar os ativos
         mockMvc.perform(post("/ativos")
@@ -457,4 +540,150 @@ class AtivoClienteControllerTest {
                 .andExpect(jsonPath("$[0].nome").value("Tesouro Selic 2026"))
                 .andExpect(jsonPath("$[1].nome").value("Tesouro Prefixado 2025"));
     }
-} 
\ No newline at end of file
+
+    @Test
+    void testVisaoDoPlanoSuportaGetCondicional() throws Exception {
+        // Given - Criar cliente Normal
+        Cliente cliente = new Cliente();
+        cliente.setNomeCompleto("João Silva");
+        cliente.setEnderecoPrincipal("Rua das Flores, 123");
+        cliente.setPlano(TipoPlano.NORMAL);
+        cliente.setCodigoAcesso("123456");
+
+        mockMvc.perform(post("/clientes")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(objectMapper.writeValueAsString(cliente)))
+                .andExpect(status().isOk());
+
+        // Given - Criar um Tesouro Direto e uma ação
+        Ativo tesouro = new Ativo();
+        tesouro.setNome("Tesouro Selic 2026");
+        tesouro.setTipo(TipoAtivo.TESOURO_DIRETO);
+        tesouro.setDisponivel(true);
+        tesouro.setValorAtual(Preco.de("100.00"));
+
+        Ativo acao = new Ativo();
+        acao.setNome("Petrobras");
+        acao.setTipo(TipoAtivo.ACAO);
+        acao.setDisponivel(true);
+        acao.setValorAtual(Preco.de("25.50"));
+
+        String responseTesouro = mockMvc.perform(post("/ativos")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(objectMapper.writeValueAsString(tesouro)))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getContentAsString();
+
+        String responseAcao = mockMvc.perform(post("/ativos")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(objectMapper.writeValueAsString(acao)))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getContentAsString();
+
+        Long idTesouro = objectMapper.readValue(responseTesouro, Ativo.class).getId();
+        Long idAcao = objectMapper.readValue(responseAcao, Ativo.class).getId();
+
+        // When & Then - Primeira leitura devolve a versão atual da visão
+        String etag = mockMvc.perform(get("/cliente/ativos/disponiveis")
+                .param("codigoAcesso", "123456"))
+                .andExpect(status().isOk())
+                .andExpect(header().exists("ETag"))
+                .andExpect(jsonPath("$", hasSize(1)))
+                .andReturn().getResponse().getHeader("ETag");
+
+        // When & Then - Mesma versão: 304 sem corpo
+        mockMvc.perform(get("/cliente/ativos/disponiveis")
+                .param("codigoAcesso", "123456")
+                .header("If-None-Match", etag))
+                .andExpect(status().isNotModified());
+
+        // When & Then - Alterar uma ação não muda a visão do plano Normal
+        mockMvc.perform(patch("/ativos/{id}/valor", idAcao)
+                .param("novoValor", "30.00"))
+                .andExpect(status().isOk());
+
+        mockMvc.perform(get("/cliente/ativos/disponiveis")
+                .param("codigoAcesso", "123456")
+                .header("If-None-Match", etag))
+                .andExpect(status().isNotModified());
+
+        // When & Then - Alterar o Tesouro Direto gera uma nova versão
+        mockMvc.perform(patch("/ativos/{id}/valor", idTesouro)
+                .param("novoValor", "110.00"))
+                .andExpect(status().isOk());
+
+        mockMvc.perform(get("/cliente/ativos/disponiveis")
+                .param("codigoAcesso", "123456")
+                .header("If-None-Match", etag))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$[0].valorAtual").value(110.00));
+    }
+
+    @Test
+    void testEventosDeAtivosFiltradosPeloPlano() throws Exception {
+        // Given - Criar cliente Normal
+        Cliente cliente = new Cliente();
+        cliente.setNomeCompleto("João Silva");
+        cliente.setEnderecoPrincipal("Rua das Flores, 123");
+        cliente.setPlano(TipoPlano.NORMAL);
+        cliente.setCodigoAcesso("123456");
+
+        mockMvc.perform(post("/clientes")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(objectMapper.writeValueAsString(cliente)))
+                .andExpect(status().isOk());
+
+        // Given - Criar um Tesouro Direto e uma ação
+        Ativo tesouro = new Ativo();
+        tesouro.setNome("Tesouro Selic 2026");
+        tesouro.setTipo(TipoAtivo.TESOURO_DIRETO);
+        tesouro.setDisponivel(true);
+        tesouro.setValorAtual(Preco.de("100.00"));
+
+        Ativo acao = new Ativo();
+        acao.setNome("Petrobras");
+        acao.setTipo(TipoAtivo.ACAO);
+        acao.setDisponivel(true);
+        acao.setValorAtual(Preco.de("25.50"));
+
+        String responseTesouro = mockMvc.perform(post("/ativos")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(objectMapper.writeValueAsString(tesouro)))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getContentAsString();
+
+        String responseAcao = mockMvc.perform(post("/ativos")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(objectMapper.writeValueAsString(acao)))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getContentAsString();
+
+        Long idTesouro = objectMapper.readValue(responseTesouro, Ativo.class).getId();
+        Long idAcao = objectMapper.readValue(responseAcao, Ativo.class).getId();
+
+        // When - Cliente se inscreve e as cotações mudam (primeiro a ação, depois o Tesouro)
+        MvcResult inscricao = mockMvc.perform(get("/cliente/ativos/eventos")
+                .param("codigoAcesso", "123456"))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+
+        mockMvc.perform(patch("/ativos/{id}/valor", idAcao)
+                .param("novoValor", "30.00"))
+                .andExpect(status().isOk());
+
+        mockMvc.perform(patch("/ativos/{id}/valor", idTesouro)
+                .param("novoValor", "110.00"))
+                .andExpect(status().isOk());
+
+        // Then - Os eventos saem em ordem: quando o do Tesouro chega, o da ação já foi descartado
+        String eventos = "";
+        long limite = System.currentTimeMillis() + 5000;
+        while (!eventos.contains("Tesouro Selic 2026") && System.currentTimeMillis() < limite) {
+            Thread.sleep(20);
+            eventos = inscricao.getResponse().getContentAsString();
+        }
+        assertTrue(eventos.contains("event:ativo"));
+        assertTrue(eventos.contains("\"valorAtual\":110.0"));
+        assertFalse(eventos.contains("Petrobras"));
+    }
+}
@@ -1,24 +1,43 @@
 package com.psoft.wallet.controller;
 
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.psoft.wallet.dto.AtualizacaoValor;
 import com.psoft.wallet.model.Ativo;
+import com.psoft.wallet.model.Preco;
 import com.psoft.wallet.model.TipoAtivo;
 import com.psoft.wallet.repository.AtivoRepository;
+import com.psoft.wallet.service.CatalogoAtivos;
+import jakarta.persistence.EntityManager;
+import org.hibernate.Hibernate;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.BeforeEach;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
 import org.springframework.boot.test.context.SpringBootTest;
 import org.springframework.http.MediaType;
 import org.springframework.test.context.ActiveProfiles;
+import org.springframework.mock.web.MockHttpServletResponse;
 import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
 import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+import org.springframework.transaction.annotation.Propagation;
 import org.springframework.transaction.annotation.Transactional;
 import org.springframework.web.context.WebApplicationContext;
 
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+import java.time.ZoneOffset;
+import java.time.ZonedDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.zip.GZIPInputStream;
+
 import static org.junit.jupiter.api.Assertions.*;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
+import static org.hamcrest.Matchers.containsString;
 import static org.hamcrest.Matchers.hasSize;
 
 @SpringBootTest
@@ -33,14 +52,24 @@ class AtivoControllerTest {
     @Autowired
     private AtivoRepository repository;
 
+    @Autowired
+    private CatalogoAtivos catalogo;
+
     @Autowired
     private ObjectMapper objectMapper;
 
+    @Autowired
+    private EntityManager entityManager;
+
+    @Value("${wallet.precos.escrita-assincrona}")
+    private boolean escritaAssincrona;
+
     private MockMvc mockMvc;
 
     @BeforeEach
     void setUp() {
         repository.deleteAll();
+        catalogo.recarregar();
         mockMvc = MockMvcBuilders.webAppContextSetup(webApplicationContext).build();
     }
 
@@ -54,7 +83,7 @@ class AtivoControllerTest {
         ativo.setTipo(TipoAtivo.ACAO);
         ativo.setDescricao("Ação da Petrobras");
         ativo.setDisponivel(true);
-        ativo.setValorAtual(25.50f);
+        ativo.setValorAtual(Preco.de("25.50"));
 
         // When & Then
         String response = mockMvc.perform(post("/ativos")
@@ -81,7 +110,7 @@ class AtivoControllerTest {
         tesouro.setTipo(TipoAtivo.TESOURO_DIRETO);
         tesouro.setDescricao("Tesouro Direto Selic 2026");
         tesouro.setDisponivel(true);
-        tesouro.setValorAtual(100.00f);
+        tesouro.setValorAtual(Preco.de("100.00"));
 
         // When & Then
         mockMvc.perform(post("/ativos")
@@ -100,7 +129,7 @@ class AtivoControllerTest {
         cripto.setTipo(TipoAtivo.CRIPTOMOEDA);
         cripto.setDescricao("Bitcoin - primeira criptomoeda");
         cripto.setDisponivel(true);
-        cripto.setValorAtual(150000.00f);
+        cripto.setValorAtual(Preco.de("150000.00"));
 
         // When & Then
         mockMvc.perform(post("/ativos")
@@ -117,7 +146,7 @@ class AtivoControllerTest {
         Ativo ativo1 = new Ativo();
         ativo1.setNome("Petrobras");
         ativo1.setTipo(TipoAtivo.ACAO);
-        ativo1.setValorAtual(25.50f);
+        ativo1.setValorAtual(Preco.de("25.50"));
 
         mockMvc.perform(post("/ativos")
                 .contentType(MediaType.APPLICATION_JSON)
@@ -128,7 +157,7 @@ class AtivoControllerTest {
         Ativo ativo2 = new Ativo();
         ativo2.setNome("Petrobras");
         ativo2.setTipo(TipoAtivo.ACAO);
-        ativo2.setValorAtual(30.00f);
+        ativo2.setValorAtual(Preco.de("30.00"));
 
         mockMvc.perform(post("/ativos")
                 .contentType(MediaType.APPLICATION_JSON)
@@ -143,7 +172,7 @@ class AtivoControllerTest {
         Ativo ativo = new Ativo();
         ativo.setNome("Petrobras");
         ativo.setTipo(TipoAtivo.ACAO);
-        ativo.setValorAtual(25.50f);
+        ativo.setValorAtual(Preco.de("25.50"));
 
         String response = mockMvc.perform(post("/ativos")
                 .contentType(MediaType.APPLICATION_JSON)
@@ -178,7 +207,7 @@ class AtivoControllerTest {
         Ativo ativo = new Ativo();
         ativo.setNome("Petrobras");
         ativo.setTipo(TipoAtivo.ACAO);
-        ativo.setValorAtual(25.50f);
+        ativo.setValorAtual(Preco.de("25.50"));
 
         String response = mockMvc.perform(post("/ativos")
                 .contentType(MediaType.APPLICATION_JSON)
@@ -198,7 +227,7 @@ class AtivoControllerTest {
         // Verificar se foi atualizado no banco
         Ativo ativoAtualizado = repository.findById(id).orElse(null);
         assertNotNull(ativoAtualizado);
-        assertEquals(30.00f, ativoAtualizado.getValorAtual(), 0.01f);
+        assertEquals(Preco.de("30.00"), ativoAtualizado.getValorAtual());
     }
 
     @Test
@@ -207,7 +236,7 @@ class AtivoControllerTest {
         Ativo bitcoin = new Ativo();
         bitcoin.setNome("Bitcoin");
         bitcoin.setTipo(TipoAtivo.CRIPTOMOEDA);
-        bitcoin.setValorAtual(150000.00f);
+        bitcoin.setValorAtual(Preco.de("150000.00"));
 
         String response = mockMvc.perform(post("/ativos")
                 .contentType(MediaType.APPLICATION_JSON)
@@ -231,7 +260,7 @@ class AtivoControllerTest {
         Ativo ativo = new Ativo();
         ativo.setNome("Petrobras");
         ativo.setTipo(TipoAtivo.ACAO);
-        ativo.setValorAtual(25.50f);
+        ativo.setValorAtual(Preco.de("25.50"));
 
         String response = mockMvc.perform(post("/ativos")
                 .contentType(MediaType.APPLICATION_JSON)
@@ -251,7 +280,35 @@ class AtivoControllerTest {
         // Verificar se o valor não foi alterado no banco
         Ativo ativoNaoAlterado = repository.findById(id).orElse(null);
         assertNotNull(ativoNaoAlterado);
-        assertEquals(25.50f, ativoNaoAlterado.getValorAtual(), 0.01f);
+        assertEquals(Preco.de("25.50"), ativoNaoAlterado.getValorAtual());
+    }
+
+    @Test
+    void testVariacaoInvalidaContabilizadaNasMetricas() throws Exception {
+        // Given - Criar um ativo
+        Ativo ativo = new Ativo();
+        ativo.setNome("Petrobras");
+        ativo.setTipo(TipoAtivo.ACAO);
+        ativo.setValorAtual(Preco.de("25.50"));
+
+        String response = mockMvc.perform(post("/ativos")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(objectMapper.writeValueAsString(ativo)))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getContentAsString();
+
+        Long id = objectMapper.readValue(response, Ativo.class).getId();
+
+        // When - Cotação rejeitada pela regra de 1%
+        mockMvc.perform(patch("/ativos/{id}/valor", id)
+                .param("novoValor", "25.60"))
+                .andExpect(status().isBadRequest());
+
+        // Then - Contador por tipo de exceção exposto para o Prometheus
+        mockMvc.perform(get("/actuator/prometheus"))
+                .andExpect(status().isOk())
+                .andExpect(content().string(containsString("wallet_erros_total")))
+                .andExpect(content().string(containsString("excecao=\"VariacaoInvalidaException\"")));
     }
 
     @Test
@@ -269,7 +326,7 @@ class AtivoControllerTest {
         Ativo ativo = new Ativo();
         ativo.setNome("Petrobras");
         ativo.setTipo(TipoAtivo.ACAO);
-        ativo.setValorAtual(25.50f);
+        ativo.setValorAtual(Preco.de("25.50"));
 
         String response = mockMvc.perform(post("/ativos")
                 .contentType(MediaType.APPLICATION_JSON)
@@ -293,7 +350,7 @@ class AtivoControllerTest {
         Ativo ativo = new Ativo();
         ativo.setNome("Petrobras");
         ativo.setTipo(TipoAtivo.ACAO);
-        ativo.setValorAtual(100.00f);
+        ativo.setValorAtual(Preco.de("100.00"));
 
         String response = mockMvc.perform(post("/ativos")
                 .contentType(MediaType.APPLICATION_JSON)
@@ -317,7 +374,7 @@ class AtivoControllerTest {
         Ativo ativo = new Ativo();
         ativo.setNome("Petrobras");
         ativo.setTipo(TipoAtivo.ACAO);
-        ativo.setValorAtual(100.00f);
+        ativo.setValorAtual(Preco.de("100.00"));
 
         String response = mockMvc.perform(post("/ativos")
                 .contentType(MediaType.APPLICATION_JSON)
@@ -335,23 +392,500 @@ class AtivoControllerTest {
                 .andExpect(jsonPath("$.valorAtual").value(101.01));
     }
 
+    @Test
+    void testAtualizarValorPreservaCentavosEmValoresAltos() throws Exception {
+        // Given - Criar um ativo
+        Ativo ativo = new Ativo();
+        ativo.setNome("Petrobras");
+        ativo.setTipo(TipoAtivo.ACAO);
+        ativo.setValorAtual(Preco.de("100.00"));
+
+        String response = mockMvc.perform(post("/ativos")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(objectMapper.writeValueAsString(ativo)))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getContentAsString();
+
+        Long id = objectMapper.readValue(response, Ativo.class).getId();
+
+        // When - Valor que não cabe com centavos exatos num float
+        String atualizado = mockMvc.perform(patch("/ativos/{id}/valor", id)
+                .param("novoValor", "123456789.12"))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getContentAsString();
+
+        // Then - Os centavos chegam intactos na resposta e na consulta seguinte
+        assertTrue(atualizado.contains("\"valorAtual\":123456789.12"));
+        String detalhe = mockMvc.perform(get("/ativos/{id}", id))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getContentAsString();
+        assertEquals(Preco.de("123456789.12"), objectMapper.readValue(detalhe, Ativo.class).getValorAtual());
+    }
+
+    @Test
+    void testAtualizarValorComPrecoMuitoAlto() throws Exception {
+        // Given - Escrita síncrona (perfil de teste): cada cotação passa pelo UPDATE condicional
+        assertFalse(escritaAssincrona);
+
+        // Given - Preços cuja diferença, multiplicada por 100, não cabe num long
+        Long id = criarAtivoComValor("Petrobras", "500000000000000");
+        Long removido = criarAtivoComValor("Vale", "500000000000000");
+
+        // When & Then - Variação de 2% sobre o banco: o UPDATE aplica
+        mockMvc.perform(patch("/ativos/{id}/valor", id)
+                .param("novoValor", "510000000000000"))
+                .andExpect(status().isOk());
+        entityManager.clear();
+        Ativo gravado = repository.findById(id).orElseThrow();
+        assertEquals(Preco.de("510000000000000"), gravado.getValorAtual());
+
+        // Given - O valor gravado muda por fora do catálogo
+        gravado.setValorAtual(Preco.de("515000000000000"));
+        repository.saveAndFlush(gravado);
+
+        // When & Then - 2% sobre o catálogo, mas menos de 1% sobre o banco: o UPDATE recusa com 400
+        mockMvc.perform(patch("/ativos/{id}/valor", id)
+                .param("novoValor", "520000000000000"))
+                .andExpect(status().isBadRequest())
+                .andExpect(jsonPath("$.message").value("Variação mínima de 1% não atingida"));
+        entityManager.clear();
+        assertEquals(Preco.de("515000000000000"), repository.findById(id).orElseThrow().getValorAtual());
+
+        // Given - Ativo removido do banco, mas ainda no catálogo
+        repository.deleteById(removido);
+        repository.flush();
+
+        // When & Then - Nenhuma linha alterada porque o ativo não existe: 404, e não 400
+        mockMvc.perform(patch("/ativos/{id}/valor", removido)
+                .param("novoValor", "510000000000000"))
+                .andExpect(status().isNotFound());
+    }
+
+    @Test
+    void testAtualizarValorComMaisDe4CasasDecimais() throws Exception {
+        // Given - Criar um ativo
+        Ativo ativo = new Ativo();
+        ativo.setNome("Petrobras");
+        ativo.setTipo(TipoAtivo.ACAO);
+        ativo.setValorAtual(Preco.de("100.00"));
+
+        String response = mockMvc.perform(post("/ativos")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(objectMapper.writeValueAsString(ativo)))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getContentAsString();
+
+        Long id = objectMapper.readValue(response, Ativo.class).getId();
+
+        // When & Then - Sem arredondamento silencioso
+        mockMvc.perform(patch("/ativos/{id}/valor", id)
+                .param("novoValor", "120.00001"))
+                .andExpect(status().isBadRequest());
+    }
+
+    @Test
+    void testAtualizarValoresEmLote() throws Exception {
+        // Given - Criar dois ativos
+        Ativo ativo1 = new Ativo();
+        ativo1.setNome("Petrobras");
+        ativo1.setTipo(TipoAtivo.ACAO);
+        ativo1.setValorAtual(Preco.de("25.50"));
+
+        Ativo ativo2 = new Ativo();
+        ativo2.setNome("Vale");
+        ativo2.setTipo(TipoAtivo.ACAO);
+        ativo2.setValorAtual(Preco.de("30.00"));
+
+        String response1 = mockMvc.perform(post("/ativos")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(objectMapper.writeValueAsString(ativo1)))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getContentAsString();
+
+        String response2 = mockMvc.perform(post("/ativos")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(objectMapper.writeValueAsString(ativo2)))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getContentAsString();
+
+        Long id1 = objectMapper.readValue(response1, Ativo.class).getId();
+        Long id2 = objectMapper.readValue(response2, Ativo.class).getId();
+
+        List<AtualizacaoValor> lote = List.of(
+                new AtualizacaoValor(id1, Preco.de("30.00")),
+                new AtualizacaoValor(id2, Preco.de("30.10")),
+                new AtualizacaoValor(999L, Preco.de("50.00")));
+
+        // When & Then - Cotação rejeitada ou inexistente não falha o lote inteiro
+        mockMvc.perform(patch("/ativos/valores")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(objectMapper.writeValueAsString(lote)))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$", hasSize(3)))
+                .andExpect(jsonPath("$[0].status").value(200))
+                .andExpect(jsonPath("$[0].valorAtual").value(30.00))
+                .andExpect(jsonPath("$[1].status").value(400))
+                .andExpect(jsonPath("$[1].message").value("Variação mínima de 1% não atingida"))
+                .andExpect(jsonPath("$[2].status").value(404))
+                .andExpect(jsonPath("$[2].message").value("Ativo com ID 999 não encontrado"));
+
+        // Verificar que apenas a cotação válida foi aplicada
+        assertEquals(Preco.de("30.00"), repository.findById(id1).orElseThrow().getValorAtual());
+        assertEquals(Preco.de("30.00"), repository.findById(id2).orElseThrow().getValorAtual());
+    }
+
+    @Test
+    void testAtualizarValoresEmLoteComCotacaoSemId() throws Exception {
+        // Given - Criar um ativo
+        Ativo ativo = new Ativo();
+        ativo.setNome("Petrobras");
+        ativo.setTipo(TipoAtivo.ACAO);
+        ativo.setValorAtual(Preco.de("100.00"));
+
+        String response = mockMvc.perform(post("/ativos")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(objectMapper.writeValueAsString(ativo)))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getContentAsString();
+
+        Long id = objectMapper.readValue(response, Ativo.class).getId();
+
+        // When & Then - O lote é recusado antes de qualquer cotação ser aplicada
+        mockMvc.perform(patch("/ativos/valores")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content("[{\"id\":" + id + ",\"novoValor\":110.00},{\"id\":null,\"novoValor\":50.00}]"))
+                .andExpect(status().isBadRequest())
+                .andExpect(jsonPath("$.message").value("Cotação sem id na posição 1 do lote"));
+
+        assertEquals(Preco.de("100.00"), repository.findById(id).orElseThrow().getValorAtual());
+    }
+
+    @Test
+    void testAtualizarValoresEmLoteComCotacoesRepetidas() throws Exception {
+        // Given - Criar um ativo
+        Ativo ativo = new Ativo();
+        ativo.setNome("Petrobras");
+        ativo.setTipo(TipoAtivo.ACAO);
+        ativo.setValorAtual(Preco.de("100.00"));
+
+        String response = mockMvc.perform(post("/ativos")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(objectMapper.writeValueAsString(ativo)))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getContentAsString();
+
+        Long id = objectMapper.readValue(response, Ativo.class).getId();
+
+        // When & Then - A segunda cotação é comparada com o valor já atualizado pela primeira
+        mockMvc.perform(patch("/ativos/valores")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(objectMapper.writeValueAsString(List.of(
+                        new AtualizacaoValor(id, Preco.de("110.00")),
+                        new AtualizacaoValor(id, Preco.de("110.50"))))))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$[0].status").value(200))
+                .andExpect(jsonPath("$[1].status").value(400));
+
+        assertEquals(Preco.de("110.00"), repository.findById(id).orElseThrow().getValorAtual());
+    }
+
+    @Test
+    void testAtualizarValorValidadoContraValorGravado() throws Exception {
+        // Given - Criar um ativo
+        Ativo ativo = new Ativo();
+        ativo.setNome("Petrobras");
+        ativo.setTipo(TipoAtivo.ACAO);
+        ativo.setValorAtual(Preco.de("100.00"));
+
+        String response = mockMvc.perform(post("/ativos")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(objectMapper.writeValueAsString(ativo)))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getContentAsString();
+
+        Long id = objectMapper.readValue(response, Ativo.class).getId();
+
+        // Given - O valor gravado muda por fora da aplicação
+        Ativo gravado = repository.findById(id).orElseThrow();
+        gravado.setValorAtual(Preco.de("110.00"));
+        repository.saveAndFlush(gravado);
+
+        // When & Then - 110.50 varia mais de 1% sobre o catálogo, mas não sobre o banco
+        mockMvc.perform(patch("/ativos/{id}/valor", id)
+                .param("novoValor", "110.50"))
+                .andExpect(status().isBadRequest())
+                .andExpect(jsonPath("$.message").value("Variação mínima de 1% não atingida"));
+
+        // Then - O catálogo foi realinhado com o banco
+        mockMvc.perform(get("/ativos"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$[0].valorAtual").value(110.00));
+
+        mockMvc.perform(patch("/ativos/{id}/valor", id)
+                .param("novoValor", "120.00"))
+                .andExpect(status().isOk());
+
+        assertEquals(Preco.de("120.00"), repository.findById(id).orElseThrow().getValorAtual());
+    }
+
+    @Test
+    void testListarAtivosDisponiveisComEtag() throws Exception {
+        // Given - Criar um ativo
+        Ativo ativo = new Ativo();
+        ativo.setNome("Petrobras");
+        ativo.setTipo(TipoAtivo.ACAO);
+        ativo.setDisponivel(true);
+        ativo.setValorAtual(Preco.de("100.00"));
+
+        String response = mockMvc.perform(post("/ativos")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(objectMapper.writeValueAsString(ativo)))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getContentAsString();
+
+        Long id = objectMapper.readValue(response, Ativo.class).getId();
+
+        String etag = mockMvc.perform(get("/ativos/disponiveis"))
+                .andExpect(status().isOk())
+                .andExpect(header().exists("ETag"))
+                .andExpect(header().doesNotExist("Last-Modified"))
+                .andExpect(jsonPath("$", hasSize(1)))
+                .andReturn().getResponse().getHeader("ETag");
+
+        // When & Then - Mesma versão: 304 sem corpo
+        mockMvc.perform(get("/ativos/disponiveis")
+                .header("If-None-Match", etag))
+                .andExpect(status().isNotModified())
+                .andExpect(content().string(""));
+
+        // When & Then - Qualquer alteração no catálogo gera uma nova versão
+        mockMvc.perform(patch("/ativos/{id}/valor", id)
+                .param("novoValor", "110.00"))
+                .andExpect(status().isOk());
+
+        mockMvc.perform(get("/ativos/disponiveis")
+                .header("If-None-Match", etag))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$[0].valorAtual").value(110.00));
+
+        // When & Then - Só a ETag decide: uma data, mesmo posterior à alteração, não gera 304
+        mockMvc.perform(get("/ativos/disponiveis")
+                .header("If-Modified-Since", DateTimeFormatter.RFC_1123_DATE_TIME
+                    .format(ZonedDateTime.now(ZoneOffset.UTC).plusHours(1))))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$[0].valorAtual").value(110.00));
+    }
+
+    @Test
+    void testDescricaoSomenteNoDetalheDoAtivo() throws Exception {
+        // Given - Criar um ativo com descrição
+        Ativo ativo = new Ativo();
+        ativo.setNome("Petrobras");
+        ativo.setTipo(TipoAtivo.ACAO);
+        ativo.setDescricao("Ação da Petrobras");
+        ativo.setDisponivel(true);
+        ativo.setValorAtual(Preco.de("25.50"));
+
+        String response = mockMvc.perform(post("/ativos")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(objectMapper.writeValueAsString(ativo)))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getContentAsString();
+
+        Long id = objectMapper.readValue(response, Ativo.class).getId();
+
+        // When & Then - Listagens trazem o resumo, sem a descrição
+        mockMvc.perform(get("/ativos/disponiveis"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$[0].nome").value("Petrobras"))
+                .andExpect(jsonPath("$[0].valorAtual").value(25.50))
+                .andExpect(jsonPath("$[0].descricao").doesNotExist());
+
+        mockMvc.perform(patch("/ativos/{id}/valor", id)
+                .param("novoValor", "30.00"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.descricao").doesNotExist());
+
+        // When & Then - O detalhe traz a descrição e o último valor aceito
+        mockMvc.perform(get("/ativos/{id}", id))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.descricao").value("Ação da Petrobras"))
+                .andExpect(jsonPath("$.valorAtual").value(30.00));
+
+        mockMvc.perform(get("/ativos/{id}", 999L))
+                .andExpect(status().isNotFound());
+
+        // Then - Carregar a entidade não carrega a descrição
+        entityManager.flush();
+        entityManager.clear();
+        Ativo carregado = repository.findById(id).orElseThrow();
+        assertFalse(Hibernate.isPropertyInitialized(carregado, "descricao"));
+        assertEquals("Ação da Petrobras", carregado.getDescricao());
+    }
+
+    @Test
+    void testListarAtivosComGzip() throws Exception {
+        // Given - Criar um ativo
+        Ativo ativo = new Ativo();
+        ativo.setNome("Petrobras");
+        ativo.setTipo(TipoAtivo.ACAO);
+        ativo.setDisponivel(true);
+        ativo.setValorAtual(Preco.de("100.00"));
+
+        mockMvc.perform(post("/ativos")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(objectMapper.writeValueAsString(ativo)))
+                .andExpect(status().isOk());
+
+        MockHttpServletResponse semCompressao = mockMvc.perform(get("/ativos"))
+                .andExpect(status().isOk())
+                .andExpect(header().doesNotExist("Content-Encoding"))
+                .andReturn().getResponse();
+
+        // When
+        MockHttpServletResponse comGzip = mockMvc.perform(get("/ativos")
+                .header("Accept-Encoding", "gzip, deflate"))
+                .andExpect(status().isOk())
+                .andExpect(header().string("Content-Encoding", "gzip"))
+                .andExpect(header().string("Vary", containsString("Accept-Encoding")))
+                .andReturn().getResponse();
+
+        // Then - Mesmo conteúdo, com ETag própria para a representação comprimida
+        try (GZIPInputStream entrada = new GZIPInputStream(new ByteArrayInputStream(comGzip.getContentAsByteArray()))) {
+            assertEquals(semCompressao.getContentAsString(), new String(entrada.readAllBytes(), StandardCharsets.UTF_8));
+        }
+        assertNotEquals(semCompressao.getHeader("ETag"), comGzip.getHeader("ETag"));
+
+        mockMvc.perform(get("/ativos")
+                .header("Accept-Encoding", "gzip")
+                .header("If-None-Match", comGzip.getHeader("ETag")))
+                .andExpect(status().isNotModified());
+    }
+
+    @Test
+    void testHistoricoDeCotacoes() throws Exception {
+        // Given - Criar um ativo
+        Ativo ativo = new Ativo();
+        ativo.setNome("Petrobras");
+        ativo.setTipo(TipoAtivo.ACAO);
+        ativo.setValorAtual(Preco.de("100.00"));
+
+        String response = mockMvc.perform(post("/ativos")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(objectMapper.writeValueAsString(ativo)))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getContentAsString();
+
+        Long id = objectMapper.readValue(response, Ativo.class).getId();
+
+        // Given - Cotações suficientes para ocupar mais de um segmento do histórico
+        List<AtualizacaoValor> atualizacoes = new ArrayList<>();
+        for (int i = 0; i < 2000; i++) {
+            atualizacoes.add(new AtualizacaoValor(id, Preco.de(i % 2 == 0 ? "110.00" : "100.00")));
+        }
+        mockMvc.perform(patch("/ativos/valores")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(objectMapper.writeValueAsString(atualizacoes)))
+                .andExpect(status().isOk());
+
+        mockMvc.perform(patch("/ativos/{id}/valor", id)
+                .param("novoValor", "120.00"))
+                .andExpect(status().isOk());
+
+        // When & Then - Cotação inicial, as do lote e a última, em ordem
+        mockMvc.perform(get("/ativos/{id}/historico", id))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$", hasSize(2002)))
+                .andExpect(jsonPath("$[0].valor").value(100.00))
+                .andExpect(jsonPath("$[1].valor").value(110.00))
+                .andExpect(jsonPath("$[2].valor").value(100.00))
+                .andExpect(jsonPath("$[2001].valor").value(120.00));
+
+        // When & Then - Intervalo sem cotações
+        mockMvc.perform(get("/ativos/{id}/historico", id)
+                .param("de", "2100-01-01T00:00:00Z"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$", hasSize(0)));
+
+        // When & Then - Intervalo invertido
+        mockMvc.perform(get("/ativos/{id}/historico", id)
+                .param("de", "2030-01-01T00:00:00Z")
+                .param("ate", "2020-01-01T00:00:00Z"))
+                .andExpect(status().isBadRequest());
+    }
+
+    @Test
+    void testHistoricoDeAtivoInexistente() throws Exception {
+        mockMvc.perform(get("/ativos/{id}/historico", 999L))
+                .andExpect(status().isNotFound());
+    }
+
+    @Test
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
+    void testImportarAtivosEmCsv() throws Exception {
+        // A gravação acontece na thread da resposta assíncrona, fora da transação do teste
+        try {
+            // Given - Um ativo já cadastrado
+            Ativo existente = new Ativo();
+            existente.setNome("Petrobras");
+            existente.setTipo(TipoAtivo.ACAO);
+            existente.setValorAtual(Preco.de("25.50"));
+            mockMvc.perform(post("/ativos")
+                    .contentType(MediaType.APPLICATION_JSON)
+                    .content(objectMapper.writeValueAsString(existente)))
+                    .andExpect(status().isOk());
+
+            String conteudo = "nome,tipo,descricao,disponivel,valorAtual\n"
+                    + "Vale,ACAO,Ação da Vale,true,68.20\n"
+                    + "Petrobras,ACAO,Nome já cadastrado,true,30.00\n"
+                    + "Bitcoin,CRIPTOMOEDA,,true,não é número\n"
+                    + "Tesouro Selic,TESOURO_DIRETO,,false,14000\n";
+
+            // When
+            MvcResult resultado = mockMvc.perform(post("/ativos/importacao")
+                    .contentType("text/csv")
+                    .content(conteudo))
+                    .andExpect(request().asyncStarted())
+                    .andReturn();
+
+            String corpo = mockMvc.perform(asyncDispatch(resultado))
+                    .andExpect(status().isOk())
+                    .andReturn().getResponse().getContentAsString();
+
+            // Then - Os recusados são informados e os demais já aparecem no catálogo
+            String[] linhas = corpo.split("\n");
+            assertEquals(3, linhas.length);
+            assertEquals(3, objectMapper.readTree(linhas[0]).get("registro").asLong());
+            assertEquals(2, objectMapper.readTree(linhas[1]).get("registro").asLong());
+            assertEquals(2, objectMapper.readTree(linhas[2]).get("importados").asLong());
+            assertEquals(2, objectMapper.readTree(linhas[2]).get("erros").asLong());
+
+            mockMvc.perform(get("/ativos"))
+                    .andExpect(status().isOk())
+                    .andExpect(jsonPath("$", hasSize(3)));
+        } finally {
+            repository.deleteAll();
+            catalogo.recarregar();
+        }
+    }
+
     @Test
     void testCriarMultiplosAtivos() throws Exception {
         // Given
         Ativo ativo1 = new Ativo();
         ativo1.setNome("Petrobras");
         ativo1.setTipo(TipoAtivo.ACAO);
-        ativo1.setValorAtual(25.50f);
+        ativo1.setValorAtual(Preco.de("25.50"));
 
         Ativo ativo2 = new Ativo();
         ativo2.setNome("Vale");
         ativo2.setTipo(TipoAtivo.ACAO);
-        ativo2.setValorAtual(30.00f);
+        ativo2.setValorAtual(Preco.de("30.00"));
 
         Ativo ativo3 = new Ativo();
         ativo3.setNome("Tesouro Selic");
         ativo3.setTipo(TipoAtivo.TESOURO_DIRETO);
-        ativo3.setValorAtual(100.00f);
+        ativo3.setValorAtual(Preco.de("100.00"));
 
         // When & Then - Criar primeiro ativo
         mockMvc.perform(post("/ativos")
@@ -385,7 +919,7 @@ class AtivoControllerTest {
         Ativo ativo = new Ativo();
         ativo.setNome("Petrobras");
         ativo.setTipo(TipoAtivo.ACAO);
-        ativo.setValorAtual(25.50f);
+        ativo.setValorAtual(Preco.de("25.50"));
 
         String response = mockMvc.perform(post("/ativos")
                 .contentType(MediaType.APPLICATION_JSON)
@@ -419,7 +953,7 @@ class AtivoControllerTest {
         // Given - Ativo sem nome
         Ativo ativoInvalido = new Ativo();
         ativoInvalido.setTipo(TipoAtivo.ACAO);
-        ativoInvalido.setValorAtual(25.50f);
+        ativoInvalido.setValorAtual(Preco.de("25.50"));
 
         // When & Then - Deve funcionar pois o controller não valida, apenas repassa
         mockMvc.perform(post("/ativos")
@@ -434,7 +968,7 @@ class AtivoControllerTest {
         Ativo ativo = new Ativo();
         ativo.setNome("Teste Fluxo");
         ativo.setTipo(TipoAtivo.ACAO);
-        ativo.setValorAtual(100.00f);
+        ativo.setValorAtual(Preco.de("100.00"));
 
         // When & Then - 1. Criar ativo
         String response = mockMvc.perform(post("/ativos")
@@ -458,7 +992,7 @@ class AtivoControllerTest {
         // Verificar se foi atualizado
         Ativo ativoAtualizado = repository.findById(id).orElse(null);
         assertNotNull(ativoAtualizado);
-        assertEquals(110.00f, ativoAtualizado.getValorAtual(), 0.01f);
+        assertEquals(Preco.de("110.00"), ativoAtualizado.getValorAtual());
 
         // When & Then - 3. Remover ativo
         mockMvc.perform(delete("/ativos/{id}", id))
@@ -477,7 +1011,7 @@ class AtivoControllerTest {
         ativo.setNome("Petrobras");
         ativo.setTipo(TipoAtivo.ACAO);
         ativo.setDisponivel(false);
-        ativo.setValorAtual(25.50f);
+        ativo.setValorAtual(Preco.de("25.50"));
 
         String response = mockMvc.perform(post("/ativos")
                 .contentType(MediaType.APPLICATION_JSON)
@@ -507,7 +1041,7 @@ class AtivoControllerTest {
         ativo.setNome("Vale");
         ativo.setTipo(TipoAtivo.ACAO);
         ativo.setDisponivel(true);
-        ativo.setValorAtual(30.00f);
+        ativo.setValorAtual(Preco.de("30.00"));
 
         String response = mockMvc.perform(post("/ativos")
                 .contentType(MediaType.APPLICATION_JSON)
@@ -546,19 +1080,19 @@ class AtivoControllerTest {
         ativo1.setNome("Petrobras");
         ativo1.setTipo(TipoAtivo.ACAO);
         ativo1.setDisponivel(true);
-        ativo1.setValorAtual(25.50f);
+        ativo1.setValorAtual(Preco.de("25.50"));
 
         Ativo ativo2 = new Ativo();
         ativo2.setNome("Vale");
         ativo2.setTipo(TipoAtivo.ACAO);
         ativo2.setDisponivel(false);
-        ativo2.setValorAtual(30.00f);
+        ativo2.setValorAtual(Preco.de("30.00"));
 
         Ativo ativo3 = new Ativo();
         ativo3.setNome("Bitcoin");
         ativo3.setTipo(TipoAtivo.CRIPTOMOEDA);
         ativo3.setDisponivel(true);
-        ativo3.setValorAtual(150000.00f);
+        ativo3.setValorAtual(Preco.de("150000.00"));
 
         // Criar os ativos
         mockMvc.perform(post("/ativos")
@@ -591,19 +1125,19 @@ class AtivoControllerTest {
         ativo1.setNome("Petrobras");
         ativo1.setTipo(TipoAtivo.ACAO);
         ativo1.setDisponivel(true);
-        ativo1.setValorAtual(25.50f);
+        ativo1.setValorAtual(Preco.de("25.50"));
 
         Ativo ativo2 = new Ativo();
         ativo2.setNome("Vale");
         ativo2.setTipo(TipoAtivo.ACAO);
         ativo2.setDisponivel(false);
-        ativo2.setValorAtual(30.00f);
+        ativo2.setValorAtual(Preco.de("30.00"));
 
         Ativo ativo3 = new Ativo();
         ativo3.setNome("Tesouro Selic");
         ativo3.setTipo(TipoAtivo.TESOURO_DIRETO);
         ativo3.setDisponivel(false);
-        ativo3.setValorAtual(100.00f);
+        ativo3.setValorAtual(Preco.de("100.00"));
 
         // Criar os ativos
         mockMvc.perform(post("/ativos")
@@ -636,19 +1170,19 @@ class AtivoControllerTest {
         ativo1.setNome("Petrobras");
         ativo1.setTipo(TipoAtivo.ACAO);
         ativo1.setDisponivel(true);
-        ativo1.setValorAtual(25.50f);
+        ativo1.setValorAtual(Preco.de("25.50"));
 
         Ativo ativo2 = new Ativo();
         ativo2.setNome("Vale");
         ativo2.setTipo(TipoAtivo.ACAO);
         ativo2.setDisponivel(false);
-        ativo2.setValorAtual(30.00f);
+        ativo2.setValorAtual(Preco.de("30.00"));
 
         Ativo ativo3 = new Ativo();
         ativo3.setNome("Bitcoin");
         ativo3.setTipo(TipoAtivo.CRIPTOMOEDA);
         ativo3.setDisponivel(true);
-        ativo3.setValorAtual(150000.00f);
+        ativo3.setValorAtual(Preco.de("150000.00"));
 
         // Criar os ativos
         mockMvc.perform(post("/ativos")
@@ -672,6 +1206,56 @@ class AtivoControllerTest {
                 .andExpect(jsonPath("$", hasSize(3)));
     }
 
+    @Test
+    void testListarAtivosPaginado() throws Exception {
+        // Given - Criar três ativos
+        Long ultimoId = null;
+        for (String nome : List.of("Petrobras", "Vale", "Bitcoin")) {
+            Ativo ativo = new Ativo();
+            ativo.setNome(nome);
+            ativo.setTipo(TipoAtivo.ACAO);
+            ativo.setDisponivel(true);
+            ativo.setValorAtual(Preco.de("25.50"));
+
+            String response = mockMvc.perform(post("/ativos")
+                    .contentType(MediaType.APPLICATION_JSON)
+                    .content(objectMapper.writeValueAsString(ativo)))
+                    .andExpect(status().isOk())
+                    .andReturn().getResponse().getContentAsString();
+            ultimoId = objectMapper.readValue(response, Ativo.class).getId();
+        }
+
+        // When & Then - Primeira página
+        String pagina = mockMvc.perform(get("/ativos")
+                .param("limite", "2"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.itens", hasSize(2)))
+                .andExpect(jsonPath("$.itens[0].nome").value("Petrobras"))
+                .andExpect(jsonPath("$.itens[1].nome").value("Vale"))
+                .andExpect(jsonPath("$.proximoCursor").exists())
+                .andReturn().getResponse().getContentAsString();
+
+        String cursor = objectMapper.readTree(pagina).get("proximoCursor").asText();
+
+        // When & Then - Segunda (e última) página
+        mockMvc.perform(get("/ativos")
+                .param("apos", cursor)
+                .param("limite", "2"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.itens", hasSize(1)))
+                .andExpect(jsonPath("$.itens[0].id").value(ultimoId))
+                .andExpect(jsonPath("$.proximoCursor").doesNotExist());
+    }
+
+    @Test
+    void testListarAtivosPaginadoComLimiteInvalido() throws Exception {
+        // When & Then
+        mockMvc.perform(get("/ativos/disponiveis")
+                .param("limite", "0"))
+                .andExpect(status().isBadRequest())
+                .andExpect(jsonPath("$.message").value("Limite deve estar entre 1 e 1000"));
+    }
+
     @Test
     void testFluxoCompletoAtivarDesativar() throws Exception {
         // Given - Criar um ativo
@@ -679,7 +1263,7 @@ class AtivoControllerTest {
         ativo.setNome("Teste Fluxo");
         ativo.setTipo(TipoAtivo.ACAO);
         ativo.setDisponivel(true);
-        ativo.setValorAtual(100.00f);
+        ativo.setValorAtual(Preco.de("100.00"));
 
         // When & Then - 1. Criar ativo
         String response = mockMvc.perform(post("/ativos")
@@ -719,7 +1303,7 @@ class AtivoControllerTest {
         Ativo ativo = new Ativo();
         ativo.setNome("Teste Parametro");
         ativo.setTipo(TipoAtivo.ACAO);
-        ativo.setValorAtual(100.00f);
+        ativo.setValorAtual(Preco.de("100.00"));
 
         String response = mockMvc.perform(post("/ativos")
                 .contentType(MediaType.APPLICATION_JSON)
@@ -743,13 +1327,13 @@ class AtivoControllerTest {
         ativo1.setNome("Disponível");
         ativo1.setTipo(TipoAtivo.ACAO);
         ativo1.setDisponivel(true);
-        ativo1.setValorAtual(25.50f);
+        ativo1.setValorAtual(Preco.de("25.50"));
 
         Ativo ativo2 = new Ativo();
         ativo2.setNome("Indisponível");
         ativo2.setTipo(TipoAtivo.ACAO);
         ativo2.setDisponivel(false);
-        ativo2.setValorAtual(30.00f);
+        ativo2.setValorAtual(Preco.de("30.00"));
 
         // Criar os ativos
         mockMvc.perform(post("/ativos")
@@ -782,13 +1366,13 @@ class AtivoControllerTest {
         ativo1.setNome("Disponível");
         ativo1.setTipo(TipoAtivo.ACAO);
         ativo1.setDisponivel(true);
-        ativo1.setValorAtual(25.50f);
+        ativo1.setValorAtual(Preco.de("25.50"));
 
         Ativo ativo2 = new Ativo();
         ativo2.setNome("Indisponível");
         ativo2.setTipo(TipoAtivo.ACAO);
         ativo2.setDisponivel(false);
-        ativo2.setValorAtual(30.00f);
+        ativo2.setValorAtual(Preco.de("30.00"));
 
         // Criar os ativos
         mockMvc.perform(post("/ativos")
@@ -806,4 +1390,18 @@ class AtivoControllerTest {
                 .andExpect(status().isOk())
                 .andExpect(jsonPath("$", hasSize(2)));
     }
-} 
\ No newline at end of file
+
+    private Long criarAtivoComValor(String nome, String valor) throws Exception {
+        Ativo ativo = new Ativo();
+        ativo.setNome(nome);
+        ativo.setTipo(TipoAtivo.ACAO);
+        ativo.setValorAtual(Preco.de(valor));
+
+        String response = mockMvc.perform(post("/ativos")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(objectMapper.writeValueAsString(ativo)))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getContentAsString();
+        return objectMapper.readValue(response, Ativo.class).getId();
+    }
+}
@@ -4,6 +4,10 @@ import com.fasterxml.jackson.databind.ObjectMapper;
 import com.psoft.wallet.model.Cliente;
 import com.psoft.wallet.model.TipoPlano;
 import com.psoft.wallet.repository.ClienteRepository;
+import com.psoft.wallet.service.ClienteService;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.BeforeEach;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -12,6 +16,7 @@ import org.springframework.boot.test.context.SpringBootTest;
 import org.springframework.http.MediaType;
 import org.springframework.test.context.ActiveProfiles;
 import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
 import org.springframework.test.web.servlet.setup.MockMvcBuilders;
 import org.springframework.web.context.WebApplicationContext;
 
@@ -31,14 +36,21 @@ class ClienteControllerTest {
     @Autowired
     private ClienteRepository repository;
 
+    @Autowired
+    private ClienteService service;
+
     @Autowired
     private ObjectMapper objectMapper;
 
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
     private MockMvc mockMvc;
 
     @BeforeEach
     void setUp() {
         repository.deleteAll();
+        service.limparCacheAcessos();
         mockMvc = MockMvcBuilders.webAppContextSetup(webApplicationContext).build();
     }
 
@@ -142,6 +154,36 @@ class ClienteControllerTest {
                 .andExpect(jsonPath("$.message").value("Código de acesso deve ter exatamente 6 dígitos"));
     }
 
+    @Test
+    void testCriarClienteComCodigoAcessoJaEmUso() throws Exception {
+        // Given - Criar um cliente
+        Cliente cliente1 = new Cliente();
+        cliente1.setNomeCompleto("João Silva");
+        cliente1.setEnderecoPrincipal("Rua das Flores, 123");
+        cliente1.setPlano(TipoPlano.NORMAL);
+        cliente1.setCodigoAcesso("123456");
+
+        mockMvc.perform(post("/clientes")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(objectMapper.writeValueAsString(cliente1)))
+                .andExpect(status().isOk());
+
+        // When & Then - Tentar criar outro cliente com o mesmo código
+        Cliente cliente2 = new Cliente();
+        cliente2.setNomeCompleto("Maria Santos");
+        cliente2.setEnderecoPrincipal("Av. Principal, 456");
+        cliente2.setPlano(TipoPlano.PREMIUM);
+        cliente2.setCodigoAcesso("123456");
+
+        mockMvc.perform(post("/clientes")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(objectMapper.writeValueAsString(cliente2)))
+                .andExpect(status().isConflict())
+                .andExpect(jsonPath("$.message").value("Código de acesso já está em uso"));
+
+        assertEquals(1, repository.count());
+    }
+
     @Test
     void testListarTodosClientes() throws Exception {
         // Given - Criar múltiplos clientes
@@ -178,6 +220,184 @@ class ClienteControllerTest {
                 .andExpect(jsonPath("$[1].codigoAcesso").doesNotExist());
     }
 
+    @Test
+    void testListarClientesPaginado() throws Exception {
+        // Given - Criar três clientes
+        String[][] dados = {{"João Silva", "123456"}, {"Maria Santos", "654321"}, {"Ana Souza", "111111"}};
+        for (String[] dado : dados) {
+            Cliente cliente = new Cliente();
+            cliente.setNomeCompleto(dado[0]);
+            cliente.setEnderecoPrincipal("Rua das Flores, 123");
+            cliente.setPlano(TipoPlano.NORMAL);
+            cliente.setCodigoAcesso(dado[1]);
+
+            mockMvc.perform(post("/clientes")
+                    .contentType(MediaType.APPLICATION_JSON)
+                    .content(objectMapper.writeValueAsString(cliente)))
+                    .andExpect(status().isOk());
+        }
+
+        // When & Then - Primeira página
+        String pagina = mockMvc.perform(get("/clientes")
+                .param("limite", "2"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.itens", hasSize(2)))
+                .andExpect(jsonPath("$.itens[0].nomeCompleto").value("João Silva"))
+                .andExpect(jsonPath("$.itens[1].nomeCompleto").value("Maria Santos"))
+                .andExpect(jsonPath("$.itens[0].codigoAcesso").doesNotExist())
+                .andReturn().getResponse().getContentAsString();
+
+        String cursor = objectMapper.readTree(pagina).get("proximoCursor").asText();
+
+        // When & Then - Segunda (e última) página
+        mockMvc.perform(get("/clientes")
+                .param("apos", cursor)
+                .param("limite", "2"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.itens", hasSize(1)))
+                .andExpect(jsonPath("$.itens[0].nomeCompleto").value("Ana Souza"))
+                .andExpect(jsonPath("$.proximoCursor").doesNotExist());
+    }
+
+    @Test
+    void testTransmitirClientesEmNdjson() throws Exception {
+        // Given - Criar dois clientes
+        Cliente cliente1 = new Cliente();
+        cliente1.setNomeCompleto("João Silva");
+        cliente1.setEnderecoPrincipal("Rua das Flores, 123");
+        cliente1.setPlano(TipoPlano.NORMAL);
+        cliente1.setCodigoAcesso("123456");
+
+        Cliente cliente2 = new Cliente();
+        cliente2.setNomeCompleto("Maria Santos");
+        cliente2.setEnderecoPrincipal("Av. Principal, 456");
+        cliente2.setPlano(TipoPlano.PREMIUM);
+        cliente2.setCodigoAcesso("654321");
+
+        mockMvc.perform(post("/clientes")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(objectMapper.writeValueAsString(cliente1)))
+                .andExpect(status().isOk());
+
+        mockMvc.perform(post("/clientes")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(objectMapper.writeValueAsString(cliente2)))
+                .andExpect(status().isOk());
+
+        // When - Pedir a listagem em NDJSON
+        MvcResult resultado = mockMvc.perform(get("/clientes")
+                .accept("application/x-ndjson"))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+
+        String corpo = mockMvc.perform(asyncDispatch(resultado))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getContentAsString();
+
+        // Then - Uma linha por cliente, sem código de acesso
+        String[] linhas = corpo.split("\n");
+        assertEquals(2, linhas.length);
+        assertEquals("João Silva", objectMapper.readTree(linhas[0]).get("nomeCompleto").asText());
+        assertEquals("Maria Santos", objectMapper.readTree(linhas[1]).get("nomeCompleto").asText());
+        assertFalse(corpo.contains("codigoAcesso"));
+    }
+
+    @Test
+    void testImportarClientesEmNdjson() throws Exception {
+        // Given - Um cliente já cadastrado
+        Cliente existente = new Cliente();
+        existente.setNomeCompleto("João Silva");
+        existente.setEnderecoPrincipal("Rua das Flores, 123");
+        existente.setPlano(TipoPlano.NORMAL);
+        existente.setCodigoAcesso("111111");
+        mockMvc.perform(post("/clientes")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(objectMapper.writeValueAsString(existente)))
+                .andExpect(status().isOk());
+
+        String conteudo = String.join("\n",
+                "{\"nomeCompleto\":\"Maria Santos\",\"enderecoPrincipal\":\"Av. Principal, 456\",\"plano\":\"PREMIUM\",\"codigoAcesso\":\"222222\"}",
+                "{\"nomeCompleto\":\"Código Curto\",\"enderecoPrincipal\":\"Rua A\",\"plano\":\"NORMAL\",\"codigoAcesso\":\"12\"}",
+                "{\"nomeCompleto\":\"Código Existente\",\"enderecoPrincipal\":\"Rua B\",\"plano\":\"NORMAL\",\"codigoAcesso\":\"111111\"}",
+                "{\"nomeCompleto\":\"Código Repetido\",\"enderecoPrincipal\":\"Rua C\",\"plano\":\"NORMAL\",\"codigoAcesso\":\"222222\"}",
+                "{\"nomeCompleto\":\"Pedro Lima\",\"enderecoPrincipal\":\"Rua D\",\"plano\":\"NORMAL\",\"codigoAcesso\":\"333333\"}");
+
+        // When
+        MvcResult resultado = mockMvc.perform(post("/clientes/importacao")
+                .contentType("application/x-ndjson")
+                .content(conteudo))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+
+        String corpo = mockMvc.perform(asyncDispatch(resultado))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getContentAsString();
+
+        // Then - Uma linha por registro recusado e o progresso final
+        String[] linhas = corpo.split("\n");
+        assertEquals(4, linhas.length);
+        assertEquals(2, objectMapper.readTree(linhas[0]).get("registro").asLong());
+        assertEquals(3, objectMapper.readTree(linhas[1]).get("registro").asLong());
+        assertEquals(4, objectMapper.readTree(linhas[2]).get("registro").asLong());
+        assertEquals(5, objectMapper.readTree(linhas[3]).get("processados").asLong());
+        assertEquals(2, objectMapper.readTree(linhas[3]).get("importados").asLong());
+        assertEquals(3, objectMapper.readTree(linhas[3]).get("erros").asLong());
+        assertTrue(objectMapper.readTree(linhas[3]).get("concluida").asBoolean());
+        assertEquals(3, repository.count());
+    }
+
+    @Test
+    void testImportarClientesEmCsv() throws Exception {
+        // Given
+        String conteudo = "nomeCompleto,enderecoPrincipal,plano,codigoAcesso\n"
+                + "Maria Santos,Av. Principal,PREMIUM,222222\n"
+                + "Pedro Lima,Rua D,PLANO_INEXISTENTE,333333\n"
+                + "Ana Costa,Rua E,NORMAL,444444\n";
+
+        // When
+        MvcResult resultado = mockMvc.perform(post("/clientes/importacao")
+                .contentType("text/csv")
+                .content(conteudo))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+
+        String corpo = mockMvc.perform(asyncDispatch(resultado))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getContentAsString();
+
+        // Then - O registro com plano inválido é recusado e a leitura continua
+        String[] linhas = corpo.split("\n");
+        assertEquals(2, linhas.length);
+        assertEquals(2, objectMapper.readTree(linhas[0]).get("registro").asLong());
+        assertEquals(2, objectMapper.readTree(linhas[1]).get("importados").asLong());
+        assertEquals(2, repository.count());
+    }
+
+    @Test
+    void testBuscarClientePorIdUsaCacheDeSegundoNivel() throws Exception {
+        // Given
+        Cliente cliente = new Cliente();
+        cliente.setNomeCompleto("João Silva");
+        cliente.setEnderecoPrincipal("Rua das Flores, 123");
+        cliente.setPlano(TipoPlano.NORMAL);
+        cliente.setCodigoAcesso("123456");
+        Long id = repository.save(cliente).getId();
+
+        Statistics estatisticas = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        estatisticas.clear();
+
+        // When - Duas buscas seguidas
+        for (int i = 0; i < 2; i++) {
+            mockMvc.perform(get("/clientes/{id}", id))
+                    .andExpect(status().isOk())
+                    .andExpect(jsonPath("$.nomeCompleto").value("João Silva"));
+        }
+
+        // Then - Nenhuma das buscas carregou o cliente do banco
+        assertEquals(2, estatisticas.getSecondLevelCacheHitCount());
+        assertEquals(0, estatisticas.getEntityLoadCount());
+    }
+
     @Test
     void testBuscarClientePorId() throws Exception {
         // Given - Criar um cliente
@@ -487,6 +707,56 @@ class ClienteControllerTest {
                 .andExpect(jsonPath("$[0].codigoAcesso").doesNotExist());
     }
 
+    @Test
+    void testValidarAcessoAposEditarERemoverCliente() throws Exception {
+        // Given - Criar um cliente e validar o acesso
+        Cliente cliente = new Cliente();
+        cliente.setNomeCompleto("João Silva");
+        cliente.setEnderecoPrincipal("Rua das Flores, 123");
+        cliente.setPlano(TipoPlano.NORMAL);
+        cliente.setCodigoAcesso("123456");
+
+        String response = mockMvc.perform(post("/clientes")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(objectMapper.writeValueAsString(cliente)))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getContentAsString();
+
+        Long id = objectMapper.readValue(response, Cliente.class).getId();
+
+        mockMvc.perform(get("/clientes/validar-acesso")
+                .param("codigoAcesso", "123456"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$[0].plano").value("NORMAL"));
+
+        // When & Then - Edição é refletida na validação seguinte
+        Cliente clienteEditado = new Cliente();
+        clienteEditado.setNomeCompleto("João Silva Santos");
+        clienteEditado.setEnderecoPrincipal("Rua das Flores, 123");
+        clienteEditado.setPlano(TipoPlano.PREMIUM);
+
+        mockMvc.perform(put("/clientes/{id}", id)
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(objectMapper.writeValueAsString(clienteEditado))
+                .param("codigoAcesso", "123456"))
+                .andExpect(status().isOk());
+
+        mockMvc.perform(get("/clientes/validar-acesso")
+                .param("codigoAcesso", "123456"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$[0].nomeCompleto").value("João Silva Santos"))
+                .andExpect(jsonPath("$[0].plano").value("PREMIUM"));
+
+        // When & Then - Após a remoção o código deixa de ser aceito
+        mockMvc.perform(delete("/clientes/{id}", id)
+                .param("codigoAcesso", "123456"))
+                .andExpect(status().isOk());
+
+        mockMvc.perform(get("/clientes/validar-acesso")
+                .param("codigoAcesso", "123456"))
+                .andExpect(status().isUnauthorized());
+    }
+
     @Test
     void testValidarAcessoComCodigoIncorreto() throws Exception {
         // When & Then - Validar acesso com código incorreto
@@ -553,4 +823,194 @@ class ClienteControllerTest {
         // Verificar se foi removido
         assertFalse(repository.existsById(id));
     }
+
+    // Sessões: o código de acesso é verificado uma vez, no login
+
+    @Test
+    void testLoginEmiteTokenSemCodigoAcesso() throws Exception {
+        // Given
+        Cliente cliente = new Cliente();
+        cliente.setNomeCompleto("João Silva");
+        cliente.setEnderecoPrincipal("Rua das Flores, 123");
+        cliente.setPlano(TipoPlano.PREMIUM);
+        cliente.setCodigoAcesso("123456");
+        Long id = repository.save(cliente).getId();
+
+        // When & Then - Código no corpo, como formulário
+        mockMvc.perform(post("/clientes/login")
+                .contentType(MediaType.APPLICATION_FORM_URLENCODED)
+                .content("codigoAcesso=123456"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.token").isNotEmpty())
+                .andExpect(jsonPath("$.expiraEm").exists())
+                .andExpect(jsonPath("$.cliente.id").value(id))
+                .andExpect(jsonPath("$.cliente.plano").value("PREMIUM"))
+                .andExpect(jsonPath("$.cliente.codigoAcesso").doesNotExist());
+
+        mockMvc.perform(post("/clientes/login")
+                .param("codigoAcesso", "999999"))
+                .andExpect(status().isUnauthorized())
+                .andExpect(jsonPath("$.message").value("Código de acesso incorreto"));
+    }
+
+    @Test
+    void testEditarERemoverClienteComToken() throws Exception {
+        // Given
+        Cliente cliente = new Cliente();
+        cliente.setNomeCompleto("João Silva");
+        cliente.setEnderecoPrincipal("Rua das Flores, 123");
+        cliente.setPlano(TipoPlano.NORMAL);
+        cliente.setCodigoAcesso("123456");
+        Long id = repository.save(cliente).getId();
+        String token = login("123456");
+
+        // When & Then - Editar sem código de acesso, inclusive trocando o código
+        Cliente clienteEditado = new Cliente();
+        clienteEditado.setNomeCompleto("João Silva Santos");
+        clienteEditado.setEnderecoPrincipal("Rua das Flores, 456");
+        clienteEditado.setPlano(TipoPlano.PREMIUM);
+        clienteEditado.setCodigoAcesso("654321");
+
+        mockMvc.perform(put("/clientes/{id}", id)
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(objectMapper.writeValueAsString(clienteEditado))
+                .header("Authorization", "Bearer " + token))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.nomeCompleto").value("João Silva Santos"));
+
+        // O código antigo deixa de ser aceito, mesmo já validado antes da edição
+        mockMvc.perform(post("/clientes/login")
+                .param("codigoAcesso", "123456"))
+                .andExpect(status().isUnauthorized());
+
+        // When & Then - Remover com um token do novo código
+        mockMvc.perform(delete("/clientes/{id}", id)
+                .header("Authorization", "Bearer " + login("654321")))
+                .andExpect(status().isOk());
+
+        assertFalse(repository.existsById(id));
+    }
+
+    @Test
+    void testTokenAnteriorATrocaDeCodigoEhRecusado() throws Exception {
+        // Given
+        Cliente cliente = new Cliente();
+        cliente.setNomeCompleto("João Silva");
+        cliente.setEnderecoPrincipal("Rua das Flores, 123");
+        cliente.setPlano(TipoPlano.NORMAL);
+        cliente.setCodigoAcesso("123456");
+        Long id = repository.save(cliente).getId();
+        String token = login("123456");
+
+        // When & Then - Editar sem trocar o código mantém o token
+        Cliente semNovoCodigo = new Cliente();
+        semNovoCodigo.setNomeCompleto("João Silva");
+        semNovoCodigo.setEnderecoPrincipal("Rua das Flores, 456");
+        semNovoCodigo.setPlano(TipoPlano.PREMIUM);
+
+        mockMvc.perform(put("/clientes/{id}", id)
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(objectMapper.writeValueAsString(semNovoCodigo))
+                .header("Authorization", "Bearer " + token))
+                .andExpect(status().isOk());
+
+        // When - Código trocado por quem o conhecia
+        Cliente novoCodigo = new Cliente();
+        novoCodigo.setNomeCompleto("João Silva");
+        novoCodigo.setEnderecoPrincipal("Rua das Flores, 456");
+        novoCodigo.setPlano(TipoPlano.PREMIUM);
+        novoCodigo.setCodigoAcesso("654321");
+
+        mockMvc.perform(put("/clientes/{id}", id)
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(objectMapper.writeValueAsString(novoCodigo))
+                .header("Authorization", "Bearer " + token))
+                .andExpect(status().isOk());
+
+        // Then - O token emitido antes da troca é recusado, mesmo sem ter expirado
+        mockMvc.perform(put("/clientes/{id}", id)
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(objectMapper.writeValueAsString(semNovoCodigo))
+                .header("Authorization", "Bearer " + token))
+                .andExpect(status().isUnauthorized())
+                .andExpect(jsonPath("$.message").value("Token de sessão revogado"));
+
+        mockMvc.perform(delete("/clientes/{id}", id)
+                .header("Authorization", "Bearer " + token))
+                .andExpect(status().isUnauthorized());
+
+        assertTrue(repository.existsById(id));
+    }
+
+    @Test
+    void testTokenDeClienteRemovidoEhRecusado() throws Exception {
+        // Given
+        Cliente cliente = new Cliente();
+        cliente.setNomeCompleto("João Silva");
+        cliente.setEnderecoPrincipal("Rua das Flores, 123");
+        cliente.setPlano(TipoPlano.PREMIUM);
+        cliente.setCodigoAcesso("123456");
+        Long id = repository.save(cliente).getId();
+        String token = login("123456");
+
+        // When
+        mockMvc.perform(delete("/clientes/{id}", id)
+                .header("Authorization", "Bearer " + token))
+                .andExpect(status().isOk());
+
+        // Then - O token é recusado antes de qualquer consulta ao cliente
+        mockMvc.perform(delete("/clientes/{id}", id)
+                .header("Authorization", "Bearer " + token))
+                .andExpect(status().isUnauthorized())
+                .andExpect(jsonPath("$.message").value("Token de sessão revogado"));
+
+        mockMvc.perform(get("/cliente/ativos/disponiveis")
+                .header("Authorization", "Bearer " + token))
+                .andExpect(status().isUnauthorized());
+    }
+
+    @Test
+    void testTokenDeOutroClienteOuInvalido() throws Exception {
+        // Given
+        Cliente joao = new Cliente();
+        joao.setNomeCompleto("João Silva");
+        joao.setEnderecoPrincipal("Rua das Flores, 123");
+        joao.setPlano(TipoPlano.NORMAL);
+        joao.setCodigoAcesso("123456");
+        repository.save(joao);
+
+        Cliente maria = new Cliente();
+        maria.setNomeCompleto("Maria Santos");
+        maria.setEnderecoPrincipal("Av. Principal, 456");
+        maria.setPlano(TipoPlano.PREMIUM);
+        maria.setCodigoAcesso("654321");
+        Long idMaria = repository.save(maria).getId();
+
+        String tokenJoao = login("123456");
+
+        // When & Then - Token válido, mas de outro cliente
+        mockMvc.perform(delete("/clientes/{id}", idMaria)
+                .header("Authorization", "Bearer " + tokenJoao))
+                .andExpect(status().isForbidden());
+
+        // When & Then - Token adulterado ou fora do esquema Bearer
+        mockMvc.perform(delete("/clientes/{id}", idMaria)
+                .header("Authorization", "Bearer " + tokenJoao.substring(1)))
+                .andExpect(status().isUnauthorized())
+                .andExpect(jsonPath("$.message").value("Token de sessão inválido"));
+
+        mockMvc.perform(delete("/clientes/{id}", idMaria)
+                .header("Authorization", "Basic " + tokenJoao))
+                .andExpect(status().isUnauthorized());
+
+        assertTrue(repository.existsById(idMaria));
+    }
+
+    private String login(String codigoAcesso) throws Exception {
+        String response = mockMvc.perform(post("/clientes/login")
+                .param("codigoAcesso", codigoAcesso))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getContentAsString();
+        return objectMapper.readTree(response).get("token").asText();
+    }
 } 
\ No newline at end of file
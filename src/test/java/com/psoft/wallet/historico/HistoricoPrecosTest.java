@@ -0,0 +1,89 @@
+package com.psoft.wallet.historico;
+
+import com.psoft.wallet.dto.Cotacao;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.util.unit.DataSize;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class HistoricoPrecosTest {
+    private static final int ATIVOS = 50;
+
+    @TempDir
+    Path diretorio;
+
+    @Test
+    void testMapeamentosLimitadosSemPerderCotacoes() throws Exception {
+        // Given - No máximo 4 séries com o segmento mapeado
+        HistoricoPrecos historico = new HistoricoPrecos(diretorio.resolve("historico"), DataSize.ofKilobytes(1),
+            4, false, new SimpleMeterRegistry());
+
+        // When - Cotações alternadas entre muitos ativos, com segmentos enchendo no caminho
+        Instant inicio = Instant.parse("2025-01-02T10:00:00Z");
+        for (int rodada = 0; rodada < 100; rodada++) {
+            for (long id = 1; id <= ATIVOS; id++) {
+                historico.registrar(id, inicio.plusSeconds(rodada), id * 10_000 + rodada);
+            }
+        }
+
+        // Then - Os mapeamentos ficam no limite (a remoção do cache é assíncrona)
+        long limite = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+        while (historico.segmentosMapeados() > 4) {
+            assertTrue(System.nanoTime() < limite, "Mapeamentos: " + historico.segmentosMapeados());
+            Thread.sleep(10);
+        }
+
+        // Then - Nenhuma cotação se perdeu, inclusive nas séries fechadas e remapeadas
+        for (long id = 1; id <= ATIVOS; id++) {
+            List<Cotacao> cotacoes = new ArrayList<>();
+            historico.percorrer(id, null, null, cotacoes::add);
+            assertEquals(100, cotacoes.size());
+            for (int rodada = 0; rodada < 100; rodada++) {
+                assertEquals(id * 10_000 + rodada, cotacoes.get(rodada).valor());
+                assertEquals(inicio.plusSeconds(rodada), cotacoes.get(rodada).instante());
+            }
+        }
+        assertNull(historico.ultimaFalha());
+        historico.fechar();
+    }
+
+    @Test
+    void testFalhaAoRegistrarEhContadaEExposta() throws Exception {
+        // Given - O "diretório" do histórico é um arquivo comum
+        Path arquivo = Files.createFile(diretorio.resolve("nao-e-diretorio"));
+        SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+        HistoricoPrecos historico = new HistoricoPrecos(arquivo, DataSize.ofKilobytes(1), 4, false, meterRegistry);
+
+        // When
+        historico.registrar(1L, Instant.now(), 10_000);
+
+        // Then
+        assertEquals(1, meterRegistry.counter("wallet.historico.falhas").count());
+        assertNotNull(historico.ultimaFalha());
+        assertEquals("DOWN", new SaudeHistorico(historico).health().getStatus().getCode());
+    }
+
+    @Test
+    void testDiretorioTemporarioApagadoNoEncerramento() {
+        // Given
+        Path execucao = diretorio.resolve("execucao");
+        HistoricoPrecos historico = new HistoricoPrecos(execucao, DataSize.ofKilobytes(1), 4, true, new SimpleMeterRegistry());
+        historico.registrar(1L, Instant.now(), 10_000);
+        assertTrue(Files.isDirectory(execucao));
+
+        // When
+        historico.fechar();
+
+        // Then
+        assertFalse(Files.exists(execucao));
+    }
+}
@@ -0,0 +1,168 @@
+package com.psoft.wallet.ingestao;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import com.psoft.wallet.dto.Cotacao;
+import com.psoft.wallet.model.Ativo;
+import com.psoft.wallet.model.Preco;
+import com.psoft.wallet.model.TipoAtivo;
+import com.psoft.wallet.repository.AtivoRepository;
+import com.psoft.wallet.service.AtivoService;
+import com.psoft.wallet.service.CatalogoAtivos;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BooleanSupplier;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+// Feed de cotações por arquivo, acompanhado como tail -f
+@SpringBootTest(properties = {
+    "wallet.ingestao.habilitada=true",
+    "wallet.ingestao.fonte=arquivo",
+    "spring.datasource.url=jdbc:h2:mem:ingestao"
+})
+@ActiveProfiles("test")
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+class IngestaoCotacoesTest {
+
+    @TempDir
+    static Path diretorio;
+
+    @Autowired
+    private AtivoService service;
+
+    @Autowired
+    private AtivoRepository repository;
+
+    @Autowired
+    private CatalogoAtivos catalogo;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Autowired
+    private IngestaoCotacoes ingestao;
+
+    @DynamicPropertySource
+    static void feed(DynamicPropertyRegistry registro) {
+        registro.add("wallet.ingestao.arquivo", () -> arquivo().toString());
+    }
+
+    private static Path arquivo() {
+        return diretorio.resolve("cotacoes.txt");
+    }
+
+    @BeforeEach
+    void setUp() {
+        repository.deleteAll();
+        catalogo.recarregar();
+    }
+
+    @Test
+    void testCotacoesDoFeedAtualizamCatalogoBancoEHistorico() throws Exception {
+        // Given
+        Long id = criarAtivo("Petrobras").getId();
+
+        // When - Cada cotação varia mais de 1% sobre a anterior; a linha chega em dois pedaços
+        acrescentar(id + ";105\n" + id + ",110.00\n" + id + " 120.");
+        acrescentar("5\n");
+
+        // Then - Com ou sem conflação, a última cotação é aceita
+        aguardar(() -> catalogo.preco(id) == Preco.de("120.50"));
+        assertEquals(Preco.de("120.50"), repository.findById(id).orElseThrow().getValorAtual());
+        List<Cotacao> historico = service.listarHistorico(id, null, null);
+        assertEquals(Preco.de("120.50"), historico.get(historico.size() - 1).valor());
+    }
+
+    @Test
+    void testCotacoesDoFeedRecusadasOuInvalidas() throws Exception {
+        // Given
+        Long id = criarAtivo("Petrobras").getId();
+        Long outro = criarAtivo("Vale").getId();
+        double invalidasAntes = contador("invalida");
+        double recusadasAntes = contador("recusada");
+
+        // When - Variação abaixo de 1%, linhas malformadas, casas decimais demais e,
+        // por último, uma cotação válida de outro ativo
+        acrescentar(id + ";100.50\nPetrobras;120\n" + id + ";130.00001\n\n" + outro + ";50\n");
+
+        // Then - O feed é lido em ordem: quando a última cotação chega, as anteriores já passaram
+        aguardar(() -> catalogo.preco(outro) == Preco.de("50") && contador("recusada") > recusadasAntes);
+        assertEquals(Preco.de("100.00"), catalogo.preco(id));
+        assertEquals(1, service.listarHistorico(id, null, null).size());
+        assertEquals(2, contador("invalida") - invalidasAntes);
+        assertEquals(1, contador("recusada") - recusadasAntes);
+    }
+
+    @Test
+    void testReaberturaDoArquivoNaoReaplicaCotacoes() throws Exception {
+        // Given - A última cotação do arquivo já foi aplicada e depois superada por um PATCH
+        Long id = criarAtivo("Petrobras").getId();
+        Long outro = criarAtivo("Vale").getId();
+        acrescentar(id + ";110\n");
+        aguardar(() -> catalogo.preco(id) == Preco.de("110"));
+        service.atualizarValor(id, Preco.de("130"));
+
+        // When - Uma falha de leitura força a reabertura, e uma cotação nova chega depois dela
+        ingestao.interromperLeitura();
+        acrescentar(outro + ";50\n");
+
+        // Then - A leitura segue de onde parou: a cotação de 110 não é aplicada de novo
+        aguardar(() -> catalogo.preco(outro) == Preco.de("50"));
+        assertEquals(Preco.de("130"), catalogo.preco(id));
+        assertEquals(3, service.listarHistorico(id, null, null).size());
+    }
+
+    @Test
+    void testArquivoTruncadoELidoDesdeOInicio() throws Exception {
+        // Given
+        Long id = criarAtivo("Petrobras").getId();
+        acrescentar(id + ";105\n" + id + ";110\n");
+        aguardar(() -> catalogo.preco(id) == Preco.de("110"));
+
+        // When - O arquivo é truncado e reescrito, menor do que o trecho já lido
+        Files.writeString(arquivo(), id + ";120\n", StandardOpenOption.TRUNCATE_EXISTING);
+
+        // Then
+        aguardar(() -> catalogo.preco(id) == Preco.de("120"));
+    }
+
+    private Ativo criarAtivo(String nome) {
+        Ativo ativo = new Ativo();
+        ativo.setNome(nome);
+        ativo.setTipo(TipoAtivo.ACAO);
+        ativo.setDisponivel(true);
+        ativo.setValorAtual(Preco.de("100.00"));
+        return service.criarAtivo(ativo);
+    }
+
+    private static void acrescentar(String linhas) throws IOException {
+        Files.writeString(arquivo(), linhas, StandardOpenOption.CREATE, StandardOpenOption.APPEND);
+    }
+
+    // A escritora aplica os lotes em outra thread
+    private static void aguardar(BooleanSupplier condicao) throws InterruptedException {
+        long limite = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+        while (!condicao.getAsBoolean()) {
+            assertTrue(System.nanoTime() < limite, "Cotações do feed não aplicadas a tempo");
+            Thread.sleep(10);
+        }
+    }
+
+    private double contador(String resultado) {
+        return meterRegistry.get("wallet.ingestao.cotacoes").tag("resultado", resultado).counter().count();
+    }
+}
@@ -0,0 +1,233 @@
+package com.psoft.wallet.service;
+
+import com.psoft.wallet.dto.Cotacao;
+import com.psoft.wallet.model.Ativo;
+import com.psoft.wallet.model.Preco;
+import com.psoft.wallet.model.TipoAtivo;
+import com.psoft.wallet.model.TipoPlano;
+import com.psoft.wallet.repository.AtivoRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+// Teste de estresse: muitas threads atualizando cotações ao mesmo tempo
+@SpringBootTest
+@ActiveProfiles("test")
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+class AtivoServiceConcorrenciaTest {
+    private static final int THREADS = 16;
+    private static final int ATUALIZACOES_POR_THREAD = 200;
+
+    @Autowired
+    private AtivoService service;
+
+    @Autowired
+    private AtivoRepository repository;
+
+    @Autowired
+    private CatalogoAtivos catalogo;
+
+    @BeforeEach
+    void setUp() {
+        repository.deleteAll();
+        catalogo.recarregar();
+    }
+
+    @Test
+    void testAtualizacoesConcorrentesNoMesmoAtivoNaoSePerdem() throws Exception {
+        // Given
+        Long id = criarAtivo("Petrobras").getId();
+
+        // When - Cada thread calcula o novo valor a partir do valor que leu, como um feed faria
+        List<Integer> aceitas = executarEmParalelo(() -> {
+            int sucesso = 0;
+            for (int i = 0; i < ATUALIZACOES_POR_THREAD; i++) {
+                long lido = catalogo.preco(id);
+                long novoValor = lido * (ThreadLocalRandom.current().nextBoolean() ? 105 : 96) / 100;
+                try {
+                    service.atualizarValor(id, novoValor);
+                    sucesso++;
+                } catch (VariacaoInvalidaException ex) {
+                    // Outra thread atualizou antes: o valor lido ficou velho
+                }
+            }
+            return sucesso;
+        });
+
+        // Then - Cada atualização aceita está no histórico, na ordem em que foi aplicada
+        int totalAceitas = aceitas.stream().mapToInt(Integer::intValue).sum();
+        List<Cotacao> historico = service.listarHistorico(id, null, null);
+        assertEquals(totalAceitas + 1, historico.size());
+
+        // Then - Nenhuma variação foi validada contra um valor desatualizado
+        for (int i = 1; i < historico.size(); i++) {
+            long anterior = historico.get(i - 1).valor();
+            long atual = historico.get(i).valor();
+            assertTrue(Preco.variacaoMinimaAtingida(anterior, atual),
+                "Variação abaixo de 1% entre " + Preco.formatar(anterior) + " e " + Preco.formatar(atual));
+        }
+
+        // Then - Banco, catálogo e histórico terminam com o mesmo valor
+        long ultimo = historico.get(historico.size() - 1).valor();
+        assertEquals(ultimo, catalogo.buscar(id).orElseThrow().getValorAtual());
+        assertEquals(ultimo, repository.findById(id).orElseThrow().getValorAtual());
+    }
+
+    @Test
+    void testAtualizacoesConcorrentesEmAtivosDiferentes() throws Exception {
+        // Given - Um ativo por thread
+        List<Long> ids = new ArrayList<>();
+        for (int i = 0; i < THREADS; i++) {
+            ids.add(criarAtivo("Ativo " + i).getId());
+        }
+
+        // When - Sem disputa pelo mesmo ativo, todas as atualizações são aceitas
+        AtomicInteger proximo = new AtomicInteger();
+        List<Integer> aceitas = executarEmParalelo(() -> {
+            Long id = ids.get(proximo.getAndIncrement());
+            for (int i = 0; i < ATUALIZACOES_POR_THREAD; i++) {
+                service.atualizarValor(id, i % 2 == 0 ? Preco.de("110.00") : Preco.de("100.00"));
+            }
+            return ATUALIZACOES_POR_THREAD;
+        });
+        assertEquals(THREADS * ATUALIZACOES_POR_THREAD, aceitas.stream().mapToInt(Integer::intValue).sum());
+
+        // Then
+        for (Long id : ids) {
+            assertEquals(Preco.de("100.00"), repository.findById(id).orElseThrow().getValorAtual());
+            assertEquals(ATUALIZACOES_POR_THREAD + 1, service.listarHistorico(id, null, null).size());
+        }
+    }
+
+    @Test
+    void testVisaoDoPlanoRefleteCotacoesConcorrentes() throws Exception {
+        // Given - Um ativo por thread e a visão Premium já montada
+        List<Long> ids = new ArrayList<>();
+        for (int i = 0; i < THREADS; i++) {
+            ids.add(criarAtivo("Ativo " + i).getId());
+        }
+        VisaoPlano antes = catalogo.visaoDoPlano(TipoPlano.PREMIUM);
+        VersaoCatalogo versaoAntes = catalogo.versao();
+
+        // When - Cotações sem o lock de escrita, enquanto a visão é pedida
+        AtomicInteger proximo = new AtomicInteger();
+        executarEmParalelo(() -> {
+            Long id = ids.get(proximo.getAndIncrement());
+            for (int i = 0; i < ATUALIZACOES_POR_THREAD; i++) {
+                service.atualizarValor(id, i % 2 == 0 ? Preco.de("110.00") : Preco.de("100.00"));
+                catalogo.visaoDoPlano(TipoPlano.PREMIUM);
+            }
+            service.atualizarValor(id, Preco.de("120.00"));
+            return 1;
+        });
+
+        // Then - A visão remontada tem a última cotação de cada ativo, com versão nova
+        VisaoPlano depois = catalogo.visaoDoPlano(TipoPlano.PREMIUM);
+        assertNotEquals(antes.etag(), depois.etag());
+        assertNotEquals(versaoAntes.etag(), catalogo.versao().etag());
+        assertEquals(THREADS, depois.ativos().size());
+        depois.ativos().forEach(ativo -> assertEquals(Preco.de("120.00"), ativo.valorAtual()));
+        ids.forEach(id -> assertEquals(Preco.de("120.00"), catalogo.preco(id)));
+
+        // Then - O plano Normal não tem ações: sua visão não mudou
+        VisaoPlano normal = catalogo.visaoDoPlano(TipoPlano.NORMAL);
+        assertSame(normal, catalogo.visaoDoPlano(TipoPlano.NORMAL));
+        assertTrue(normal.ativos().isEmpty());
+    }
+
+    @Test
+    void testCotacoesDuranteOCrescimentoDaTabelaDePrecosNaoSePerdem() throws Exception {
+        // Given
+        List<Long> ids = new ArrayList<>();
+        for (int i = 0; i < THREADS; i++) {
+            ids.add(criarAtivo("Ativo " + i).getId());
+        }
+
+        // When - Metade das threads cota, a outra metade cria ativos, fazendo a tabela crescer
+        AtomicInteger proximo = new AtomicInteger();
+        executarEmParalelo(() -> {
+            int indice = proximo.getAndIncrement();
+            if (indice % 2 == 0) {
+                for (int i = 0; i < 200; i++) {
+                    criarAtivo("Novo " + indice + "-" + i);
+                }
+                return 0;
+            }
+            Long id = ids.get(indice);
+            for (int i = 0; i < ATUALIZACOES_POR_THREAD; i++) {
+                service.atualizarValor(id, i % 2 == 0 ? Preco.de("110.00") : Preco.de("100.00"));
+            }
+            return 1;
+        });
+
+        // Then - Cada ativo cotado tem o último valor aceito na tabela
+        for (int i = 1; i < THREADS; i += 2) {
+            assertEquals(Preco.de("100.00"), catalogo.preco(ids.get(i)));
+        }
+    }
+
+    @Test
+    void testCriacoesConcorrentesComMesmoNome() throws Exception {
+        // When - Todas as threads tentam criar um ativo com o mesmo nome
+        List<Integer> criados = executarEmParalelo(() -> {
+            try {
+                criarAtivo("Petrobras");
+                return 1;
+            } catch (AtivoNomeDuplicadoException ex) {
+                return 0;
+            }
+        });
+
+        // Then - Apenas uma criação é aceita
+        assertEquals(1, criados.stream().mapToInt(Integer::intValue).sum());
+        assertEquals(1, repository.count());
+    }
+
+    private Ativo criarAtivo(String nome) {
+        Ativo ativo = new Ativo();
+        ativo.setNome(nome);
+        ativo.setTipo(TipoAtivo.ACAO);
+        ativo.setDisponivel(true);
+        ativo.setValorAtual(Preco.de("100.00"));
+        return service.criarAtivo(ativo);
+    }
+
+    // Executa a mesma tarefa em todas as threads, liberadas juntas
+    private static List<Integer> executarEmParalelo(Callable<Integer> tarefa) throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        try {
+            CountDownLatch largada = new CountDownLatch(1);
+            List<Future<Integer>> futuros = new ArrayList<>();
+            for (int i = 0; i < THREADS; i++) {
+                futuros.add(executor.submit(() -> {
+                    largada.await();
+                    return tarefa.call();
+                }));
+            }
+            largada.countDown();
+
+            List<Integer> resultados = new ArrayList<>();
+            for (Future<Integer> futuro : futuros) {
+                resultados.add(futuro.get());
+            }
+            return resultados;
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+}
@@ -0,0 +1,196 @@
+package com.psoft.wallet.service;
+
+import com.psoft.wallet.model.Ativo;
+import com.psoft.wallet.model.Preco;
+import com.psoft.wallet.model.TipoAtivo;
+import com.psoft.wallet.repository.AtivoRepository;
+import jakarta.persistence.Cache;
+import jakarta.persistence.EntityManagerFactory;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.context.annotation.AnnotationConfigApplicationContext;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.transaction.CannotCreateTransactionException;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionCallback;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+// Gravação de cotações: a escrita assíncrona, padrão em produção (o perfil de teste a desliga), e a síncrona
+@SpringBootTest(properties = {
+    "spring.datasource.url=jdbc:h2:mem:precos",
+    "wallet.precos.escrita-assincrona=true",
+    "wallet.precos.intervalo-escrita-ms=100"
+})
+@ActiveProfiles("test")
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+class PersistenciaPrecosTest {
+
+    @Autowired
+    private AtivoService service;
+
+    @Autowired
+    private AtivoRepository repository;
+
+    @Autowired
+    private CatalogoAtivos catalogo;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    @BeforeEach
+    void setUp() {
+        repository.deleteAll();
+        catalogo.recarregar();
+    }
+
+    @Test
+    void testCotacaoAceitaChegaAoBancoPeloDescarregamentoAgendado() throws Exception {
+        // Given
+        Long id = service.criarAtivo(novoAtivo("Petrobras")).getId();
+
+        // When - Aceita na hora, pelo catálogo
+        service.atualizarValor(id, Preco.de("110.00"));
+        assertEquals(Preco.de("110.00"), catalogo.preco(id));
+
+        // Then - Gravada no banco pela tarefa agendada, sem nenhuma chamada explícita
+        long limite = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+        while (repository.findById(id).orElseThrow().getValorAtual() != Preco.de("110.00")) {
+            assertTrue(System.nanoTime() < limite, "Cotação não gravada pelo descarregamento agendado");
+            Thread.sleep(20);
+        }
+    }
+
+    @Test
+    void testCotacoesRepetidasDoMesmoAtivoViramUmaSoGravacao() {
+        // Given - Instância própria, fora do agendamento, para controlar o descarregamento
+        Ativo ativo = repository.save(novoAtivo("Petrobras"));
+        PersistenciaPrecos persistencia =
+            new PersistenciaPrecos(repository, transactionTemplate, entityManagerFactory, true);
+
+        // When
+        persistencia.gravar(ativo.getId(), Preco.de("110.00"));
+        persistencia.gravar(ativo.getId(), Preco.de("120.00"));
+        persistencia.gravar(Map.of(ativo.getId(), Preco.de("130.00")));
+
+        // Then - Nada no banco até o descarregamento
+        assertEquals(Preco.de("100.00"), repository.findById(ativo.getId()).orElseThrow().getValorAtual());
+
+        persistencia.descarregar();
+
+        // Then - Só a mais recente, em um único UPDATE
+        Ativo gravado = repository.findById(ativo.getId()).orElseThrow();
+        assertEquals(Preco.de("130.00"), gravado.getValorAtual());
+        assertEquals(ativo.getVersao() + 1, gravado.getVersao());
+    }
+
+    @Test
+    void testFalhaNoDescarregamentoDevolveOLoteSemSobrescreverCotacoesNovas() {
+        // Given - Transação que falha uma vez; durante a falha chega uma cotação nova do primeiro ativo
+        Ativo petrobras = repository.save(novoAtivo("Petrobras"));
+        Ativo vale = repository.save(novoAtivo("Vale"));
+        AtomicReference<PersistenciaPrecos> referencia = new AtomicReference<>();
+        TransactionTemplate falhaUmaVez = new TransactionTemplate(transactionManager) {
+            private boolean falhou;
+
+            @Override
+            public <T> T execute(TransactionCallback<T> acao) {
+                if (!falhou) {
+                    falhou = true;
+                    referencia.get().gravar(petrobras.getId(), Preco.de("130.00"));
+                    throw new CannotCreateTransactionException("Banco indisponível");
+                }
+                return super.execute(acao);
+            }
+        };
+        PersistenciaPrecos persistencia = new PersistenciaPrecos(repository, falhaUmaVez, entityManagerFactory, true);
+        referencia.set(persistencia);
+
+        persistencia.gravar(Map.of(petrobras.getId(), Preco.de("110.00"), vale.getId(), Preco.de("50.00")));
+
+        // When - Primeiro descarregamento falha, o segundo grava
+        persistencia.descarregar();
+        assertEquals(Preco.de("100.00"), repository.findById(petrobras.getId()).orElseThrow().getValorAtual());
+        persistencia.descarregar();
+
+        // Then - O lote devolvido não sobrescreveu a cotação mais nova
+        assertEquals(Preco.de("130.00"), repository.findById(petrobras.getId()).orElseThrow().getValorAtual());
+        assertEquals(Preco.de("50.00"), repository.findById(vale.getId()).orElseThrow().getValorAtual());
+    }
+
+    @Test
+    void testGravacaoSincronaMantemOsDemaisAtivosNoCacheDeSegundoNivel() {
+        // Given - Dois ativos no cache de segundo nível
+        Ativo petrobras = repository.save(novoAtivo("Petrobras"));
+        Ativo vale = repository.save(novoAtivo("Vale"));
+        repository.findById(petrobras.getId());
+        repository.findById(vale.getId());
+        Cache cache = entityManagerFactory.getCache();
+        assertTrue(cache.contains(Ativo.class, vale.getId()));
+        PersistenciaPrecos persistencia =
+            new PersistenciaPrecos(repository, transactionTemplate, entityManagerFactory, false);
+
+        // When
+        assertTrue(persistencia.gravar(petrobras.getId(), Preco.de("110.00")));
+
+        // Then - Só a entrada do ativo alterado sai do cache; a região não é invalidada
+        assertFalse(cache.contains(Ativo.class, petrobras.getId()));
+        assertTrue(cache.contains(Ativo.class, vale.getId()));
+        Ativo gravado = repository.findById(petrobras.getId()).orElseThrow();
+        assertEquals(Preco.de("110.00"), gravado.getValorAtual());
+        assertEquals(petrobras.getVersao() + 1, gravado.getVersao());
+    }
+
+    @Test
+    void testGravacaoSincronaRecusaVariacaoMenorQue1PorcentoSobreOValorGravado() {
+        // Given
+        Ativo ativo = repository.save(novoAtivo("Petrobras"));
+        PersistenciaPrecos persistencia =
+            new PersistenciaPrecos(repository, transactionTemplate, entityManagerFactory, false);
+
+        // When & Then
+        assertFalse(persistencia.gravar(ativo.getId(), Preco.de("100.50")));
+        assertFalse(persistencia.gravar(ativo.getId() + 1000, Preco.de("110.00")));
+        assertEquals(Preco.de("100.00"), repository.findById(ativo.getId()).orElseThrow().getValorAtual());
+    }
+
+    @Test
+    void testEncerramentoGravaCotacoesPendentes() {
+        // Given - Contexto próprio, para que o @PreDestroy rode no close
+        Ativo ativo = repository.save(novoAtivo("Petrobras"));
+        AnnotationConfigApplicationContext contexto = new AnnotationConfigApplicationContext();
+        contexto.registerBean(PersistenciaPrecos.class,
+            () -> new PersistenciaPrecos(repository, transactionTemplate, entityManagerFactory, true));
+        contexto.refresh();
+        contexto.getBean(PersistenciaPrecos.class).gravar(ativo.getId(), Preco.de("110.00"));
+
+        // When
+        contexto.close();
+
+        // Then
+        assertEquals(Preco.de("110.00"), repository.findById(ativo.getId()).orElseThrow().getValorAtual());
+    }
+
+    private static Ativo novoAtivo(String nome) {
+        Ativo ativo = new Ativo();
+        ativo.setNome(nome);
+        ativo.setTipo(TipoAtivo.ACAO);
+        ativo.setDisponivel(true);
+        ativo.setValorAtual(Preco.de("100.00"));
+        return ativo;
+    }
+}
@@ -0,0 +1,81 @@
+package com.psoft.wallet.service;
+
+import com.psoft.wallet.dto.ClienteResumo;
+import com.psoft.wallet.dto.SessaoCliente;
+import com.psoft.wallet.model.TipoPlano;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.Base64;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class TokensSessaoTest {
+    private static final String SEGREDO = Base64.getEncoder().encodeToString(new byte[32]);
+    private static final ClienteResumo CLIENTE = new ClienteResumo(42L, "João Silva", "Rua das Flores, 123", TipoPlano.PREMIUM);
+
+    @Test
+    void testTokenEmitidoCarregaIdEPlano() {
+        // Given
+        TokensSessao tokens = new TokensSessao(SEGREDO, Duration.ofMinutes(15));
+
+        // When
+        SessaoCliente sessao = tokens.emitir(CLIENTE);
+
+        // Then
+        assertEquals(new Sessao(42L, TipoPlano.PREMIUM), tokens.verificar(sessao.token()));
+        assertEquals(CLIENTE, sessao.cliente());
+    }
+
+    @Test
+    void testTokenAdulteradoOuDeOutraChaveEhRecusado() {
+        // Given
+        TokensSessao tokens = new TokensSessao(SEGREDO, Duration.ofMinutes(15));
+        String token = tokens.emitir(CLIENTE).token();
+
+        // When - Plano trocado para NORMAL mantendo a assinatura
+        byte[] dados = Base64.getUrlDecoder().decode(token.substring(0, token.indexOf('.')));
+        dados[Long.BYTES] = 0;
+        String adulterado = Base64.getUrlEncoder().withoutPadding().encodeToString(dados) + token.substring(token.indexOf('.'));
+
+        // Then
+        assertThrows(CodigoAcessoIncorretoException.class, () -> tokens.verificar(adulterado));
+        assertThrows(CodigoAcessoIncorretoException.class, () -> tokens.verificar("sem-ponto"));
+        assertThrows(CodigoAcessoIncorretoException.class, () -> tokens.verificar("***.***"));
+        assertThrows(CodigoAcessoIncorretoException.class, () -> new TokensSessao("", Duration.ofMinutes(15)).verificar(token));
+    }
+
+    @Test
+    void testTokenExpiradoEhRecusado() {
+        // Given - Duração zero: o token já nasce expirado
+        TokensSessao tokens = new TokensSessao(SEGREDO, Duration.ZERO);
+        String token = tokens.emitir(CLIENTE).token();
+
+        // When & Then
+        CodigoAcessoIncorretoException ex = assertThrows(CodigoAcessoIncorretoException.class, () -> tokens.verificar(token));
+        assertEquals("Token de sessão expirado", ex.getMessage());
+    }
+
+    @Test
+    void testTokenRevogadoEhRecusado() {
+        // Given
+        TokensSessao tokens = new TokensSessao(SEGREDO, Duration.ofMinutes(15));
+        String anterior = tokens.emitir(CLIENTE).token();
+        String deOutroCliente = tokens.emitir(new ClienteResumo(7L, "Maria Santos", "Av. Principal, 456", TipoPlano.NORMAL)).token();
+
+        // When
+        tokens.revogar(42L);
+
+        // Then - Só os tokens do cliente emitidos antes da revogação são recusados
+        CodigoAcessoIncorretoException ex = assertThrows(CodigoAcessoIncorretoException.class, () -> tokens.verificar(anterior));
+        assertEquals("Token de sessão revogado", ex.getMessage());
+        assertEquals(new Sessao(42L, TipoPlano.PREMIUM), tokens.verificar(tokens.emitir(CLIENTE).token()));
+        assertEquals(new Sessao(7L, TipoPlano.NORMAL), tokens.verificar(deOutroCliente));
+    }
+
+    @Test
+    void testSegredoCurtoEhRecusado() {
+        String curto = Base64.getEncoder().encodeToString(new byte[16]);
+        assertThrows(IllegalArgumentException.class, () -> new TokensSessao(curto, Duration.ofMinutes(15)));
+    }
+}
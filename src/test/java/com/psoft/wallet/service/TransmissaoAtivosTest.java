@@ -0,0 +1,156 @@
+package com.psoft.wallet.service;
+
+import com.psoft.wallet.model.Ativo;
+import com.psoft.wallet.model.Preco;
+import com.psoft.wallet.model.TipoAtivo;
+import com.psoft.wallet.model.TipoPlano;
+import com.psoft.wallet.repository.AtivoRepository;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BooleanSupplier;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+// Despacho de eventos com inscritos lentos: filas de 4 eventos por inscrito
+@SpringBootTest(properties = {
+    "spring.datasource.url=jdbc:h2:mem:eventos",
+    "wallet.eventos.fila-por-inscrito=4"
+})
+@ActiveProfiles("test")
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+class TransmissaoAtivosTest {
+
+    @Autowired
+    private TransmissaoAtivos transmissao;
+
+    @Autowired
+    private AtivoService service;
+
+    @Autowired
+    private AtivoRepository repository;
+
+    @Autowired
+    private CatalogoAtivos catalogo;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @BeforeEach
+    void setUp() {
+        repository.deleteAll();
+        catalogo.recarregar();
+    }
+
+    @Test
+    void testInscritoLentoEhDesconectadoSemAtrasarOsDemais() throws Exception {
+        // Given - Um inscrito travado no primeiro envio e outro que só conta os eventos
+        CountDownLatch liberar = new CountDownLatch(1);
+        EmissorTeste lento = new EmissorTeste(liberar);
+        EmissorTeste rapido = new EmissorTeste(null);
+        transmissao.inscrever(TipoPlano.PREMIUM, lento);
+        transmissao.inscrever(TipoPlano.PREMIUM, rapido);
+        double descartadosAntes = meterRegistry.counter("wallet.eventos.descartados").count();
+
+        List<Long> ids = new ArrayList<>();
+        for (int i = 0; i < 10; i++) {
+            ids.add(service.criarAtivo(novoAtivo("Ativo " + i)).getId());
+        }
+
+        try {
+            // When - Uma cotação para cada ativo: mais eventos do que cabem na fila do lento
+            for (Long id : ids) {
+                service.atualizarValor(id, Preco.de("110.00"));
+            }
+
+            // Then - O inscrito rápido recebe todos, e o lento é desconectado
+            aguardar(() -> rapido.eventos.get() == ids.size());
+            aguardar(lento.concluido::get);
+            assertEquals(descartadosAntes + 1, meterRegistry.counter("wallet.eventos.descartados").count());
+            assertFalse(rapido.concluido.get());
+        } finally {
+            liberar.countDown();
+            rapido.complete();
+        }
+    }
+
+    @Test
+    void testCotacoesSeguidasDoMesmoAtivoSaoAgrupadas() throws Exception {
+        // Given
+        EmissorTeste inscrito = new EmissorTeste(null);
+        transmissao.inscrever(TipoPlano.PREMIUM, inscrito);
+        Long id = service.criarAtivo(novoAtivo("Petrobras")).getId();
+
+        try {
+            // When - Muitas publicações do mesmo ativo, mais rápido do que o despacho
+            for (int i = 0; i < 10_000; i++) {
+                transmissao.publicar(id);
+            }
+
+            // Then - Ao menos um evento, e bem menos eventos do que publicações
+            aguardar(() -> inscrito.eventos.get() > 0);
+            Thread.sleep(100);
+            assertTrue(inscrito.eventos.get() < 10_000, "Eventos: " + inscrito.eventos.get());
+        } finally {
+            inscrito.complete();
+        }
+    }
+
+    private static Ativo novoAtivo(String nome) {
+        Ativo ativo = new Ativo();
+        ativo.setNome(nome);
+        ativo.setTipo(TipoAtivo.ACAO);
+        ativo.setDisponivel(true);
+        ativo.setValorAtual(Preco.de("100.00"));
+        return ativo;
+    }
+
+    private static void aguardar(BooleanSupplier condicao) throws InterruptedException {
+        long limite = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+        while (!condicao.getAsBoolean()) {
+            assertTrue(System.nanoTime() < limite, "Eventos não despachados a tempo");
+            Thread.sleep(10);
+        }
+    }
+
+    // Emissor sem conexão HTTP: conta os envios e, se houver trava, bloqueia no primeiro
+    private static class EmissorTeste extends SseEmitter {
+        private final CountDownLatch trava;
+        private final AtomicInteger eventos = new AtomicInteger();
+        private final AtomicBoolean concluido = new AtomicBoolean();
+
+        EmissorTeste(CountDownLatch trava) {
+            this.trava = trava;
+        }
+
+        @Override
+        public void send(SseEventBuilder evento) {
+            if (trava != null) {
+                try {
+                    trava.await();
+                } catch (InterruptedException ex) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+            eventos.incrementAndGet();
+        }
+
+        @Override
+        public void complete() {
+            concluido.set(true);
+            super.complete();
+        }
+    }
+}